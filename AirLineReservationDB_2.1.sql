@@ -15,6 +15,9 @@ USE AirlineReservationDB;
 GO
 
 -- 2. XÓA BẢNG CŨ (nếu tồn tại)
+IF OBJECT_ID('SeatClaims', 'U') IS NOT NULL DROP TABLE SeatClaims;
+IF OBJECT_ID('PaymentCallbacks', 'U') IS NOT NULL DROP TABLE PaymentCallbacks;
+IF OBJECT_ID('FlightRollups', 'U') IS NOT NULL DROP TABLE FlightRollups;
 IF OBJECT_ID('Payments', 'U') IS NOT NULL DROP TABLE Payments;
 IF OBJECT_ID('BookingPassengers', 'U') IS NOT NULL DROP TABLE BookingPassengers;
 IF OBJECT_ID('Bookings', 'U') IS NOT NULL DROP TABLE Bookings;
@@ -72,6 +75,7 @@ CREATE TABLE Flights (
     arrival_time DATETIME NOT NULL,
     price DECIMAL(10,2) NOT NULL CHECK (price >= 0),
     available_seats INT NOT NULL CHECK (available_seats >= 0),
+    version BIGINT NOT NULL DEFAULT 0,
     route_id BIGINT NOT NULL,
     aircraft_id BIGINT NOT NULL,
     created_at DATETIME DEFAULT GETDATE(),
@@ -87,9 +91,12 @@ CREATE TABLE Bookings (
     id BIGINT IDENTITY(1,1) PRIMARY KEY,
     user_id BIGINT NOT NULL,
     flight_id BIGINT NOT NULL,
+    booking_code VARCHAR(20) NULL,
     booking_date DATETIME NOT NULL DEFAULT GETDATE(),
     status VARCHAR(20) NOT NULL CHECK (status IN ('PENDING', 'CONFIRMED', 'CANCELLED')),
     total_price DECIMAL(10,2) NOT NULL CHECK (total_price >= 0),
+    version BIGINT NOT NULL DEFAULT 0,
+    hold_expires_at DATETIME NULL,
     created_at DATETIME DEFAULT GETDATE(),
     updated_at DATETIME DEFAULT GETDATE(),
     CONSTRAINT fk_booking_user FOREIGN KEY (user_id) REFERENCES Users(id),
@@ -117,23 +124,76 @@ CREATE TABLE Payments (
     payment_date DATETIME NOT NULL DEFAULT GETDATE(),
     amount DECIMAL(10,2) NOT NULL CHECK (amount >= 0),
     payment_method VARCHAR(50) NOT NULL,
-    status VARCHAR(20) NOT NULL CHECK (status IN ('SUCCESS', 'FAILED', 'PENDING')),
+    status VARCHAR(20) NOT NULL CHECK (status IN ('SUCCESS', 'FAILED', 'PENDING', 'REFUND_REQUIRED')),
     transaction_id VARCHAR(100),
     created_at DATETIME DEFAULT GETDATE(),
     CONSTRAINT fk_payment_booking FOREIGN KEY (booking_id) REFERENCES Bookings(id)
 );
 GO
 
+-- PaymentCallbacks: khoá idempotency cho callback / IPN của VNPAY, mỗi
+-- vnp_TxnRef một dòng. processed_at NULL = đã nhận nhưng chưa áp dụng xong.
+-- attempts / last_error: số lần áp dụng lỗi và lỗi gần nhất; callback lỗi quá
+-- số lần cho phép không được replay nữa, chờ người vận hành xử lý.
+CREATE TABLE PaymentCallbacks (
+    txn_ref VARCHAR(100) PRIMARY KEY,
+    response_code VARCHAR(10) NOT NULL,
+    amount BIGINT NOT NULL,
+    received_at DATETIME NOT NULL DEFAULT GETDATE(),
+    processed_at DATETIME NULL,
+    attempts INT NOT NULL DEFAULT 0,
+    last_error VARCHAR(500) NULL
+);
+GO
+
+-- SeatClaims: mỗi ghế đang giữ / đã bán của một chuyến bay là một dòng. PK
+-- (flight_id, seat_number) đảm bảo một ghế không bao giờ thuộc về hai hành
+-- khách, kể cả khi nhiều instance cùng cấp ghế; booking huỷ / hết hạn xoá dòng.
+CREATE TABLE SeatClaims (
+    flight_id BIGINT NOT NULL,
+    seat_number VARCHAR(10) NOT NULL,
+    claimed_at DATETIME NOT NULL DEFAULT GETDATE(),
+    CONSTRAINT pk_seat_claims PRIMARY KEY (flight_id, seat_number),
+    CONSTRAINT fk_seat_claim_flight FOREIGN KEY (flight_id) REFERENCES Flights(id)
+);
+GO
+
+-- FlightRollups: doanh thu / ghế đã bán đã gom sẵn, mỗi chuyến bay một dòng
+-- (stat_date = ngày khởi hành). Không có FK để không chặn xoá flight.
+CREATE TABLE FlightRollups (
+    flight_id BIGINT PRIMARY KEY,
+    stat_date DATE NOT NULL,
+    route_id BIGINT NOT NULL,
+    aircraft_id BIGINT NOT NULL,
+    capacity INT NOT NULL,
+    confirmed_bookings INT NOT NULL DEFAULT 0,
+    booked_seats INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(18,2) NOT NULL DEFAULT 0,
+    updated_at DATETIME NOT NULL DEFAULT GETDATE()
+);
+GO
+
 -- INDEX TỐI ƯU
 CREATE INDEX idx_users_username ON Users(username);
 CREATE INDEX idx_users_email ON Users(email);
+-- Danh sách admin: seek (created_at, id) / (departure_time, id) / (booking_date, id)
+CREATE INDEX idx_users_created ON Users(created_at);
 CREATE INDEX idx_flights_number ON Flights(flight_number);
 CREATE INDEX idx_flights_route_departure ON Flights(route_id, departure_time);
-CREATE INDEX idx_bookings_user ON Bookings(user_id);
-CREATE INDEX idx_bookings_flight ON Bookings(flight_id);
-CREATE INDEX idx_bookings_status ON Bookings(status);
+CREATE INDEX idx_flights_departure ON Flights(departure_time);
+CREATE INDEX idx_bookings_user ON Bookings(user_id, booking_date);
+CREATE INDEX idx_bookings_flight ON Bookings(flight_id, booking_date);
+CREATE INDEX idx_bookings_date ON Bookings(booking_date);
+CREATE UNIQUE INDEX idx_bookings_code ON Bookings(booking_code) WHERE booking_code IS NOT NULL;
+CREATE INDEX idx_bookings_status ON Bookings(status) INCLUDE (total_price);
 CREATE INDEX idx_payments_booking ON Payments(booking_id);
+CREATE INDEX idx_payments_status ON Payments(status);
+CREATE INDEX idx_payments_transaction ON Payments(transaction_id);
+CREATE INDEX idx_callbacks_pending ON PaymentCallbacks(received_at) WHERE processed_at IS NULL;
 CREATE INDEX idx_passengers_booking ON BookingPassengers(booking_id);
+CREATE INDEX idx_rollups_date ON FlightRollups(stat_date) INCLUDE (capacity, confirmed_bookings, booked_seats, revenue);
+CREATE INDEX idx_rollups_route_date ON FlightRollups(route_id, stat_date) INCLUDE (capacity, confirmed_bookings, booked_seats, revenue);
+CREATE INDEX idx_rollups_aircraft_date ON FlightRollups(aircraft_id, stat_date) INCLUDE (capacity, confirmed_bookings, booked_seats, revenue);
 GO
 
 -- =============================================
@@ -488,6 +548,33 @@ INSERT INTO Flights (flight_number, departure_time, arrival_time, price, availab
 ('VN2070', '2025-11-07 19:15:00', '2025-11-07 20:45:00', 1110000.00, 180, 2, 5);
 GO
 -- =============================================
+-- ROLLUP BAN ĐẦU CHO DỮ LIỆU MẪU
+-- =============================================
+INSERT INTO FlightRollups (flight_id, stat_date, route_id, aircraft_id, capacity,
+    confirmed_bookings, booked_seats, revenue)
+SELECT f.id, CAST(f.departure_time AS DATE), f.route_id, f.aircraft_id, a.capacity,
+    ISNULL(b.bookings, 0), ISNULL(b.seats, 0), ISNULL(b.revenue, 0)
+FROM Flights f
+JOIN Aircrafts a ON a.id = f.aircraft_id
+LEFT JOIN (
+    SELECT bk.flight_id, COUNT(*) AS bookings, SUM(bk.total_price) AS revenue,
+        SUM(ISNULL(p.seats, 0)) AS seats
+    FROM Bookings bk
+    LEFT JOIN (SELECT booking_id, COUNT(*) AS seats FROM BookingPassengers GROUP BY booking_id) p
+        ON p.booking_id = bk.id
+    WHERE bk.status = 'CONFIRMED'
+    GROUP BY bk.flight_id
+) b ON b.flight_id = f.id;
+GO
+
+-- Ghế đã cấp của các booking còn hiệu lực (ghế trùng trong dữ liệu cũ chỉ giữ một)
+INSERT INTO SeatClaims (flight_id, seat_number)
+SELECT DISTINCT bk.flight_id, p.seat_number
+FROM BookingPassengers p
+JOIN Bookings bk ON bk.id = p.booking_id
+WHERE bk.status <> 'CANCELLED' AND p.seat_number IS NOT NULL;
+GO
+-- =============================================
 -- 9. THỐNG KÊ CUỐI CÙNG
 -- =============================================
 DECLARE @c_users INT, @c_aircrafts INT, @c_routes INT, @c_flights INT, @c_bookings INT, @c_passengers INT, @c_payments INT;
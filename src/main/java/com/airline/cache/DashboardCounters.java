@@ -0,0 +1,190 @@
+package com.airline.cache;
+
+import com.airline.dao.DashboardDAO;
+import com.airline.dto.DashboardStats;
+import com.airline.entity.Booking.BookingStatus;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.event.PaymentCompletedEvent;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * DashboardCounters Bộ đếm trong bộ nhớ cho dashboard admin.
+ *
+ * - Nạp giá trị ban đầu từ DashboardDAO khi khởi động.
+ * - Cập nhật theo BookingLifecycleEvent / PaymentCompletedEvent sau commit;
+ * mọi bộ đếm (kể cả doanh thu, tính bằng đơn vị 1/100) là LongAdder nên không
+ * có khoá.
+ * - Đối soát định kỳ với DB: query xong thì gán thẳng giá trị DB cho mọi bộ
+ * đếm sau một rào ghi ngắn (các listener giữ khoá đọc), không cộng chênh lệch
+ * nên sai số không tích luỹ qua các lần đối soát. Sự kiện commit trong lúc
+ * query có thể lệch tới lần đối soát sau. Số user / flight chỉ được cập nhật
+ * qua đối soát.
+ */
+@Component
+public class DashboardCounters implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardCounters.class);
+
+    private final DashboardDAO dashboardDAO;
+
+    private final LongAdder totalUsers = new LongAdder();
+    private final LongAdder totalFlights = new LongAdder();
+    private final LongAdder totalBookings = new LongAdder();
+    private final LongAdder pendingBookings = new LongAdder();
+    private final LongAdder confirmedBookings = new LongAdder();
+    private final LongAdder cancelledBookings = new LongAdder();
+    private final LongAdder revenueCents = new LongAdder();
+    private final LongAdder successfulPayments = new LongAdder();
+
+    // Khoá đọc: listener (nhiều luồng song song); khoá ghi: gán giá trị DB
+    private final ReentrantReadWriteLock barrier = new ReentrantReadWriteLock();
+
+    private final LongAdder reconciliations = new LongAdder();
+    private final LongAdder driftCorrections = new LongAdder();
+
+    @Autowired
+    public DashboardCounters(DashboardDAO dashboardDAO) {
+        this.dashboardDAO = dashboardDAO;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            reconcile();
+        } catch (RuntimeException e) {
+            log.warn("Could not seed dashboard counters: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Giá trị hiện tại, O(1), không truy vấn DB
+     */
+    public DashboardStats snapshot() {
+        return DashboardStats.builder()
+                .totalUsers(totalUsers.sum())
+                .totalFlights(totalFlights.sum())
+                .totalBookings(totalBookings.sum())
+                .pendingBookings(pendingBookings.sum())
+                .confirmedBookings(confirmedBookings.sum())
+                .cancelledBookings(cancelledBookings.sum())
+                .totalRevenue(BigDecimal.valueOf(revenueCents.sum(), 2))
+                .successfulPayments(successfulPayments.sum())
+                .build();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingLifecycle(BookingLifecycleEvent event) {
+        Lock lock = barrier.readLock();
+        lock.lock();
+        try {
+            apply(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void apply(BookingLifecycleEvent event) {
+        switch (event.getType()) {
+            case CREATED -> {
+                totalBookings.increment();
+                pendingBookings.increment();
+            }
+            case CONFIRMED -> {
+                pendingBookings.decrement();
+                confirmedBookings.increment();
+                revenueCents.add(toCents(event.getTotalPrice()));
+            }
+            case CANCELLED -> {
+                if (event.getPreviousStatus() == BookingStatus.CONFIRMED) {
+                    confirmedBookings.decrement();
+                    revenueCents.add(-toCents(event.getTotalPrice()));
+                } else {
+                    pendingBookings.decrement();
+                }
+                cancelledBookings.increment();
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPaymentCompleted(PaymentCompletedEvent event) {
+        if (!event.isSuccess()) {
+            return;
+        }
+        Lock lock = barrier.readLock();
+        lock.lock();
+        try {
+            successfulPayments.increment();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Đối soát với DB bằng query aggregate của DashboardDAO
+     */
+    @Scheduled(fixedDelay = 5, initialDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void reconcile() {
+        DashboardStats db = dashboardDAO.loadDashboardStats();
+
+        long drift;
+        Lock lock = barrier.writeLock();
+        lock.lock();
+        try {
+            drift = set(totalUsers, db.getTotalUsers())
+                    + set(totalFlights, db.getTotalFlights())
+                    + set(totalBookings, db.getTotalBookings())
+                    + set(pendingBookings, db.getPendingBookings())
+                    + set(confirmedBookings, db.getConfirmedBookings())
+                    + set(cancelledBookings, db.getCancelledBookings())
+                    + set(revenueCents, toCents(db.getTotalRevenue()))
+                    + set(successfulPayments, db.getSuccessfulPayments());
+        } finally {
+            lock.unlock();
+        }
+
+        reconciliations.increment();
+        if (drift > 0) {
+            driftCorrections.add(drift);
+            log.debug("Dashboard counters reconciled, {} counters corrected", drift);
+        }
+    }
+
+    public long getReconciliations() {
+        return reconciliations.sum();
+    }
+
+    public long getDriftCorrections() {
+        return driftCorrections.sum();
+    }
+
+    /**
+     * Gán giá trị DB cho bộ đếm (gọi khi giữ khoá ghi: không listener nào đang
+     * cộng dở)
+     *
+     * @return 1 nếu có chênh lệch
+     */
+    private static long set(LongAdder counter, long actual) {
+        long delta = actual - counter.sum();
+        if (delta == 0) {
+            return 0;
+        }
+        counter.add(delta);
+        return 1;
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).longValue();
+    }
+}
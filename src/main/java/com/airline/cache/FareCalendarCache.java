@@ -0,0 +1,144 @@
+package com.airline.cache;
+
+import com.airline.dto.FareCalendarDay;
+import com.airline.event.FlightInventoryChangedEvent;
+import com.airline.event.RouteChangedEvent;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * FareCalendarCache Cache lịch giá theo (routeId, tháng).
+ *
+ * - Mỗi entry là kết quả của một query GROUP BY cho cả tháng.
+ * - FlightInventoryChangedEvent (sau commit) huỷ đúng tháng bị ảnh hưởng.
+ * - Kết quả đọc DB chỉ được put nếu route đó không bị invalidate trong lúc
+ * đọc (so số thế hệ theo stripe của routeId, thay đổi của route khác không
+ * làm rơi kết quả đang đọc).
+ * - Đầy thì loại các entry cũ nhất (theo thời điểm put), không xoá toàn bộ.
+ */
+@Component
+public class FareCalendarCache {
+
+    private static final int MAX_ENTRIES = 10_000;
+    private static final long TTL_MILLIS = 5 * 60_000;
+    // Mỗi lần đầy loại 1/8 số entry cũ nhất
+    private static final int EVICT_BATCH = MAX_ENTRIES / 8;
+    private static final int GENERATION_STRIPES = 256;
+
+    private final Map<RouteMonth, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    private record RouteMonth(Long routeId, YearMonth month) {
+    }
+
+    private record Entry(Map<LocalDate, FareCalendarDay> days, long expiresAt) {
+    }
+
+    public Map<LocalDate, FareCalendarDay> get(Long routeId, YearMonth month) {
+        RouteMonth key = new RouteMonth(routeId, month);
+        Entry entry = entries.get(key);
+        if (entry == null || entry.expiresAt() <= System.currentTimeMillis()) {
+            if (entry != null) {
+                entries.remove(key, entry);
+            }
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.days();
+    }
+
+    /**
+     * Thế hệ hiện tại của route; đọc TRƯỚC khi query DB và truyền lại cho
+     * put()
+     */
+    public long generation(Long routeId) {
+        return generations.get(stripe(routeId));
+    }
+
+    /**
+     * days phải là Map không sửa được của FareCalendarDay (bất biến)
+     */
+    public void put(Long routeId, YearMonth month, Map<LocalDate, FareCalendarDay> days, long generation) {
+        if (entries.size() >= MAX_ENTRIES) {
+            evict();
+        }
+        RouteMonth key = new RouteMonth(routeId, month);
+        Entry entry = new Entry(days, System.currentTimeMillis() + TTL_MILLIS);
+        entries.put(key, entry);
+        if (generations.get(stripe(routeId)) != generation) {
+            // Route bị invalidate trong lúc đang đọc DB
+            entries.remove(key, entry);
+        }
+    }
+
+    public void invalidate(Long routeId, YearMonth month) {
+        generations.incrementAndGet(stripe(routeId));
+        if (entries.remove(new RouteMonth(routeId, month)) != null) {
+            invalidations.increment();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(FlightInventoryChangedEvent event) {
+        invalidate(event.getRouteId(), YearMonth.from(event.getDepartureDate()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteChanged(RouteChangedEvent event) {
+        generations.incrementAndGet(stripe(event.getRouteId()));
+        entries.keySet().removeIf(key -> key.routeId().equals(event.getRouteId()));
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("entries", (long) entries.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("evictions", evictions.sum());
+        return stats;
+    }
+
+    /**
+     * Bỏ các entry hết hạn; vẫn đầy thì bỏ EVICT_BATCH entry cũ nhất
+     */
+    private synchronized void evict() {
+        if (entries.size() < MAX_ENTRIES) {
+            return; // Thread khác vừa dọn xong
+        }
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAt() <= now);
+        int excess = entries.size() - MAX_ENTRIES + EVICT_BATCH;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<RouteMonth, Entry>> oldest = new ArrayList<>(entries.entrySet());
+        oldest.sort(Comparator.comparingLong(e -> e.getValue().expiresAt()));
+        for (Map.Entry<RouteMonth, Entry> e : oldest.subList(0, Math.min(excess, oldest.size()))) {
+            if (entries.remove(e.getKey(), e.getValue())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private static int stripe(Long routeId) {
+        int h = routeId.hashCode();
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,228 @@
+package com.airline.cache;
+
+import com.airline.dao.FlightDAO;
+import com.airline.event.FlightInventoryChangedEvent;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * FlightScheduleIndex Lịch bay trong bộ nhớ, mỗi route một mảng FlightSlot đã
+ * sắp xếp theo giờ khởi hành để tìm chuyến nối bằng binary search thay vì
+ * query DB cho từng chặng.
+ *
+ * - Nạp các chuyến bay chưa khởi hành khi startup (query projection).
+ * - Mỗi FlightInventoryChangedEvent (sau commit) đọc lại đúng 1 dòng và thay
+ * mảng của route đó (copy-on-write); người đọc không khoá. Hai lần đọc lại
+ * cùng một chuyến có thể xong ngược thứ tự: dòng có Flight.version cũ hơn bản
+ * đã áp dụng bị bỏ qua.
+ * - Chuyến đã khởi hành được dọn định kỳ.
+ */
+@Component
+public class FlightScheduleIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(FlightScheduleIndex.class);
+
+    private static final FlightSlot[] EMPTY = new FlightSlot[0];
+
+    private static final Comparator<FlightSlot> BY_DEPARTURE
+            = Comparator.comparingLong(FlightSlot::departureMinute).thenComparingLong(FlightSlot::id);
+
+    private final FlightDAO flightDAO;
+
+    private final Map<Long, FlightSlot[]> schedules = new ConcurrentHashMap<>();
+    // flightId -> routeId, chỉ dùng bởi writer (synchronized)
+    private final Map<Long, Long> routeByFlight = new HashMap<>();
+    // flightId -> Flight.version đã áp dụng (DELETED: chuyến đã bị xoá), chỉ
+    // dùng bởi writer (synchronized)
+    private final Map<Long, Long> appliedVersions = new HashMap<>();
+
+    private static final long DELETED = Long.MAX_VALUE;
+
+    @Autowired
+    public FlightScheduleIndex(FlightDAO flightDAO) {
+        this.flightDAO = flightDAO;
+    }
+
+    /**
+     * Bản ghi gọn của một chuyến bay; thời gian tính theo phút để so sánh nhanh
+     */
+    public record FlightSlot(long id, long routeId, String flightNumber,
+            LocalDateTime departureTime, LocalDateTime arrivalTime,
+            BigDecimal price, int availableSeats,
+            long departureMinute, long arrivalMinute, long version) {
+
+        static FlightSlot fromRow(Object[] row) {
+            LocalDateTime departure = (LocalDateTime) row[3];
+            LocalDateTime arrival = (LocalDateTime) row[4];
+            return new FlightSlot(
+                    (Long) row[0],
+                    (Long) row[1],
+                    (String) row[2],
+                    departure,
+                    arrival,
+                    (BigDecimal) row[5],
+                    ((Number) row[6]).intValue(),
+                    toMinute(departure),
+                    toMinute(arrival),
+                    (Long) row[7]);
+        }
+    }
+
+    public static long toMinute(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC) / 60;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Could not load flight schedule index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại toàn bộ các chuyến bay chưa khởi hành
+     */
+    public synchronized void reload() {
+        Map<Long, List<FlightSlot>> byRoute = new HashMap<>();
+        for (Object[] row : flightDAO.findScheduleRows(LocalDateTime.now())) {
+            FlightSlot slot = FlightSlot.fromRow(row);
+            byRoute.computeIfAbsent(slot.routeId(), r -> new ArrayList<>()).add(slot);
+        }
+
+        schedules.clear();
+        routeByFlight.clear();
+        appliedVersions.clear();
+        int count = 0;
+        for (Map.Entry<Long, List<FlightSlot>> entry : byRoute.entrySet()) {
+            FlightSlot[] slots = entry.getValue().toArray(EMPTY);
+            Arrays.sort(slots, BY_DEPARTURE);
+            schedules.put(entry.getKey(), slots);
+            for (FlightSlot slot : slots) {
+                routeByFlight.put(slot.id(), slot.routeId());
+                appliedVersions.put(slot.id(), slot.version());
+            }
+            count += slots.length;
+        }
+        log.info("Flight schedule index loaded: {} flights on {} routes", count, schedules.size());
+    }
+
+    /**
+     * Các chuyến của route khởi hành trong [fromMinute, toMinute), theo thứ tự
+     * giờ khởi hành. Trả về view trên mảng bất biến.
+     */
+    public List<FlightSlot> departures(Long routeId, long fromMinute, long toMinute) {
+        FlightSlot[] slots = schedules.getOrDefault(routeId, EMPTY);
+        int start = lowerBound(slots, fromMinute);
+        int end = lowerBound(slots, toMinute);
+        return start >= end ? List.of() : Arrays.asList(slots).subList(start, end);
+    }
+
+    public int size() {
+        return schedules.values().stream().mapToInt(slots -> slots.length).sum();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(FlightInventoryChangedEvent event) {
+        refresh(event.getFlightId());
+    }
+
+    /**
+     * Đọc lại một chuyến bay từ DB và cập nhật index (xoá nếu không còn). Query
+     * chạy ngoài lock nên lần đọc cũ có thể đến sau lần đọc mới: chỉ thay slot
+     * khi version không nhỏ hơn bản đã áp dụng
+     */
+    public void refresh(Long flightId) {
+        Optional<FlightSlot> slot = flightDAO.findScheduleRow(flightId).map(FlightSlot::fromRow);
+        // Không còn dòng: chuyến đã bị xoá, trạng thái cuối cùng
+        long version = slot.map(FlightSlot::version).orElse(DELETED);
+        synchronized (this) {
+            if (version < appliedVersions.getOrDefault(flightId, -1L)) {
+                return;
+            }
+            appliedVersions.put(flightId, version);
+            Long previousRoute = routeByFlight.remove(flightId);
+            if (previousRoute != null) {
+                replace(previousRoute, flightId, null);
+            }
+            slot.filter(s -> s.departureTime().isAfter(LocalDateTime.now()))
+                    .ifPresent(s -> {
+                        replace(s.routeId(), flightId, s);
+                        routeByFlight.put(flightId, s.routeId());
+                    });
+        }
+    }
+
+    /**
+     * Dọn các chuyến đã khởi hành
+     */
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public synchronized void pruneDeparted() {
+        long now = toMinute(LocalDateTime.now());
+        for (Map.Entry<Long, FlightSlot[]> entry : schedules.entrySet()) {
+            FlightSlot[] slots = entry.getValue();
+            int start = lowerBound(slots, now);
+            if (start == 0) {
+                continue;
+            }
+            for (int i = 0; i < start; i++) {
+                routeByFlight.remove(slots[i].id());
+            }
+            entry.setValue(Arrays.copyOfRange(slots, start, slots.length));
+        }
+        // Giữ version của chuyến còn trong index và dấu xoá
+        appliedVersions.entrySet().removeIf(e -> e.getValue() != DELETED && !routeByFlight.containsKey(e.getKey()));
+    }
+
+    private void replace(Long routeId, Long flightId, FlightSlot slot) {
+        FlightSlot[] current = schedules.getOrDefault(routeId, EMPTY);
+        List<FlightSlot> next = new ArrayList<>(current.length + 1);
+        for (FlightSlot existing : current) {
+            if (existing.id() != flightId) {
+                next.add(existing);
+            }
+        }
+        if (slot != null) {
+            next.add(slot);
+        }
+        if (next.isEmpty()) {
+            schedules.remove(routeId);
+            return;
+        }
+        FlightSlot[] updated = next.toArray(EMPTY);
+        Arrays.sort(updated, BY_DEPARTURE);
+        schedules.put(routeId, updated);
+    }
+
+    private static int lowerBound(FlightSlot[] slots, long minute) {
+        int low = 0;
+        int high = slots.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (slots[mid].departureMinute() < minute) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
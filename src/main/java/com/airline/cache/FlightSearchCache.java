@@ -0,0 +1,230 @@
+package com.airline.cache;
+
+import com.airline.event.FlightInventoryChangedEvent;
+import com.airline.event.RouteChangedEvent;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * FlightSearchCache Cache kết quả tìm chuyến bay theo (origin, destination,
+ * date, page, size).
+ *
+ * - Chỉ cache giá trị bất biến (FlightView, Map/List không sửa được, Long):
+ * cùng một giá trị được trả cho nhiều request / thread cùng lúc.
+ * - Đọc không khoá (ConcurrentHashMap); chỉ put / invalidate / evict lấy khoá.
+ * - Giới hạn theo "trọng số" (tổng số flight đang cache), loại bỏ xấp xỉ LRU
+ * (CLOCK: entry được đọc từ lần quét trước được giữ lại thêm một vòng), TTL.
+ * - Chỉ mục phụ (routeId, date) -> các key để huỷ đúng những kết quả bị ảnh
+ * hưởng khi nhận FlightInventoryChangedEvent (sau commit).
+ * - Mỗi (routeId, date) thuộc một "stripe" có số thế hệ: kết quả đọc từ DB chỉ
+ * được put nếu không có invalidation nào xảy ra trong lúc đọc, tránh ghi đè
+ * dữ liệu cũ lên cache vừa bị huỷ.
+ */
+@Component
+public class FlightSearchCache {
+
+    private static final int MAX_WEIGHT = 50_000;
+    private static final long TTL_MILLIS = 60_000;
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final ConcurrentHashMap<SearchKey, Entry> entries = new ConcurrentHashMap<>(256);
+    // Các field dưới đây chỉ đọc / ghi khi giữ khoá của this
+    private final LinkedHashMap<SearchKey, Entry> clock = new LinkedHashMap<>(256);
+    private final Map<RouteDate, Set<SearchKey>> keysByRouteDate = new HashMap<>();
+    private long weight;
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    /**
+     * Loại kết quả được cache: trang FlightView hoặc tổng số chuyến
+     */
+    public enum Kind {
+        VIEWS, COUNT
+    }
+
+    /**
+     * Khoá tìm kiếm (page = -1 cho tìm kiếm không phân trang)
+     */
+    public record SearchKey(Kind kind, String origin, String destination, LocalDate date, int page, int size) {
+    }
+
+    private record RouteDate(Long routeId, LocalDate date) {
+    }
+
+    private static final class Entry {
+
+        private final RouteDate routeDate;
+        private final Object value;
+        private final int weight;
+        private final long expiresAt;
+        // Được đọc kể từ lần quét evict trước
+        private volatile boolean referenced;
+
+        private Entry(RouteDate routeDate, Object value, int weight, long expiresAt) {
+            this.routeDate = routeDate;
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Không khoá; giá trị trả về là bất biến và được chia sẻ, không sửa nó
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V get(SearchKey key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            synchronized (this) {
+                if (clock.get(key) == entry) {
+                    remove(key, entry);
+                    expirations.increment();
+                }
+            }
+            misses.increment();
+            return null;
+        }
+        entry.referenced = true;
+        hits.increment();
+        return (V) entry.value;
+    }
+
+    /**
+     * Thế hệ hiện tại của (routeId, date); đọc TRƯỚC khi query DB và truyền lại
+     * cho put()
+     */
+    public long generation(Long routeId, LocalDate date) {
+        return generations.get(stripe(new RouteDate(routeId, date)));
+    }
+
+    /**
+     * value phải là bất biến (List/Map không sửa được, record, Long)
+     */
+    public synchronized void put(SearchKey key, Long routeId, Object value, int weight, long generation) {
+        RouteDate routeDate = new RouteDate(routeId, key.date());
+        if (generations.get(stripe(routeDate)) != generation) {
+            return; // Bị invalidate trong lúc đang đọc DB
+        }
+        Entry previous = clock.get(key);
+        if (previous != null) {
+            remove(key, previous);
+        }
+
+        int entryWeight = Math.max(1, weight);
+        Entry entry = new Entry(routeDate, value, entryWeight, System.currentTimeMillis() + TTL_MILLIS);
+        clock.put(key, entry);
+        entries.put(key, entry);
+        keysByRouteDate.computeIfAbsent(routeDate, rd -> new HashSet<>()).add(key);
+        this.weight += entryWeight;
+
+        // CLOCK: entry cũ nhất mà đã được đọc thì cho thêm một vòng (chuyển
+        // xuống cuối), chưa được đọc thì loại, cho tới khi về dưới ngưỡng
+        while (this.weight > MAX_WEIGHT) {
+            Map.Entry<SearchKey, Entry> eldest = clock.entrySet().iterator().next();
+            Entry candidate = eldest.getValue();
+            if (candidate.referenced && candidate != entry) {
+                candidate.referenced = false;
+                clock.remove(eldest.getKey());
+                clock.put(eldest.getKey(), candidate);
+            } else {
+                remove(eldest.getKey(), candidate);
+                evictions.increment();
+            }
+        }
+    }
+
+    public void invalidate(Long routeId, LocalDate date) {
+        RouteDate routeDate = new RouteDate(routeId, date);
+        generations.incrementAndGet(stripe(routeDate));
+        synchronized (this) {
+            Set<SearchKey> keys = keysByRouteDate.remove(routeDate);
+            if (keys == null) {
+                return;
+            }
+            for (SearchKey key : keys) {
+                Entry entry = clock.remove(key);
+                if (entry != null) {
+                    entries.remove(key);
+                    weight -= entry.weight;
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < GENERATION_STRIPES; i++) {
+            generations.incrementAndGet(i);
+        }
+        entries.clear();
+        clock.clear();
+        keysByRouteDate.clear();
+        weight = 0;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(FlightInventoryChangedEvent event) {
+        invalidate(event.getRouteId(), event.getDepartureDate());
+    }
+
+    /**
+     * Khoá cache theo tên origin/destination: đổi / xoá route thì xoá toàn bộ
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRouteChanged(RouteChangedEvent event) {
+        clear();
+    }
+
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("entries", (long) entries.size());
+        stats.put("weight", weight);
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("expirations", expirations.sum());
+        stats.put("invalidations", invalidations.sum());
+        return stats;
+    }
+
+    private void remove(SearchKey key, Entry entry) {
+        clock.remove(key);
+        entries.remove(key);
+        unindex(key, entry);
+    }
+
+    private void unindex(SearchKey key, Entry entry) {
+        weight -= entry.weight;
+        Set<SearchKey> keys = keysByRouteDate.get(entry.routeDate);
+        if (keys != null) {
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysByRouteDate.remove(entry.routeDate);
+            }
+        }
+    }
+
+    private static int stripe(RouteDate routeDate) {
+        int h = Objects.hash(routeDate.routeId(), routeDate.date());
+        return (h ^ (h >>> 16)) & (GENERATION_STRIPES - 1);
+    }
+}
@@ -0,0 +1,191 @@
+package com.airline.cache;
+
+import com.airline.dao.FlightDAO;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * PopularFlightsCache Danh sách id chuyến sắp khởi hành phổ biến nhất (số
+ * booking gần đây + tỉ lệ lấp đầy), dùng chung cho mọi user chưa có lịch sử
+ * đặt vé.
+ *
+ * - Làm mới định kỳ ở nền; khi đọc thấy bản đã cũ hơn FRESH_MILLIS thì vẫn trả
+ * bản cũ và kích hoạt một lần làm mới bất đồng bộ (stale-while-revalidate),
+ * các lần đọc đồng thời không tạo thêm query.
+ * - Chỉ đọc DB đồng bộ khi chưa có bản nào hoặc bản hiện có quá MAX_STALE_MILLIS;
+ * mọi lần nạp (đồng bộ, nền, định kỳ) dùng chung một query đang chạy, các
+ * request đồng thời chờ kết quả của nó. Query lỗi mà vẫn còn bản cũ thì trả
+ * bản cũ.
+ * - Ghế / giờ khởi hành được kiểm tra lại lúc phục vụ, nên danh sách cũ vài
+ * phút không trả về chuyến hết ghế.
+ * - Chỉ xếp hạng các chuyến trong HORIZON_DAYS tới; nếu không đủ SIZE chuyến
+ * (lịch bay thưa, mùa thấp điểm) thì bù bằng các chuyến còn ghế khởi hành sớm
+ * nhất, kể cả sau HORIZON_DAYS.
+ */
+@Component
+public class PopularFlightsCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PopularFlightsCache.class);
+
+    public static final int SIZE = 50;
+
+    private static final long FRESH_MILLIS = TimeUnit.MINUTES.toMillis(5);
+    private static final long MAX_STALE_MILLIS = TimeUnit.HOURS.toMillis(1);
+    // Cửa sổ tính tốc độ đặt vé và khoảng khởi hành được xếp hạng
+    private static final long VELOCITY_WINDOW_DAYS = 7;
+    private static final long HORIZON_DAYS = 30;
+    // Chuyến đầy 100% được tính như LOAD_WEIGHT booking gần đây
+    private static final double LOAD_WEIGHT = 10;
+
+    private final FlightDAO flightDAO;
+    private final TaskScheduler taskScheduler;
+
+    private volatile Snapshot snapshot;
+    // Lượt nạp đang chạy (null nếu không có)
+    private final AtomicReference<CompletableFuture<Snapshot>> loading = new AtomicReference<>();
+    // Đã lên lịch làm mới bất đồng bộ
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder backfills = new LongAdder();
+
+    private record Snapshot(List<Long> flightIds, long loadedAt) {
+    }
+
+    @Autowired
+    public PopularFlightsCache(FlightDAO flightDAO, TaskScheduler taskScheduler) {
+        this.flightDAO = flightDAO;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Tối đa limit id chuyến phổ biến nhất, giảm dần
+     */
+    public List<Long> get(int limit) {
+        Snapshot current = snapshot;
+        long age = current == null ? Long.MAX_VALUE : System.currentTimeMillis() - current.loadedAt();
+        if (age > MAX_STALE_MILLIS) {
+            try {
+                current = loadShared();
+            } catch (RuntimeException e) {
+                if (current == null) {
+                    throw e;
+                }
+                staleHits.increment();
+            }
+        } else if (age > FRESH_MILLIS) {
+            staleHits.increment();
+            refreshAsync();
+        } else {
+            hits.increment();
+        }
+        List<Long> ids = current.flightIds();
+        return ids.size() <= limit ? ids : ids.subList(0, limit);
+    }
+
+    @Scheduled(fixedDelay = 5, timeUnit = TimeUnit.MINUTES)
+    public void refresh() {
+        try {
+            loadShared();
+        } catch (RuntimeException e) {
+            // Đã ghi log trong loadShared, giữ bản cũ
+        }
+    }
+
+    private void refreshAsync() {
+        if (loading.get() != null || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            taskScheduler.schedule(() -> {
+                try {
+                    refresh();
+                } finally {
+                    refreshing.set(false);
+                }
+            }, Instant.now());
+        } catch (RuntimeException e) {
+            refreshing.set(false);
+            log.warn("Could not schedule popular flights refresh: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại, hoặc chờ lượt nạp đang chạy của luồng khác (single-flight)
+     */
+    private Snapshot loadShared() {
+        CompletableFuture<Snapshot> mine = new CompletableFuture<>();
+        CompletableFuture<Snapshot> running = loading.compareAndExchange(null, mine);
+        if (running != null) {
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw (RuntimeException) e.getCause();
+            }
+        }
+        try {
+            Snapshot loaded = load();
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.warn("Could not refresh popular flights: {}", e.getMessage());
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.set(null);
+            // Error: các luồng đang chờ không bị treo
+            mine.completeExceptionally(new IllegalStateException("Popular flights load aborted"));
+        }
+    }
+
+    private Snapshot load() {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = flightDAO.findPopularUpcomingIds(now.minusDays(VELOCITY_WINDOW_DAYS),
+                now.plusDays(HORIZON_DAYS), LOAD_WEIGHT, SIZE);
+        if (ids.size() < SIZE) {
+            // SIZE chuyến sớm nhất trùng tối đa ids.size() id nên luôn đủ bù
+            LinkedHashSet<Long> filled = new LinkedHashSet<>(ids);
+            filled.addAll(flightDAO.findUpcomingIds(now, SIZE));
+            ids = new ArrayList<>(filled).subList(0, Math.min(SIZE, filled.size()));
+            backfills.increment();
+        }
+        Snapshot loaded = new Snapshot(List.copyOf(ids), System.currentTimeMillis());
+        snapshot = loaded;
+        refreshes.increment();
+        return loaded;
+    }
+
+    public Map<String, Long> getStats() {
+        Snapshot current = snapshot;
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("flights", current == null ? 0L : current.flightIds().size());
+        stats.put("ageMillis", current == null ? -1L : System.currentTimeMillis() - current.loadedAt());
+        stats.put("hits", hits.sum());
+        stats.put("staleHits", staleHits.sum());
+        stats.put("refreshes", refreshes.sum());
+        stats.put("failures", failures.sum());
+        stats.put("backfills", backfills.sum());
+        return stats;
+    }
+}
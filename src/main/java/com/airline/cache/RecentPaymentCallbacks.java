@@ -0,0 +1,63 @@
+package com.airline.cache;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * RecentPaymentCallbacks Các vnp_TxnRef đã được ghi vào PaymentCallbacks gần
+ * đây. VNPAY gửi lại IPN nhiều lần (và trang return đến cùng lúc): các lần
+ * trùng được trả lời ngay từ bộ nhớ, không mở transaction / khoá DB.
+ *
+ * Chỉ là lớp lọc nhanh: chỉ thêm khoá SAU khi transaction ghi PaymentCallbacks
+ * đã commit, bảng PaymentCallbacks vẫn là nguồn sự thật khi cache không có.
+ */
+@Component
+public class RecentPaymentCallbacks {
+
+    private static final int MAX_KEYS = 100_000;
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    // txnRef -> thời điểm ghi nhận
+    private final ConcurrentHashMap<String, Long> keys = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public boolean contains(String txnRef) {
+        if (keys.containsKey(txnRef)) {
+            hits.increment();
+            return true;
+        }
+        misses.increment();
+        return false;
+    }
+
+    public void add(String txnRef) {
+        if (keys.size() >= MAX_KEYS) {
+            evictExpired();
+            if (keys.size() >= MAX_KEYS) {
+                keys.clear();
+            }
+        }
+        keys.put(txnRef, System.currentTimeMillis());
+    }
+
+    @Scheduled(fixedDelay = 10, initialDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void evictExpired() {
+        long cutoff = System.currentTimeMillis() - TTL_MILLIS;
+        keys.values().removeIf(addedAt -> addedAt < cutoff);
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("keys", (long) keys.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        return stats;
+    }
+}
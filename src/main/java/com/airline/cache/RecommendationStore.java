@@ -0,0 +1,304 @@
+package com.airline.cache;
+
+import com.airline.entity.Booking.BookingStatus;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.event.FlightInventoryChangedEvent;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * RecommendationStore Gợi ý chuyến bay được vật chất hoá cho từng user: số
+ * booking CONFIRMED theo route, top route và danh sách id chuyến ứng viên.
+ *
+ * - Nạp lười khi user xem gợi ý lần đầu (RecommendationServiceImpl), sau đó
+ * cập nhật tăng dần theo BookingLifecycleEvent (xác nhận / huỷ vé đã xác nhận)
+ * mà không truy vấn DB. Trong lúc query nạp đang chạy, user có một bản ghi
+ * "đang nạp": sự kiện đến trong khoảng đó đánh dấu bản ghi bẩn và kết quả nạp
+ * chỉ dùng cho request hiện tại, không được lưu (lần đọc sau nạp lại), vì
+ * không biết query đã thấy booking đó hay chưa.
+ * - Chỉ mục ngược routeId -> user có route đó trong top: khi lịch bay / ghế của
+ * route thay đổi (FlightInventoryChangedEvent) chỉ đánh dấu cũ danh sách ứng
+ * viên của đúng các user đó; danh sách được tính lại ở lần đọc kế tiếp.
+ * - User không xem gợi ý quá INACTIVE_MILLIS bị loại; tối đa MAX_USERS user.
+ */
+@Component
+public class RecommendationStore {
+
+    public static final int TOP_ROUTES = 3;
+
+    private static final int MAX_USERS = 50_000;
+    private static final long INACTIVE_MILLIS = TimeUnit.HOURS.toMillis(24);
+
+    private final ConcurrentHashMap<Long, UserRecommendations> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<Long>> usersByRoute = new ConcurrentHashMap<>();
+    // User đang được nạp từ DB (giữa lúc bắt đầu query và lúc lưu kết quả)
+    private final ConcurrentHashMap<Long, PendingLoad> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder discardedLoads = new LongAdder();
+
+    /**
+     * Lượt nạp đang chạy của một user; dirty khi có booking thay đổi trong lúc
+     * query. Dùng chung cho các luồng cùng nạp một user.
+     */
+    private static final class PendingLoad {
+
+        private boolean dirty;
+        private boolean closed;
+    }
+
+    /**
+     * Gợi ý của một user. candidates == null nghĩa là cần tính lại; generation
+     * đọc trước khi tính và truyền lại cho setCandidates() để không ghi đè một
+     * lần invalidate xảy ra trong lúc đang query.
+     */
+    public static final class UserRecommendations {
+
+        private final Map<Long, Long> routeCounts;
+        private List<Long> topRoutes;
+        private List<Long> candidates;
+        private long generation;
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        private UserRecommendations(Map<Long, Long> routeCounts) {
+            this.routeCounts = new HashMap<>(routeCounts);
+            this.topRoutes = rankRoutes(this.routeCounts);
+        }
+
+        public synchronized List<Long> getTopRoutes() {
+            return topRoutes;
+        }
+
+        public synchronized List<Long> getCandidates() {
+            return candidates;
+        }
+
+        public synchronized long getGeneration() {
+            return generation;
+        }
+
+        public synchronized void setCandidates(List<Long> candidates, long generation) {
+            if (this.generation == generation) {
+                this.candidates = List.copyOf(candidates);
+            }
+        }
+
+        public synchronized void invalidate() {
+            generation++;
+            candidates = null;
+        }
+
+        private synchronized boolean isCandidate(Long flightId) {
+            return candidates != null && candidates.contains(flightId);
+        }
+
+        /**
+         * @return top route trước khi cập nhật nếu thứ hạng thay đổi, null nếu không
+         */
+        private synchronized List<Long> addBooking(Long routeId, long delta) {
+            long count = routeCounts.getOrDefault(routeId, 0L) + delta;
+            if (count > 0) {
+                routeCounts.put(routeId, count);
+            } else {
+                routeCounts.remove(routeId);
+            }
+            List<Long> previous = topRoutes;
+            topRoutes = rankRoutes(routeCounts);
+            if (topRoutes.equals(previous)) {
+                return null;
+            }
+            invalidate();
+            return previous;
+        }
+
+        private static List<Long> rankRoutes(Map<Long, Long> routeCounts) {
+            return routeCounts.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Long>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(TOP_ROUTES)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+    }
+
+    /**
+     * @return null nếu user chưa được nạp (hoặc đã bị loại)
+     */
+    public UserRecommendations get(Long userId) {
+        UserRecommendations entry = users.get(userId);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        entry.lastAccess = System.currentTimeMillis();
+        return entry;
+    }
+
+    /**
+     * Nạp user từ số booking CONFIRMED theo route (routeCounts đọc từ DB, gọi
+     * ngoài mọi khoá); nếu một luồng khác đã nạp trước thì dùng bản đó. Nếu
+     * có BookingLifecycleEvent của user đến trong lúc query thì kết quả không
+     * được lưu.
+     */
+    public UserRecommendations load(Long userId, Supplier<Map<Long, Long>> routeCounts) {
+        PendingLoad pending = loading.computeIfAbsent(userId, id -> new PendingLoad());
+        try {
+            UserRecommendations loaded = new UserRecommendations(routeCounts.get());
+            synchronized (pending) {
+                pending.closed = true;
+                if (pending.dirty) {
+                    discardedLoads.increment();
+                    return loaded;
+                }
+                UserRecommendations existing = users.putIfAbsent(userId, loaded);
+                if (existing != null) {
+                    return existing;
+                }
+            }
+            index(userId, List.of(), loaded.getTopRoutes());
+            return loaded;
+        } finally {
+            loading.remove(userId, pending);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingLifecycle(BookingLifecycleEvent event) {
+        long delta;
+        if (event.getType() == BookingLifecycleEvent.Type.CONFIRMED) {
+            delta = 1;
+        } else if (event.getType() == BookingLifecycleEvent.Type.CANCELLED
+                && event.getPreviousStatus() == BookingStatus.CONFIRMED) {
+            delta = -1;
+        } else {
+            return;
+        }
+        // Đọc loading trước users: load() lưu bản ghi trước khi gỡ loading,
+        // nên không thể lọt giữa hai lần đọc
+        PendingLoad pending = loading.get(event.getUserId());
+        if (pending != null) {
+            synchronized (pending) {
+                if (!pending.closed) {
+                    pending.dirty = true;
+                    return;
+                }
+            }
+        }
+        UserRecommendations entry = users.get(event.getUserId());
+        if (entry == null) {
+            return; // Chưa nạp: lần đọc đầu tiên sẽ lấy số liệu từ DB
+        }
+        List<Long> previous = entry.addBooking(event.getRouteId(), delta);
+        if (previous != null) {
+            index(event.getUserId(), previous, entry.getTopRoutes());
+        }
+    }
+
+    /**
+     * Chuyến mới / sửa / xoá, hoặc chuyến hết ghế có ghế trở lại: chỉ các user
+     * có route trong top bị ảnh hưởng. Đặt / huỷ vé thông thường không tính lại:
+     * chuyến hết ghế đã được loại bằng kiểm tra ghế lúc phục vụ.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInventoryChanged(FlightInventoryChangedEvent event) {
+        if (!event.isScheduleChanged() && !event.isSeatsReopened()) {
+            return;
+        }
+        Set<Long> affected = usersByRoute.get(event.getRouteId());
+        if (affected == null) {
+            return;
+        }
+        for (Long userId : affected) {
+            UserRecommendations entry = users.get(userId);
+            if (entry != null && !entry.isCandidate(event.getFlightId())) {
+                entry.invalidate();
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * Đánh dấu cũ danh sách ứng viên của mọi user (vd. sau khi dựng lại ma trận
+     * route liên quan); top route theo booking không đổi
+     */
+    public void invalidateAll() {
+        users.values().forEach(UserRecommendations::invalidate);
+        invalidations.add(users.size());
+    }
+
+    /**
+     * Loại user không hoạt động, rồi user ít truy cập nhất nếu vượt MAX_USERS
+     */
+    @Scheduled(fixedDelay = 10, initialDelay = 10, timeUnit = TimeUnit.MINUTES)
+    public void evictInactive() {
+        long cutoff = System.currentTimeMillis() - INACTIVE_MILLIS;
+        users.forEach((userId, entry) -> {
+            if (entry.lastAccess < cutoff) {
+                evict(userId, entry);
+            }
+        });
+
+        int excess = users.size() - MAX_USERS;
+        if (excess > 0) {
+            List<Map.Entry<Long, UserRecommendations>> oldest = new ArrayList<>(users.entrySet());
+            oldest.sort(Comparator.comparingLong(e -> e.getValue().lastAccess));
+            for (Map.Entry<Long, UserRecommendations> e : oldest.subList(0, excess)) {
+                evict(e.getKey(), e.getValue());
+            }
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("users", (long) users.size());
+        stats.put("indexedRoutes", (long) usersByRoute.size());
+        stats.put("hits", hits.sum());
+        stats.put("misses", misses.sum());
+        stats.put("invalidations", invalidations.sum());
+        stats.put("evictions", evictions.sum());
+        stats.put("loading", (long) loading.size());
+        stats.put("discardedLoads", discardedLoads.sum());
+        return stats;
+    }
+
+    private void evict(Long userId, UserRecommendations entry) {
+        if (users.remove(userId, entry)) {
+            index(userId, entry.getTopRoutes(), List.of());
+            evictions.increment();
+        }
+    }
+
+    private void index(Long userId, List<Long> oldRoutes, List<Long> newRoutes) {
+        for (Long routeId : oldRoutes) {
+            if (!newRoutes.contains(routeId)) {
+                usersByRoute.computeIfPresent(routeId, (id, set) -> {
+                    set.remove(userId);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        }
+        for (Long routeId : newRoutes) {
+            usersByRoute.compute(routeId, (id, set) -> {
+                Set<Long> result = set != null ? set : ConcurrentHashMap.newKeySet();
+                result.add(userId);
+                return result;
+            });
+        }
+    }
+}
@@ -0,0 +1,493 @@
+package com.airline.cache;
+
+import com.airline.dao.BookingDAO;
+import com.airline.dao.ExportDAO;
+import com.airline.entity.Booking.BookingStatus;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.util.LongIntHashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * RouteCooccurrenceIndex Ma trận đồng xuất hiện route-route ("người bay X cũng
+ * bay Y") dựng từ lịch sử booking CONFIRMED.
+ *
+ * - Dựng toàn bộ (mỗi ngày): đọc các cặp (user, route) phân biệt bằng con trỏ
+ * scroll vào mảng nguyên thuỷ, đếm cặp route song song bằng fork/join theo
+ * từng đoạn user, gộp kết quả. Route được đánh chỉ số dày (0..n-1), cặp (i, j)
+ * với i &lt; j được đóng gói thành một khoá long trong LongIntHashMap.
+ * - Tăng dần: BookingLifecycleEvent (xác nhận / huỷ vé đã xác nhận) được xếp
+ * hàng và áp dụng mỗi phút; chỉ khi user lần đầu có (hoặc mất hẳn) một route
+ * thì các cặp của route đó với các route khác của user mới thay đổi. Query
+ * lịch sử của user chạy ngoài khoá mô hình, chỉ phần cộng vào ma trận giữ khoá.
+ * Thay đổi được áp vào mô hình cũ trong lúc đang dựng toàn bộ được ghi lại và
+ * áp lại lên mô hình mới khi thay thế.
+ * - Phục vụ: ảnh chụp bất biến routeId -&gt; các route liên quan nhất, xếp theo
+ * độ tương đồng cosine count(X, Y) / sqrt(users(X) * users(Y)).
+ */
+@Component
+public class RouteCooccurrenceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteCooccurrenceIndex.class);
+
+    public static final int MAX_RELATED = 10;
+    // Bỏ các cặp chỉ có 1 user chung (nhiễu)
+    private static final int MIN_SUPPORT = 2;
+    // Số dòng (user, route) tối đa mỗi task lá của fork/join
+    private static final int LEAF_ROWS = 50_000;
+    // Số lần đọc lại lịch sử user khi có booking mới của user commit trong lúc query
+    private static final int MAX_HISTORY_READS = 3;
+
+    private final ExportDAO exportDAO;
+    private final BookingDAO bookingDAO;
+    private final RecommendationStore recommendationStore;
+    private final TransactionTemplate readOnlyTransaction;
+
+    // Mô hình đếm, chỉ truy cập khi giữ khoá của đối tượng
+    private LongIntHashMap routeIndex = new LongIntHashMap(256);
+    private long[] routeIds = new long[0];
+    private int[] routeUsers = new int[0];
+    private LongIntHashMap pairs = new LongIntHashMap(1024);
+
+    private volatile Map<Long, long[]> related = Map.of();
+    private final ConcurrentLinkedQueue<PendingChange> pending = new ConcurrentLinkedQueue<>();
+
+    private final LongAdder builds = new LongAdder();
+    private final LongAdder appliedChanges = new LongAdder();
+    private volatile long lastBuildRows;
+    private volatile long lastBuildMillis;
+
+    // Thời điểm bắt đầu đọc của lần dựng toàn bộ đang phục vụ: thay đổi xếp
+    // hàng trước đó đã nằm trong mô hình
+    private long modelStartedAt;
+    // Khác null trong lúc đang dựng toàn bộ: các liên kết đã áp vào mô hình cũ
+    private List<Link> appliedDuringRebuild;
+    // Chỉ một lượt applyPending chạy tại một thời điểm (giữ thứ tự thay đổi)
+    private final Object applyLock = new Object();
+
+    private record PendingChange(long enqueuedAt, Long bookingId, Long userId, Long routeId, int delta) {
+    }
+
+    /**
+     * Một route của user xuất hiện / mất hẳn: cộng delta cho route và cho cặp
+     * của nó với từng route còn lại của user
+     */
+    private record Link(long enqueuedAt, Long routeId, List<Long> others, int delta) {
+    }
+
+    @Autowired
+    public RouteCooccurrenceIndex(ExportDAO exportDAO, BookingDAO bookingDAO,
+            RecommendationStore recommendationStore, PlatformTransactionManager transactionManager) {
+        this.exportDAO = exportDAO;
+        this.bookingDAO = bookingDAO;
+        this.recommendationStore = recommendationStore;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    /**
+     * Các route liên quan nhất tới routeId, giảm dần theo độ tương đồng
+     */
+    public long[] relatedRoutes(Long routeId) {
+        long[] result = related.get(routeId);
+        return result != null ? result : new long[0];
+    }
+
+    /**
+     * Tối đa limit route liên quan tới các route nguồn (theo thứ tự ưu tiên của
+     * nguồn), không gồm chính các route nguồn
+     */
+    public List<Long> relatedRoutes(Collection<Long> sourceRoutes, int limit) {
+        Set<Long> result = new LinkedHashSet<>();
+        Map<Long, long[]> snapshot = related;
+        for (int rank = 0; rank < MAX_RELATED && result.size() < limit; rank++) {
+            for (Long source : sourceRoutes) {
+                long[] candidates = snapshot.get(source);
+                if (candidates != null && rank < candidates.length
+                        && !sourceRoutes.contains(candidates[rank])) {
+                    result.add(candidates[rank]);
+                    if (result.size() == limit) {
+                        break;
+                    }
+                }
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingLifecycle(BookingLifecycleEvent event) {
+        if (event.getType() == BookingLifecycleEvent.Type.CONFIRMED) {
+            pending.add(new PendingChange(System.currentTimeMillis(),
+                    event.getBookingId(), event.getUserId(), event.getRouteId(), 1));
+        } else if (event.getType() == BookingLifecycleEvent.Type.CANCELLED
+                && event.getPreviousStatus() == BookingStatus.CONFIRMED) {
+            pending.add(new PendingChange(System.currentTimeMillis(),
+                    event.getBookingId(), event.getUserId(), event.getRouteId(), -1));
+        }
+    }
+
+    // ===== Dựng toàn bộ =====
+
+    @Scheduled(fixedDelay = 24 * 60, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void rebuild() {
+        long started;
+        synchronized (this) {
+            started = System.currentTimeMillis();
+            appliedDuringRebuild = new ArrayList<>();
+        }
+        UserRoutes rows;
+        Counts counts;
+        try {
+            rows = readOnlyTransaction.execute(status -> {
+                UserRoutes collected = new UserRoutes();
+                exportDAO.scrollConfirmedUserRoutes(row -> collected.add(
+                        ((Number) row[0]).longValue(), ((Number) row[1]).longValue()));
+                return collected;
+            });
+
+            ForkJoinPool pool = new ForkJoinPool();
+            try {
+                counts = pool.invoke(new CountTask(rows, 0, rows.size));
+            } finally {
+                pool.shutdown();
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                appliedDuringRebuild = null;
+            }
+            throw e;
+        }
+
+        int replayed = 0;
+        synchronized (this) {
+            routeIndex = rows.routeIndex;
+            routeIds = Arrays.copyOf(rows.routeIds, rows.routeCount);
+            routeUsers = Arrays.copyOf(counts.routeUsers, rows.routeCount);
+            pairs = counts.pairs;
+            // Thay đổi commit trước khi bắt đầu đọc đã nằm trong dữ liệu vừa
+            // dựng; thay đổi đến sau đó mà đã áp vào mô hình cũ được áp lại
+            pending.removeIf(change -> change.enqueuedAt() < started);
+            for (Link link : appliedDuringRebuild) {
+                if (link.enqueuedAt() >= started) {
+                    link(link);
+                    replayed++;
+                }
+            }
+            appliedDuringRebuild = null;
+            modelStartedAt = started;
+            publish();
+        }
+        recommendationStore.invalidateAll();
+
+        builds.increment();
+        lastBuildRows = rows.size;
+        lastBuildMillis = System.currentTimeMillis() - started;
+        log.info("Route co-occurrence rebuilt: {} user-routes, {} routes, {} pairs in {} ms, {} changes replayed",
+                rows.size, rows.routeCount, counts.pairs.size(), lastBuildMillis, replayed);
+    }
+
+    /**
+     * Các cặp (user, route) đã sắp theo user, lưu trong mảng nguyên thuỷ
+     */
+    private static final class UserRoutes {
+
+        private long[] users = new long[1024];
+        private int[] routes = new int[1024];
+        private int size;
+
+        private final LongIntHashMap routeIndex = new LongIntHashMap(256);
+        private long[] routeIds = new long[64];
+        private int routeCount;
+
+        private void add(long userId, long routeId) {
+            int route = routeIndex.get(routeId, -1);
+            if (route < 0) {
+                route = routeCount++;
+                if (route == routeIds.length) {
+                    routeIds = Arrays.copyOf(routeIds, route * 2);
+                }
+                routeIds[route] = routeId;
+                routeIndex.put(routeId, route);
+            }
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+                routes = Arrays.copyOf(routes, size * 2);
+            }
+            users[size] = userId;
+            routes[size] = route;
+            size++;
+        }
+    }
+
+    private static final class Counts {
+
+        private final LongIntHashMap pairs;
+        private int[] routeUsers;
+
+        private Counts(int routeCount) {
+            this.pairs = new LongIntHashMap(1024);
+            this.routeUsers = new int[routeCount];
+        }
+
+        private Counts merge(Counts other) {
+            Counts target = pairs.size() >= other.pairs.size() ? this : other;
+            Counts source = target == this ? other : this;
+            target.pairs.addAll(source.pairs);
+            for (int i = 0; i < target.routeUsers.length; i++) {
+                target.routeUsers[i] += source.routeUsers[i];
+            }
+            return target;
+        }
+    }
+
+    /**
+     * Đếm cặp route trên đoạn [from, to) của UserRoutes; chỉ chia tại ranh
+     * giới giữa hai user để mỗi user nằm trọn trong một task
+     */
+    private static final class CountTask extends RecursiveTask<Counts> {
+
+        private final UserRoutes rows;
+        private final int from;
+        private final int to;
+
+        private CountTask(UserRoutes rows, int from, int to) {
+            this.rows = rows;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Counts compute() {
+            if (to - from > LEAF_ROWS) {
+                int mid = (from + to) >>> 1;
+                while (mid < to && rows.users[mid] == rows.users[mid - 1]) {
+                    mid++;
+                }
+                if (mid < to) {
+                    CountTask left = new CountTask(rows, from, mid);
+                    left.fork();
+                    Counts right = new CountTask(rows, mid, to).compute();
+                    return left.join().merge(right);
+                }
+            }
+
+            Counts counts = new Counts(rows.routeCount);
+            int start = from;
+            while (start < to) {
+                int end = start + 1;
+                while (end < to && rows.users[end] == rows.users[start]) {
+                    end++;
+                }
+                for (int i = start; i < end; i++) {
+                    counts.routeUsers[rows.routes[i]]++;
+                    for (int j = i + 1; j < end; j++) {
+                        counts.pairs.addTo(pairKey(rows.routes[i], rows.routes[j]), 1);
+                    }
+                }
+                start = end;
+            }
+            return counts;
+        }
+    }
+
+    // ===== Cập nhật tăng dần =====
+
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void applyPending() {
+        synchronized (applyLock) {
+            Map<Long, List<PendingChange>> byUser = new LinkedHashMap<>();
+            for (PendingChange change; (change = pending.poll()) != null;) {
+                byUser.computeIfAbsent(change.userId(), id -> new ArrayList<>()).add(change);
+            }
+            if (byUser.isEmpty()) {
+                return;
+            }
+
+            // Query DB ngoài khoá mô hình: getStats() / rebuild() không phải chờ
+            List<Link> links = new ArrayList<>();
+            for (Map.Entry<Long, List<PendingChange>> entry : byUser.entrySet()) {
+                links.addAll(userLinks(entry.getKey(), entry.getValue()));
+            }
+
+            synchronized (this) {
+                for (Link link : links) {
+                    // Mô hình có thể đã được thay trong lúc query
+                    if (link.enqueuedAt() < modelStartedAt) {
+                        continue;
+                    }
+                    link(link);
+                    if (appliedDuringRebuild != null) {
+                        appliedDuringRebuild.add(link);
+                    }
+                }
+                publish();
+            }
+            byUser.values().forEach(changes -> appliedChanges.add(changes.size()));
+        }
+    }
+
+    /**
+     * Dựng lại số booking CONFIRMED theo route của user ngay trước các thay
+     * đổi trong lô, rồi suy ra các liên kết route cần cộng / trừ. DB đã chứa
+     * cả các booking chưa áp vào mô hình (của lô và của các thay đổi vẫn còn
+     * xếp hàng): lấy DB trừ các booking đó, cộng lại booking nào đã CONFIRMED
+     * từ trước. Nếu không loại các booking còn xếp hàng, hai booking của cùng
+     * user áp ở hai lô khác nhau sẽ mỗi bên thấy bên kia trong "trước".
+     */
+    private List<Link> userLinks(Long userId, List<PendingChange> changes) {
+        Set<Long> unapplied = new HashSet<>();
+        Map<Long, Long> restored = new HashMap<>();
+        addUnapplied(changes, unapplied, restored);
+        addUnapplied(queuedChanges(userId), unapplied, restored);
+        List<Object[]> rows;
+        int excluded;
+        int reads = 0;
+        do {
+            excluded = unapplied.size();
+            rows = bookingDAO.countRoutesByUser(userId, BookingStatus.CONFIRMED, Set.copyOf(unapplied));
+            // Booking của user commit trong lúc query: query có thể đã thấy nó
+            addUnapplied(queuedChanges(userId), unapplied, restored);
+        } while (unapplied.size() > excluded && ++reads < MAX_HISTORY_READS);
+
+        Map<Long, Long> local = new HashMap<>(restored);
+        for (Object[] row : rows) {
+            local.merge((Long) row[0], (Long) row[1], Long::sum);
+        }
+
+        List<Link> links = new ArrayList<>();
+        for (PendingChange change : changes) {
+            Long routeId = change.routeId();
+            long before = local.getOrDefault(routeId, 0L);
+            long after = before + change.delta();
+            local.put(routeId, after);
+            if ((before == 0) != (after == 0)) {
+                List<Long> others = local.entrySet().stream()
+                        .filter(e -> e.getValue() > 0 && !e.getKey().equals(routeId))
+                        .map(Map.Entry::getKey)
+                        .toList();
+                links.add(new Link(change.enqueuedAt(), routeId, others, change.delta()));
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Ghi nhận các booking chưa áp vào mô hình (theo thứ tự thay đổi); booking
+     * có thay đổi đầu tiên là huỷ vé đã xác nhận thì trước đó đang CONFIRMED
+     */
+    private static void addUnapplied(List<PendingChange> changes, Set<Long> unapplied, Map<Long, Long> restored) {
+        for (PendingChange change : changes) {
+            if (unapplied.add(change.bookingId()) && change.delta() < 0) {
+                restored.merge(change.routeId(), 1L, Long::sum);
+            }
+        }
+    }
+
+    /**
+     * Thay đổi của user vẫn còn trong hàng đợi (đến sau khi lô hiện tại được
+     * lấy ra, nên hàng đợi thường ngắn)
+     */
+    private List<PendingChange> queuedChanges(Long userId) {
+        return pending.stream()
+                .filter(change -> change.userId().equals(userId))
+                .toList();
+    }
+
+    private void link(Link link) {
+        int route = denseIndex(link.routeId());
+        routeUsers[route] += link.delta();
+        for (Long other : link.others()) {
+            pairs.addTo(pairKey(route, denseIndex(other)), link.delta());
+        }
+    }
+
+    private int denseIndex(long routeId) {
+        int route = routeIndex.get(routeId, -1);
+        if (route < 0) {
+            route = routeIds.length;
+            routeIds = Arrays.copyOf(routeIds, route + 1);
+            routeUsers = Arrays.copyOf(routeUsers, route + 1);
+            routeIds[route] = routeId;
+            routeIndex.put(routeId, route);
+        }
+        return route;
+    }
+
+    // ===== Ảnh chụp phục vụ =====
+
+    private record Scored(long routeId, double score) {
+    }
+
+    /**
+     * Tính lại danh sách route liên quan cho mọi route, O(số cặp)
+     */
+    private void publish() {
+        List<List<Scored>> candidates = new ArrayList<>(routeIds.length);
+        for (int i = 0; i < routeIds.length; i++) {
+            candidates.add(new ArrayList<>());
+        }
+        pairs.forEach((key, count) -> {
+            if (count < MIN_SUPPORT) {
+                return;
+            }
+            int i = (int) (key >>> 32);
+            int j = (int) key;
+            double score = count / Math.sqrt((double) routeUsers[i] * routeUsers[j]);
+            candidates.get(i).add(new Scored(routeIds[j], score));
+            candidates.get(j).add(new Scored(routeIds[i], score));
+        });
+
+        Map<Long, long[]> snapshot = new HashMap<>();
+        for (int i = 0; i < routeIds.length; i++) {
+            List<Scored> scored = candidates.get(i);
+            if (scored.isEmpty()) {
+                continue;
+            }
+            scored.sort(Comparator.comparingDouble(Scored::score).reversed());
+            snapshot.put(routeIds[i], scored.stream()
+                    .limit(MAX_RELATED)
+                    .mapToLong(Scored::routeId)
+                    .toArray());
+        }
+        related = snapshot;
+    }
+
+    public synchronized Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("routes", (long) routeIds.length);
+        stats.put("pairs", (long) pairs.size());
+        stats.put("builds", builds.sum());
+        stats.put("lastBuildRows", lastBuildRows);
+        stats.put("lastBuildMillis", lastBuildMillis);
+        stats.put("appliedChanges", appliedChanges.sum());
+        stats.put("pendingChanges", (long) pending.size());
+        return stats;
+    }
+
+    private static long pairKey(int a, int b) {
+        return a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+    }
+}
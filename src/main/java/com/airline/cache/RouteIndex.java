@@ -0,0 +1,179 @@
+package com.airline.cache;
+
+import com.airline.dao.RouteDAO;
+import com.airline.entity.Route;
+import com.airline.event.RouteChangedEvent;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * RouteIndex Chỉ mục route bất biến trong bộ nhớ (copy-on-write).
+ *
+ * - origin -> destination -> Route, cùng danh sách origin / destination đã
+ * sắp xếp, được nạp một lần khi khởi động.
+ * - Mỗi thay đổi route (sau commit) dựng một Snapshot mới từ snapshot cũ rồi
+ * thay thế bằng một lần ghi volatile: người đọc không bao giờ khoá và luôn
+ * thấy một snapshot nhất quán.
+ * - Route trong index là bản sao tách rời (không có danh sách flights).
+ */
+@Component
+public class RouteIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(RouteIndex.class);
+
+    private final RouteDAO routeDAO;
+
+    private volatile Snapshot snapshot = Snapshot.of(Collections.emptyList());
+    // false cho tới lần nạp toàn bộ đầu tiên thành công
+    private volatile boolean loaded;
+
+    @Autowired
+    public RouteIndex(RouteDAO routeDAO) {
+        this.routeDAO = routeDAO;
+    }
+
+    private static final class Snapshot {
+
+        private final Map<Long, Route> byId;
+        // So khớp không phân biệt hoa thường, giống collation của DB
+        private final Map<String, Map<String, Route>> byOrigin;
+        private final List<String> origins;
+        private final List<String> destinations;
+
+        private Snapshot(Map<Long, Route> byId) {
+            Map<String, Map<String, Route>> index = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            TreeSet<String> originSet = new TreeSet<>();
+            TreeSet<String> destinationSet = new TreeSet<>();
+            for (Route route : byId.values()) {
+                index.computeIfAbsent(route.getOrigin(), o -> new TreeMap<>(String.CASE_INSENSITIVE_ORDER))
+                        .put(route.getDestination(), route);
+                originSet.add(route.getOrigin());
+                destinationSet.add(route.getDestination());
+            }
+            index.replaceAll((origin, destinations) -> Collections.unmodifiableMap(destinations));
+
+            this.byId = byId;
+            this.byOrigin = Collections.unmodifiableMap(index);
+            this.origins = Collections.unmodifiableList(Arrays.asList(originSet.toArray(new String[0])));
+            this.destinations = Collections.unmodifiableList(Arrays.asList(destinationSet.toArray(new String[0])));
+        }
+
+        private static Snapshot of(Collection<Route> routes) {
+            Map<Long, Route> byId = new HashMap<>();
+            for (Route route : routes) {
+                byId.put(route.getId(), copyOf(route));
+            }
+            return new Snapshot(byId);
+        }
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            // DB chưa sẵn sàng: giữ index rỗng, retryLoad() thử lại định kỳ
+            log.warn("Could not load route index: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Lần nạp khi khởi động thất bại -> thử lại cho tới khi thành công, thay vì
+     * phục vụ index rỗng mãi
+     */
+    @Scheduled(fixedDelay = 30, initialDelay = 30, timeUnit = TimeUnit.SECONDS)
+    public void retryLoad() {
+        if (loaded) {
+            return;
+        }
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Could not load route index, retrying: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Nạp lại toàn bộ index từ DB. Cùng khoá với onRouteChanged: thay đổi
+     * commit trong lúc đang đọc sẽ được áp dụng sau, không bị ghi đè
+     */
+    public synchronized void reload() {
+        Snapshot fresh = Snapshot.of(routeDAO.findAll());
+        snapshot = fresh;
+        loaded = true;
+        log.info("Route index loaded: {} routes", fresh.byId.size());
+    }
+
+    public Optional<Route> find(String origin, String destination) {
+        if (origin == null || destination == null) {
+            return Optional.empty();
+        }
+        Map<String, Route> destinations = snapshot.byOrigin.get(origin);
+        return destinations == null ? Optional.empty() : Optional.ofNullable(destinations.get(destination));
+    }
+
+    /**
+     * Các route xuất phát từ origin (danh sách kề của đồ thị route)
+     */
+    public Collection<Route> getRoutesFrom(String origin) {
+        Map<String, Route> destinations = origin == null ? null : snapshot.byOrigin.get(origin);
+        return destinations == null ? Collections.emptyList() : destinations.values();
+    }
+
+    public Optional<Route> findById(Long id) {
+        return Optional.ofNullable(snapshot.byId.get(id));
+    }
+
+    public Collection<Route> getRoutes() {
+        return Collections.unmodifiableCollection(snapshot.byId.values());
+    }
+
+    public List<String> getOrigins() {
+        return snapshot.origins;
+    }
+
+    public List<String> getDestinations() {
+        return snapshot.destinations;
+    }
+
+    public int size() {
+        return snapshot.byId.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onRouteChanged(RouteChangedEvent event) {
+        Map<Long, Route> byId = new HashMap<>(snapshot.byId);
+        if (event.getRoute() == null) {
+            byId.remove(event.getRouteId());
+        } else {
+            byId.put(event.getRouteId(), copyOf(event.getRoute()));
+        }
+        snapshot = new Snapshot(byId);
+    }
+
+    private static Route copyOf(Route route) {
+        return Route.builder()
+                .id(route.getId())
+                .origin(route.getOrigin())
+                .destination(route.getDestination())
+                .distanceKm(route.getDistanceKm())
+                .createdAt(route.getCreatedAt())
+                .updatedAt(route.getUpdatedAt())
+                .build();
+    }
+}
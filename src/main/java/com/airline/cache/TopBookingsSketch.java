@@ -0,0 +1,194 @@
+package com.airline.cache;
+
+import com.airline.dao.BookingDAO;
+import com.airline.dao.FlightDAO;
+import com.airline.dao.UserDAO;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.util.SpaceSaving;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * TopBookingsSketch Top user / chuyến bay theo số booking cho dashboard, phục
+ * vụ từ hai sketch SpaceSaving trong bộ nhớ thay vì GROUP BY toàn bảng
+ * Bookings mỗi lần tải trang.
+ *
+ * - Mỗi booking CREATED (sau commit) cộng 1 cho userId và flightId.
+ * - Sai số tuyệt đối &lt;= EPSILON * N (N = tổng số booking).
+ * - Định kỳ chạy query chính xác để kiểm chứng (recall của top-N, sai số lớn
+ * nhất) rồi dựng lại sketch từ kết quả chính xác. Các booking đến trong lúc
+ * query được ghi lại và cộng lại ngay khi dựng, trong cùng khoá (nếu trùng
+ * với dòng DB đã đếm thì chỉ làm số ước lượng lớn hơn, đúng chiều sai số của
+ * SpaceSaving).
+ */
+@Component
+public class TopBookingsSketch implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(TopBookingsSketch.class);
+
+    // Sai số tương đối tối đa so với tổng số booking -> 2000 bộ đếm / sketch
+    public static final double EPSILON = 0.0005;
+    // Số dòng top dùng để so sánh khi kiểm chứng
+    private static final int VERIFY_TOP_N = 10;
+
+    private final UserDAO userDAO;
+    private final FlightDAO flightDAO;
+    private final BookingDAO bookingDAO;
+
+    private final SpaceSaving<Long> users = SpaceSaving.withErrorBound(EPSILON);
+    private final SpaceSaving<Long> flights = SpaceSaving.withErrorBound(EPSILON);
+
+    // Khác null trong lúc đang dựng lại: [userId, flightId] của booking mới
+    private List<long[]> replay;
+
+    private final AtomicLong verifications = new AtomicLong();
+    private volatile double lastUserRecall = 1;
+    private volatile double lastFlightRecall = 1;
+    private volatile long lastUserMaxError;
+    private volatile long lastFlightMaxError;
+
+    @Autowired
+    public TopBookingsSketch(UserDAO userDAO, FlightDAO flightDAO, BookingDAO bookingDAO) {
+        this.userDAO = userDAO;
+        this.flightDAO = flightDAO;
+        this.bookingDAO = bookingDAO;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            verifyAndRebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not seed top bookings sketch: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * n user nhiều booking nhất (ước lượng), giảm dần, không truy vấn DB
+     */
+    public List<SpaceSaving.Entry<Long>> topUsers(int n) {
+        return users.top(n);
+    }
+
+    public List<SpaceSaving.Entry<Long>> topFlights(int n) {
+        return flights.top(n);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBookingLifecycle(BookingLifecycleEvent event) {
+        if (event.getType() != BookingLifecycleEvent.Type.CREATED) {
+            return;
+        }
+        // Ghi replay và offer trong cùng một khối với reset + replay của
+        // verifyAndRebuild: booking hoặc rơi vào sketch cũ (bị reset xoá rồi
+        // được replay), hoặc vào sketch mới, không bao giờ cả hai
+        synchronized (this) {
+            if (replay != null) {
+                replay.add(new long[]{event.getUserId(), event.getFlightId()});
+            }
+            users.offer(event.getUserId());
+            flights.offer(event.getFlightId());
+        }
+    }
+
+    /**
+     * So sánh sketch với query chính xác rồi dựng lại sketch từ kết quả đó
+     */
+    @Scheduled(fixedDelay = 30, initialDelay = 30, timeUnit = TimeUnit.MINUTES)
+    public void verifyAndRebuild() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        List<long[]> arrived;
+        try {
+            long total = bookingDAO.count();
+            Map<Long, Long> exactUsers = toCounts(userDAO.findTopUsersByBookingCount(users.capacity()));
+            Map<Long, Long> exactFlights = toCounts(flightDAO.findTopFlightsByBookingCount(flights.capacity()));
+
+            lastUserRecall = recall(users.top(VERIFY_TOP_N), exactUsers);
+            lastFlightRecall = recall(flights.top(VERIFY_TOP_N), exactFlights);
+            lastUserMaxError = maxError(users.top(VERIFY_TOP_N), exactUsers);
+            lastFlightMaxError = maxError(flights.top(VERIFY_TOP_N), exactFlights);
+            verifications.incrementAndGet();
+
+            synchronized (this) {
+                users.reset(exactUsers, total);
+                flights.reset(exactFlights, total);
+                arrived = replay;
+                for (long[] booking : arrived) {
+                    users.offer(booking[0]);
+                    flights.offer(booking[1]);
+                }
+                replay = null;
+            }
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            throw e;
+        }
+        log.debug("Top bookings sketch verified: user recall {}, flight recall {}, replayed {}",
+                lastUserRecall, lastFlightRecall, arrived.size());
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("epsilon", EPSILON);
+        stats.put("trackedUsers", users.size());
+        stats.put("trackedFlights", flights.size());
+        stats.put("userErrorBound", users.maxError());
+        stats.put("flightErrorBound", flights.maxError());
+        stats.put("verifications", verifications.get());
+        stats.put("lastUserRecall", lastUserRecall);
+        stats.put("lastFlightRecall", lastFlightRecall);
+        stats.put("lastUserMaxError", lastUserMaxError);
+        stats.put("lastFlightMaxError", lastFlightMaxError);
+        return stats;
+    }
+
+    private static Map<Long, Long> toCounts(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    /**
+     * Tỉ lệ khoá trong top-N của sketch cũng nằm trong top-N chính xác
+     */
+    private static double recall(List<SpaceSaving.Entry<Long>> estimated, Map<Long, Long> exact) {
+        if (estimated.isEmpty()) {
+            return exact.isEmpty() ? 1 : 0;
+        }
+        List<Long> exactTop = exact.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(VERIFY_TOP_N)
+                .map(Map.Entry::getKey)
+                .toList();
+        long hits = estimated.stream().map(SpaceSaving.Entry::key).filter(exactTop::contains).count();
+        return (double) hits / Math.max(estimated.size(), exactTop.size());
+    }
+
+    private static long maxError(List<SpaceSaving.Entry<Long>> estimated, Map<Long, Long> exact) {
+        long max = 0;
+        for (SpaceSaving.Entry<Long> entry : estimated) {
+            long actual = Objects.requireNonNullElse(exact.get(entry.key()), 0L);
+            max = Math.max(max, Math.abs(entry.count() - actual));
+        }
+        return max;
+    }
+}
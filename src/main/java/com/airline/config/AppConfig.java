@@ -1,7 +1,12 @@
 package com.airline.config;
 
+import com.airline.util.SnowflakeIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
@@ -9,8 +14,11 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * Application Configuration Defines common beans used across the application
  */
 @Configuration
+@EnableScheduling
 public class AppConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(AppConfig.class);
+
     /**
      * BCrypt Password Encoder for secure password hashing Strength: 10 rounds
      * (default)
@@ -20,4 +28,48 @@ public class AppConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Scheduler cho các job nền (@Scheduled), tách pool để một job chậm không
+     * chặn các job khác
+     */
+    @Bean
+    public ThreadPoolTaskScheduler taskScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(4);
+        scheduler.setThreadNamePrefix("airline-scheduler-");
+        return scheduler;
+    }
+
+    /**
+     * Sinh vnp_TxnRef / mã đặt chỗ. Chạy một instance (mặc định) thì dùng
+     * nodeId 0. Chạy nhiều instance (-Dairline.instances hoặc
+     * AIRLINE_INSTANCES &gt; 1) thì mỗi instance phải có nodeId riêng
+     * (-Dairline.nodeId hoặc AIRLINE_NODE_ID, 0..1023), thiếu thì không khởi
+     * động: hai instance trùng nodeId có thể cấp trùng mã giao dịch.
+     */
+    @Bean
+    public SnowflakeIdGenerator idGenerator() {
+        String configured = VNPayConfig.setting("airline.nodeId", null);
+        if (configured != null) {
+            try {
+                return new SnowflakeIdGenerator(Integer.parseInt(configured.trim()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalStateException("Invalid airline.nodeId '" + configured
+                        + "', expected 0.." + SnowflakeIdGenerator.MAX_NODE_ID, e);
+            }
+        }
+        String instances = VNPayConfig.setting("airline.instances", "1");
+        int count;
+        try {
+            count = Integer.parseInt(instances.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalStateException("Invalid airline.instances '" + instances + "'", e);
+        }
+        if (count > 1) {
+            throw new IllegalStateException("airline.instances=" + count + ": airline.nodeId (AIRLINE_NODE_ID) "
+                    + "must be set to a value unique per instance in 0.." + SnowflakeIdGenerator.MAX_NODE_ID);
+        }
+        log.info("airline.nodeId not set, single instance: using node id 0");
+        return new SnowflakeIdGenerator(0);
+    }
 }
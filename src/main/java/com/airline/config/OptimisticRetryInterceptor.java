@@ -0,0 +1,103 @@
+package com.airline.config;
+
+import jakarta.persistence.OptimisticLockException;
+import java.lang.reflect.Method;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.hibernate.StaleStateException;
+import org.springframework.aop.ProxyMethodInvocation;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * OptimisticRetryInterceptor Chạy lại các phương thức @RetryOnConflict khi
+ * transaction bị huỷ do xung đột @Version. Interceptor nằm NGOÀI transaction
+ * advice nên mỗi lần thử là một transaction mới.
+ */
+public class OptimisticRetryInterceptor implements MethodInterceptor {
+
+    private final LongAdder conflicts = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final LongAdder recovered = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        // Đang ở trong transaction của lời gọi bên ngoài: không thể thử lại ở đây
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                || !(invocation instanceof ProxyMethodInvocation)) {
+            return invocation.proceed();
+        }
+
+        RetryOnConflict config = findConfig(invocation);
+        int maxAttempts = Math.max(1, config.maxAttempts());
+
+        for (int attempt = 1;; attempt++) {
+            try {
+                Object result = ((ProxyMethodInvocation) invocation).invocableClone().proceed();
+                if (attempt > 1) {
+                    recovered.increment();
+                }
+                return result;
+            } catch (Throwable ex) {
+                if (!isConflict(ex)) {
+                    throw ex;
+                }
+                conflicts.increment();
+                if (attempt >= maxAttempts) {
+                    exhausted.increment();
+                    throw ex;
+                }
+                retries.increment();
+                backoff(config.backoffMillis(), attempt);
+            }
+        }
+    }
+
+    public Map<String, Long> getMetrics() {
+        Map<String, Long> metrics = new LinkedHashMap<>();
+        metrics.put("conflicts", conflicts.sum());
+        metrics.put("retries", retries.sum());
+        metrics.put("recovered", recovered.sum());
+        metrics.put("exhausted", exhausted.sum());
+        return metrics;
+    }
+
+    private RetryOnConflict findConfig(MethodInvocation invocation) {
+        Method method = invocation.getMethod();
+        Object target = invocation.getThis();
+        if (target != null) {
+            method = AopUtils.getMostSpecificMethod(method, target.getClass());
+        }
+        return AnnotatedElementUtils.findMergedAnnotation(method, RetryOnConflict.class);
+    }
+
+    private static boolean isConflict(Throwable ex) {
+        for (Throwable t = ex; t != null; t = t.getCause()) {
+            if (t instanceof OptimisticLockingFailureException
+                    || t instanceof OptimisticLockException
+                    || t instanceof StaleStateException) {
+                return true;
+            }
+            if (t.getCause() == t) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    // Exponential backoff với "full jitter" để các request xung đột không thử lại cùng lúc
+    private static void backoff(long baseMillis, int attempt) throws InterruptedException {
+        long ceiling = baseMillis << Math.min(attempt - 1, 10);
+        long sleep = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        if (sleep > 0) {
+            Thread.sleep(sleep);
+        }
+    }
+}
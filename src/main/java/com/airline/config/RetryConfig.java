@@ -0,0 +1,39 @@
+package com.airline.config;
+
+import org.springframework.aop.Advisor;
+import org.springframework.aop.support.DefaultPointcutAdvisor;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Role;
+import org.springframework.core.Ordered;
+
+/**
+ * Retry Configuration Đăng ký advisor cho @RetryOnConflict. Advisor có role
+ * INFRASTRUCTURE để auto-proxy creator của tx:annotation-driven áp dụng nó cùng
+ * với transaction advice.
+ */
+@Configuration
+public class RetryConfig {
+
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public OptimisticRetryInterceptor optimisticRetryInterceptor() {
+        return new OptimisticRetryInterceptor();
+    }
+
+    /**
+     * Order nhỏ hơn transaction advisor (LOWEST_PRECEDENCE) => retry bọc bên
+     * ngoài transaction
+     */
+    @Bean
+    @Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+    public Advisor optimisticRetryAdvisor(OptimisticRetryInterceptor optimisticRetryInterceptor) {
+        DefaultPointcutAdvisor advisor = new DefaultPointcutAdvisor(
+                AnnotationMatchingPointcut.forMethodAnnotation(RetryOnConflict.class),
+                optimisticRetryInterceptor);
+        advisor.setOrder(Ordered.LOWEST_PRECEDENCE - 1);
+        return advisor;
+    }
+}
@@ -0,0 +1,28 @@
+package com.airline.config;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Đánh dấu một phương thức @Transactional được phép chạy lại khi gặp xung đột
+ * optimistic locking (@Version). Phương thức phải tự đọc lại dữ liệu bên trong
+ * transaction để lần chạy lại có ý nghĩa.
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetryOnConflict {
+
+    /**
+     * Tổng số lần thử (kể cả lần đầu)
+     */
+    int maxAttempts() default 3;
+
+    /**
+     * Thời gian chờ cơ sở (ms), nhân đôi sau mỗi lần thử và cộng jitter
+     */
+    long backoffMillis() default 20;
+}
@@ -3,19 +3,27 @@ package com.airline.config;
 public class VNPayConfig {
 
     //on ngrok command: ngrok http 9999
-    public static String vnp_TmnCode = "800L34J2";
-    public static String vnp_HashSecret = "LIH4VEKXUWE99G9XZBP0BOYIF7X1U1M4";
-    public static String vnp_Url = "https://sandbox.vnpayment.vn/paymentv2/vpcpay.html";
+    // Mỗi giá trị có thể ghi đè bằng system property (-Dvnpay.url=...) hoặc
+    // biến môi trường (VNPAY_URL), vd. để trỏ vnp_Url sang gateway giả lập
+    // (/api/dev/vnpay/pay) khi chạy load test offline
+    public static String vnp_TmnCode = setting("vnpay.tmnCode", "800L34J2");
+    public static String vnp_HashSecret = setting("vnpay.hashSecret", "LIH4VEKXUWE99G9XZBP0BOYIF7X1U1M4");
+    public static String vnp_Url = setting("vnpay.url", "https://sandbox.vnpayment.vn/paymentv2/vpcpay.html");
 //    public static String vnp_ReturnUrl = "http://localhost:9999/Payment/return";
-    public static String vnp_ReturnUrl = "https://pseudorheumatic-leslie-noncaustic.ngrok-free.dev/airline/payment/result";
+    public static String vnp_ReturnUrl = setting("vnpay.returnUrl",
+            "https://pseudorheumatic-leslie-noncaustic.ngrok-free.dev/airline/payment/result");
+    // IPN URL khai báo trên cổng merchant của VNPAY; gateway giả lập gọi vào đây
+    public static String vnp_IpnUrl = setting("vnpay.ipnUrl",
+            vnp_ReturnUrl.replace("/payment/result", "/api/payment/ipn"));
 
-    public static String getRandomNumber(int len) {
-        String chars = "0123456789";
-        StringBuilder sb = new StringBuilder(len);
-        for (int i = 0; i < len; i++) {
-            int index = (int) (Math.random() * chars.length());
-            sb.append(chars.charAt(index));
+    /**
+     * System property, rồi biến môi trường (vnpay.url -> VNPAY_URL), rồi mặc định
+     */
+    public static String setting(String name, String defaultValue) {
+        String value = System.getProperty(name);
+        if (value == null || value.isEmpty()) {
+            value = System.getenv(name.replace('.', '_').toUpperCase());
         }
-        return sb.toString();
+        return value == null || value.isEmpty() ? defaultValue : value;
     }
 }
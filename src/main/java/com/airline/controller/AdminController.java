@@ -1,18 +1,25 @@
 package com.airline.controller;
 
+import com.airline.cache.DashboardCounters;
 import com.airline.dao.AircraftDAO;
+import com.airline.dto.AdminBookingView;
+import com.airline.dto.AdminUserView;
 import com.airline.dto.DashboardStats;
+import com.airline.dto.FlightView;
+import com.airline.dto.KeysetPage;
 import com.airline.entity.Aircraft;
 import com.airline.entity.Booking;
-import com.airline.entity.Flight;
 import com.airline.entity.Route;
 import com.airline.entity.User;
 import com.airline.service.*;
+import com.airline.util.KeysetCursor;
 import jakarta.servlet.http.HttpSession;
-import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -24,12 +31,6 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
-    @Autowired
-    private FlightService flightService;
-
-    @Autowired
-    private BookingService bookingService;
-
     @Autowired
     private RouteService routeService;
 
@@ -39,6 +40,9 @@ public class AdminController {
     @Autowired
     private AdminService adminService;
 
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
     // Check admin role
     private boolean isAdmin(HttpSession session) {
         User user = (User) session.getAttribute("user");
@@ -62,65 +66,114 @@ public class AdminController {
             return "redirect:/login";
         }
 
-        Map<String, Object> allStats = adminService.getDashboardStatistics();
-
-        DashboardStats stats = DashboardStats.builder()
-                .totalUsers((Long) allStats.get("totalUsers"))
-                .totalFlights((Long) allStats.get("totalFlights"))
-                .totalBookings((Long) allStats.get("totalBookings"))
-                .pendingBookings((Long) allStats.get("pendingBookings"))
-                .confirmedBookings((Long) allStats.get("confirmedBookings"))
-                .cancelledBookings((Long) allStats.get("cancelledBookings"))
-                .totalRevenue((BigDecimal) allStats.get("totalRevenue"))
-                .build();
+        // Số liệu đọc từ bộ đếm trong bộ nhớ (O(1), không query DB)
+        DashboardStats stats = dashboardCounters.snapshot();
+        Map<String, Object> topLists = adminService.getDashboardTopLists();
 
         model.addAttribute("stats", stats);
-        model.addAttribute("topUsers", allStats.get("topUsers"));
-        model.addAttribute("topFlights", allStats.get("topFlights"));
+        model.addAttribute("topUsers", topLists.get("topUsers"));
+        model.addAttribute("topFlights", topLists.get("topFlights"));
 
         return "admin/dashboard";
     }
 
-    // Manage Flights
+    // Manage Flights (phân trang keyset, lọc theo route / ngày khởi hành / số hiệu)
     @GetMapping("/flights")
-    public String manageFlights(HttpSession session, Model model) {
+    public String manageFlights(HttpSession session, Model model,
+            @RequestParam(name = "routeId", required = false) Long routeId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "flightNumber", required = false) String flightNumber,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + AdminService.DEFAULT_PAGE_SIZE) int size) {
         if (!isAdmin(session)) {
             return "redirect:/login";
         }
 
-        List<Flight> flights = flightService.findAll();
+        KeysetPage<FlightView> flights = withCursor(cursor, c -> adminService.listFlights(routeId, from, to,
+                flightNumber, isDescending(sort), c, size));
         List<Route> routes = routeService.findAll();
         List<Aircraft> aircrafts = aircraftDAO.findAll();
 
-        model.addAttribute("flights", flights);
+        model.addAttribute("flights", flights.items());
+        model.addAttribute("page", flights);
         model.addAttribute("routes", routes);
         model.addAttribute("aircrafts", aircrafts);
+        model.addAttribute("routeId", routeId);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("flightNumber", flightNumber);
+        model.addAttribute("sort", sort);
 
         return "admin/flights";
     }
 
-    // Manage Users
+    // Manage Users (phân trang keyset, lọc theo username/email và role)
     @GetMapping("/users")
-    public String manageUsers(HttpSession session, Model model) {
+    public String manageUsers(HttpSession session, Model model,
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "role", required = false) User.UserRole role,
+            @RequestParam(name = "sort", defaultValue = "desc") String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + AdminService.DEFAULT_PAGE_SIZE) int size) {
         if (!isAdmin(session)) {
             return "redirect:/login";
         }
 
-        List<User> users = userService.findAllUsers();
-        model.addAttribute("users", users);
+        KeysetPage<AdminUserView> users = withCursor(cursor,
+                c -> adminService.listUsers(query, role, isDescending(sort), c, size));
+        model.addAttribute("users", users.items());
+        model.addAttribute("page", users);
+        model.addAttribute("q", query);
+        model.addAttribute("role", role);
+        model.addAttribute("sort", sort);
         return "admin/users";
     }
 
-    // Manage Bookings
+    // Manage Bookings (phân trang keyset, lọc theo status / user / flight / ngày đặt)
     @GetMapping("/bookings")
-    public String manageBookings(HttpSession session, Model model) {
+    public String manageBookings(HttpSession session, Model model,
+            @RequestParam(name = "status", required = false) Booking.BookingStatus status,
+            @RequestParam(name = "userId", required = false) Long userId,
+            @RequestParam(name = "flightId", required = false) Long flightId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "sort", defaultValue = "desc") String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + AdminService.DEFAULT_PAGE_SIZE) int size) {
         if (!isAdmin(session)) {
             return "redirect:/login";
         }
 
-        List<Booking> bookings = bookingService.findAll();
-        model.addAttribute("bookings", bookings);
+        KeysetPage<AdminBookingView> bookings = withCursor(cursor, c -> adminService.listBookings(status, userId,
+                flightId, from, to, isDescending(sort), c, size));
+        model.addAttribute("bookings", bookings.items());
+        model.addAttribute("page", bookings);
+        model.addAttribute("status", status);
+        model.addAttribute("userId", userId);
+        model.addAttribute("flightId", flightId);
+        model.addAttribute("from", from);
+        model.addAttribute("to", to);
+        model.addAttribute("sort", sort);
         return "admin/bookings";
     }
 
+    private static boolean isDescending(String sort) {
+        return "desc".equalsIgnoreCase(sort);
+    }
+
+    /**
+     * Cursor hỏng (sửa tay, link cũ) -> hiển thị trang đầu thay vì lỗi 500.
+     * Chỉ kiểm tra cursor; lỗi khác của query vẫn được ném ra.
+     */
+    private static <T> KeysetPage<T> withCursor(String cursor, Function<String, KeysetPage<T>> list) {
+        try {
+            KeysetCursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return list.apply(null);
+        }
+        return list.apply(cursor);
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.airline.controller;
 
+import com.airline.dto.FlightView;
 import com.airline.service.FlightService;
 import com.airline.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,9 +52,12 @@ public class FlightController {
 
         // Nếu có đủ thông tin tìm kiếm
         if (origin != null && destination != null && date != null) {
-            Map<String, Object> result = flightService.searchFlightsWithPaging(origin, destination, date, 0, 10);
+            Map<String, Object> result = flightService.searchFlightViewsWithPaging(origin, destination, date, 0, 10);
 
-            model.addAttribute("flights", result.get("flights"));
+            // Kết quả cache là FlightView dùng chung -> mỗi request một bản DTO riêng
+            @SuppressWarnings("unchecked")
+            List<FlightView> flights = (List<FlightView>) result.get("flights");
+            model.addAttribute("flights", flights.stream().map(FlightView::toResponse).toList());
             model.addAttribute("currentPage", result.get("currentPage"));
             model.addAttribute("totalPages", result.get("totalPages"));
             model.addAttribute("totalFlights", result.get("totalFlights"));
@@ -2,19 +2,18 @@ package com.airline.controller;
 
 import com.airline.config.VNPayConfig; // <-- Import
 import com.airline.entity.Booking;
-// import com.airline.entity.Payment; // <-- Xóa import không dùng
+import com.airline.entity.Payment;
 import com.airline.service.BookingService;
+import com.airline.service.PaymentConfirmationPipeline;
 import com.airline.service.PaymentService;
-import com.airline.util.VNPayUtils; // <-- Import
+import com.airline.util.VNPaySigner; // <-- Import
+import com.airline.util.VNPayUtils;
 import jakarta.servlet.http.HttpServletRequest; // <-- Import
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.UnsupportedEncodingException; // <-- Import
-import java.util.Enumeration; // <-- Import
-import java.util.HashMap; // <-- Import
 import java.util.Map; // <-- Import
 import java.util.Optional;
 
@@ -23,10 +22,13 @@ import java.util.Optional;
 public class PaymentController {
 
     @Autowired
-    private PaymentService paymentService;
+    private BookingService bookingService;
 
     @Autowired
-    private BookingService bookingService;
+    private PaymentConfirmationPipeline paymentConfirmationPipeline;
+
+    @Autowired
+    private PaymentService paymentService;
 
     // Payment result callback from VNPAY
     @GetMapping("/result")
@@ -36,31 +38,10 @@ public class PaymentController {
             Model model) {
 
         // --- BẮT ĐẦU LOGIC XÁC THỰC HASH TỪ PaymentReturnServlet ---
-        Map<String, String> fields = new HashMap<>();
-        for (Enumeration<String> params = request.getParameterNames(); params.hasMoreElements();) {
-            String fieldName = params.nextElement();
-            String fieldValue = request.getParameter(fieldName);
-            if ((fieldValue != null) && (fieldValue.length() > 0)) {
-                fields.put(fieldName, fieldValue);
-            }
-        }
-
-        String vnp_SecureHash = request.getParameter("vnp_SecureHash");
-
-        // Loại bỏ bookingId khỏi map hash (nếu nó tồn tại)
-        // (bookingId là param nội bộ, không phải của VNPAY)
-        fields.remove("bookingId");
-
-        fields.remove("vnp_SecureHashType");
-        fields.remove("vnp_SecureHash");
-
-        String signValue;
-        try {
-            signValue = VNPayUtils.hashAllFields(fields, VNPayConfig.vnp_HashSecret);
-        } catch (UnsupportedEncodingException e) {
-            model.addAttribute("message", "Lỗi xác thực chữ ký: " + e.getMessage());
-            return "payment/failed";
-        }
+        // Chỉ các tham số vnp_* được ký (bookingId là param nội bộ)
+        Map<String, String> fields = VNPayUtils.callbackFields(request.getParameterMap());
+        boolean validSignature = VNPaySigner.forSecret(VNPayConfig.vnp_HashSecret)
+                .verify(fields, request.getParameter("vnp_SecureHash"));
 
         // --- KẾT THÚC LOGIC XÁC THỰC HASH ---
         // Lấy thông tin booking
@@ -72,7 +53,7 @@ public class PaymentController {
         model.addAttribute("booking", booking);
 
         // Bắt đầu kiểm tra kết quả
-        if (signValue.equals(vnp_SecureHash)) {
+        if (validSignature) {
             String vnp_ResponseCode = request.getParameter("vnp_ResponseCode");
             String vnp_TxnRef = request.getParameter("vnp_TxnRef"); // Lấy mã giao dịch
 
@@ -82,14 +63,38 @@ public class PaymentController {
                 // Cập nhật trạng thái booking (và có thể cả payment nếu cần)
 //                bookingService.confirmBooking(bookingId);
 
-                // (Tùy chọn: tìm payment bằng vnp_TxnRef và cập nhật)
-                paymentService.findByTransactionId(vnp_TxnRef).ifPresent(payment -> {
-                    paymentService.processPayment(payment.getId(), vnp_TxnRef);
-                });
-
-                model.addAttribute("success", true);
-                model.addAttribute("message", "Thanh toán thành công!");
-                return "payment/success";
+                long amount;
+                try {
+                    amount = Long.parseLong(request.getParameter("vnp_Amount"));
+                } catch (NumberFormatException e) {
+                    model.addAttribute("success", false);
+                    model.addAttribute("message", "Giao dịch không hợp lệ: thiếu hoặc sai số tiền.");
+                    return "payment/failed";
+                }
+
+                // Ghi nhận rồi xác nhận ở nền, dùng chung khoá idempotency với
+                // IPN (IPN có thể đã xử lý trước khi trình duyệt quay về).
+                // Trang return không bị từ chối khi hàng đợi đầy
+                PaymentService.CallbackResult result
+                        = paymentConfirmationPipeline.submitReturn(vnp_TxnRef, vnp_ResponseCode, amount);
+                switch (result) {
+                    case ACCEPTED, ALREADY_CONFIRMED -> {
+                        return paymentOutcome(vnp_TxnRef, model);
+                    }
+                    case UNKNOWN_ERROR -> {
+                        // Chưa ghi nhận được (DB lỗi): IPN của VNPAY sẽ gửi lại
+                        model.addAttribute("success", false);
+                        model.addAttribute("message", "Chúng tôi đã nhận kết quả thanh toán nhưng chưa ghi nhận "
+                                + "được. Đặt chỗ sẽ được xác nhận khi VNPAY gửi thông báo, vui lòng kiểm tra "
+                                + "lại sau ít phút.");
+                        return "payment/processing";
+                    }
+                    default -> {
+                        model.addAttribute("success", false);
+                        model.addAttribute("message", "Giao dịch không hợp lệ: " + result.getMessage());
+                        return "payment/failed";
+                    }
+                }
             } else {
                 // Payment failed
                 model.addAttribute("success", false);
@@ -102,7 +107,31 @@ public class PaymentController {
             model.addAttribute("message", "Giao dịch không hợp lệ: Sai chữ ký xác thực.");
             return "payment/failed";
         }
-    }// Thêm phương thức này vào PaymentController
+    }
+
+    /**
+     * Trang kết quả theo trạng thái hiện tại của Payment: đã xác nhận, chờ
+     * hoàn tiền (giữ chỗ hết hạn trước khi tiền về) hoặc đang xác nhận ở nền
+     */
+    private String paymentOutcome(String txnRef, Model model) {
+        Optional<Payment> payment = paymentService.findByTransactionId(txnRef);
+        if (payment.isPresent() && payment.get().isSuccess()) {
+            model.addAttribute("success", true);
+            model.addAttribute("message", "Thanh toán thành công!");
+            return "payment/success";
+        }
+        if (payment.isPresent() && payment.get().isRefundRequired()) {
+            model.addAttribute("success", false);
+            model.addAttribute("message", "Giữ chỗ đã hết hạn trước khi thanh toán hoàn tất. "
+                    + "Khoản thanh toán sẽ được hoàn lại.");
+            return "payment/failed";
+        }
+        model.addAttribute("success", false);
+        model.addAttribute("message", "Thanh toán đã được ghi nhận, đặt chỗ đang được xác nhận.");
+        return "payment/processing";
+    }
+
+    // Thêm phương thức này vào PaymentController
 
     @GetMapping("/result/simulate")
     public String paymentResultSimulate(
@@ -1,5 +1,6 @@
 package com.airline.controller;
 
+import com.airline.dto.FlightView;
 import com.airline.entity.Booking;
 import com.airline.entity.User;
 import com.airline.service.BookingService;
@@ -57,9 +58,9 @@ public class UserController {
             return "redirect:/login?redirect=/user/recommendations";
         }
 
-        var recommended = recommendationService.getRecommendedFlights(user.getId(), 5);
+        var recommended = recommendationService.getRecommendedFlightViews(user.getId(), 5);
         
-        model.addAttribute("flights", recommended);
+        model.addAttribute("flights", recommended.stream().map(FlightView::toResponse).toList());
         model.addAttribute("user", user);
 
         return "user/recommendations";
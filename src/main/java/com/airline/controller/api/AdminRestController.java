@@ -1,5 +1,14 @@
 package com.airline.controller.api;
 
+import com.airline.cache.DashboardCounters;
+import com.airline.cache.FareCalendarCache;
+import com.airline.cache.FlightSearchCache;
+import com.airline.cache.PopularFlightsCache;
+import com.airline.cache.RecentPaymentCallbacks;
+import com.airline.cache.RecommendationStore;
+import com.airline.cache.RouteCooccurrenceIndex;
+import com.airline.cache.TopBookingsSketch;
+import com.airline.config.OptimisticRetryInterceptor;
 import com.airline.dao.AircraftDAO;
 import com.airline.dto.*;
 import com.airline.entity.Aircraft;
@@ -9,10 +18,24 @@ import com.airline.entity.Route;
 import com.airline.entity.User;
 import com.airline.entity.User.UserRole;
 import com.airline.service.*;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +47,8 @@ public class AdminRestController {
     // === QUY TẮC: MASTER ADMIN ID (KHÔNG THỂ THAO TÁC) ===
     private static final Long MASTER_ADMIN_ID = 1L;
 
+    private static final int EXPORT_BUFFER_SIZE = 64 * 1024;
+
     @Autowired
     private UserService userService;
 
@@ -39,25 +64,288 @@ public class AdminRestController {
     @Autowired
     private AircraftDAO aircraftDAO;
 
+    @Autowired
+    private OptimisticRetryInterceptor optimisticRetryInterceptor;
+
+    @Autowired
+    private FlightSearchCache flightSearchCache;
+
+    @Autowired
+    private FareCalendarCache fareCalendarCache;
+
+    @Autowired
+    private DashboardCounters dashboardCounters;
+
+    @Autowired
+    private TopBookingsSketch topBookingsSketch;
+
+    @Autowired
+    private RecommendationStore recommendationStore;
+
+    @Autowired
+    private RouteCooccurrenceIndex routeCooccurrenceIndex;
+
+    @Autowired
+    private PopularFlightsCache popularFlightsCache;
+
+    @Autowired
+    private RecentPaymentCallbacks recentPaymentCallbacks;
+
+    @Autowired
+    private PaymentConfirmationPipeline paymentConfirmationPipeline;
+
+    @Autowired
+    private RollupService rollupService;
+
+    @Autowired
+    private AdminService adminService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private PaymentService paymentService;
+
     // Check admin authorization
     private boolean isAdmin(HttpSession session) {
         User user = (User) session.getAttribute("user");
         return user != null && user.isAdmin();
     }
 
-    // Get all flights (admin)
+    // List flights (admin): keyset cursor, lọc route / ngày khởi hành / số hiệu
     @GetMapping("/flights")
-    public ResponseEntity<ApiResponse<List<FlightResponse>>> getAllFlights(HttpSession session) {
+    public ResponseEntity<ApiResponse<KeysetPage<FlightResponse>>> getAllFlights(
+            @RequestParam(name = "routeId", required = false) Long routeId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "flightNumber", required = false) String flightNumber,
+            @RequestParam(name = "sort", defaultValue = "asc") String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + AdminService.DEFAULT_PAGE_SIZE) int size,
+            HttpSession session) {
         if (!isAdmin(session)) {
             return ResponseEntity.status(HttpStatus.FORBIDDEN)
                     .body(ApiResponse.error("Admin access required"));
         }
+        if (size < 1 || size > AdminService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Size must be between 1 and " + AdminService.MAX_PAGE_SIZE));
+        }
 
-        List<FlightResponse> flights = flightService.findAll().stream()
-                .map(this::convertToFlightResponse)
-                .collect(Collectors.toList());
+        try {
+            KeysetPage<FlightResponse> flights = adminService.listFlights(routeId, from, to, flightNumber,
+                    "desc".equalsIgnoreCase(sort), cursor, size).map(FlightView::toResponse);
+            return ResponseEntity.ok(ApiResponse.success(flights));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
 
-        return ResponseEntity.ok(ApiResponse.success(flights));
+    // Xuất CSV booking / hành khách (stream trực tiếp, tuỳ chọn gzip)
+    @GetMapping("/export/{dataset}")
+    public void exportCsv(
+            @PathVariable(name = "dataset") String dataset,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "gzip", defaultValue = "false") boolean gzip,
+            HttpSession session,
+            HttpServletResponse response) throws IOException {
+        if (!isAdmin(session)) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Admin access required");
+            return;
+        }
+
+        ExportService.Dataset type;
+        try {
+            type = ExportService.Dataset.valueOf(dataset.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Dataset must be bookings or passengers");
+            return;
+        }
+
+        String filename = dataset.toLowerCase() + (gzip ? ".csv.gz" : ".csv");
+        response.setContentType(gzip ? "application/gzip" : "text/csv;charset=UTF-8");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + filename + "\"");
+
+        OutputStream body = response.getOutputStream();
+        if (gzip) {
+            body = new GZIPOutputStream(body, EXPORT_BUFFER_SIZE);
+        }
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8), EXPORT_BUFFER_SIZE)) {
+            out.write('\uFEFF'); // BOM để Excel đọc đúng tiếng Việt
+            exportService.exportCsv(type, from, to, out);
+        }
+    }
+
+    // Get one flight (admin edit form)
+    @GetMapping("/flights/{id}")
+    public ResponseEntity<ApiResponse<FlightResponse>> getFlight(
+            @PathVariable(name = "id") Long id,
+            HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+
+        return flightService.findById(id)
+                .map(flight -> ResponseEntity.ok(ApiResponse.success(convertToFlightResponse(flight))))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(ApiResponse.error("Flight not found")));
+    }
+
+    // List users (admin): keyset cursor, lọc tiền tố username/email, role
+    @GetMapping("/users")
+    public ResponseEntity<ApiResponse<KeysetPage<AdminUserView>>> getUsers(
+            @RequestParam(name = "q", required = false) String query,
+            @RequestParam(name = "role", required = false) UserRole role,
+            @RequestParam(name = "sort", defaultValue = "desc") String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + AdminService.DEFAULT_PAGE_SIZE) int size,
+            HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+        if (size < 1 || size > AdminService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Size must be between 1 and " + AdminService.MAX_PAGE_SIZE));
+        }
+
+        try {
+            return ResponseEntity.ok(ApiResponse.success(adminService.listUsers(
+                    query, role, "desc".equalsIgnoreCase(sort), cursor, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // List bookings (admin): keyset cursor, lọc status / user / flight / ngày đặt
+    @GetMapping("/bookings")
+    public ResponseEntity<ApiResponse<KeysetPage<AdminBookingView>>> getBookings(
+            @RequestParam(name = "status", required = false) Booking.BookingStatus status,
+            @RequestParam(name = "userId", required = false) Long userId,
+            @RequestParam(name = "flightId", required = false) Long flightId,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "sort", defaultValue = "desc") String sort,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "size", defaultValue = "" + AdminService.DEFAULT_PAGE_SIZE) int size,
+            HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+        if (size < 1 || size > AdminService.MAX_PAGE_SIZE) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Size must be between 1 and " + AdminService.MAX_PAGE_SIZE));
+        }
+
+        try {
+            return ResponseEntity.ok(ApiResponse.success(adminService.listBookings(
+                    status, userId, flightId, from, to, "desc".equalsIgnoreCase(sort), cursor, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // Metrics: optimistic-lock retries, search cache
+    @GetMapping("/metrics")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getMetrics(HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("optimisticRetry", optimisticRetryInterceptor.getMetrics());
+        metrics.put("flightSearchCache", flightSearchCache.getStats());
+        metrics.put("fareCalendarCache", fareCalendarCache.getStats());
+        metrics.put("dashboardCounters", Map.of(
+                "reconciliations", dashboardCounters.getReconciliations(),
+                "driftCorrections", dashboardCounters.getDriftCorrections()));
+        metrics.put("topBookingsSketch", topBookingsSketch.getStats());
+        metrics.put("recommendationStore", recommendationStore.getStats());
+        metrics.put("routeCooccurrence", routeCooccurrenceIndex.getStats());
+        metrics.put("popularFlights", popularFlightsCache.getStats());
+        metrics.put("paymentCallbacks", recentPaymentCallbacks.getStats());
+        metrics.put("paymentConfirmation", paymentConfirmationPipeline.getStats());
+        return ResponseEntity.ok(ApiResponse.success(metrics));
+    }
+
+    // Báo cáo doanh thu / load factor (chỉ đọc bảng rollup)
+    @GetMapping("/reports/revenue")
+    public ResponseEntity<ApiResponse<List<RevenueReportRow>>> getRevenueReport(
+            @RequestParam(name = "groupBy", defaultValue = "DAY") String groupBy,
+            @RequestParam("from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam("to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+
+        try {
+            RollupService.GroupBy grouping = RollupService.GroupBy.valueOf(groupBy.toUpperCase());
+            return ResponseEntity.ok(ApiResponse.success(rollupService.getRevenueReport(grouping, from, to)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    // Dựng lại bảng rollup từ dữ liệu lịch sử (chạy nền)
+    @PostMapping("/reports/rollups/rebuild")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> rebuildRollups(HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+
+        if (!rollupService.startBackfill()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error("Rollup backfill is already running"));
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Rollup backfill started", rollupService.getBackfillStatus()));
+    }
+
+    @GetMapping("/reports/rollups/status")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getRollupStatus(HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+        return ResponseEntity.ok(ApiResponse.success(rollupService.getBackfillStatus()));
+    }
+
+    // Payment đã trả tiền nhưng booking đã huỷ / hết hạn: chờ hoàn tiền
+    @GetMapping("/payments/refund-required")
+    public ResponseEntity<ApiResponse<List<Map<String, Object>>>> getRefundRequiredPayments(
+            @RequestParam(name = "limit", defaultValue = "100") int limit,
+            HttpSession session) {
+        if (!isAdmin(session)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN)
+                    .body(ApiResponse.error("Admin access required"));
+        }
+
+        List<Map<String, Object>> rows = paymentService.findRefundRequired(Math.max(1, Math.min(limit, 500)))
+                .stream()
+                .map(payment -> {
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    row.put("paymentId", payment.getId());
+                    row.put("txnRef", payment.getTransactionId());
+                    row.put("amount", payment.getAmount());
+                    row.put("paymentDate", payment.getPaymentDate());
+                    row.put("bookingId", payment.getBooking().getId());
+                    row.put("bookingCode", payment.getBooking().getBookingCode());
+                    row.put("bookingStatus", payment.getBooking().getStatus());
+                    return row;
+                })
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(ApiResponse.success(rows));
     }
 
     // Delete flight
@@ -188,12 +476,22 @@ public class AdminRestController {
             existingFlight.setRoute(route);
             existingFlight.setAircraft(aircraft);
 
+            // Version client đã đọc: nếu flight bị sửa sau đó (admin khác / booking)
+            // thì merge sẽ ném OptimisticLockException thay vì ghi đè
+            if (request.getVersion() != null) {
+                existingFlight.setVersion(request.getVersion());
+            }
+
             Flight updatedFlight = flightService.updateFlight(existingFlight);
             FlightResponse responseDto = convertToFlightResponse(updatedFlight);
 
             return ResponseEntity.ok()
                     .body(ApiResponse.success("Flight updated successfully", responseDto));
 
+        } catch (OptimisticLockException | OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(ApiResponse.error(
+                            "Chuyến bay vừa được thay đổi bởi người khác. Vui lòng tải lại và thử lại."));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(ApiResponse.error(e.getMessage()));
@@ -255,6 +553,7 @@ public class AdminRestController {
                 .route(routeInfo)
                 .aircraftModel(flight.getAircraft().getModelName())
                 .aircraftId(flight.getAircraft().getId())
+                .version(flight.getVersion())
                 .build();
     }
 
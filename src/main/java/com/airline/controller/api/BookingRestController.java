@@ -146,6 +146,7 @@ public class BookingRestController {
 
         return BookingResponse.builder()
             .id(booking.getId())
+            .bookingCode(booking.getBookingCode())
             .bookingDate(booking.getBookingDate())
             .status(booking.getStatus().name())
             .totalPrice(booking.getTotalPrice())
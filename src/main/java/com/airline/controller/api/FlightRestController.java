@@ -1,15 +1,21 @@
 package com.airline.controller.api;
 
 import com.airline.dto.ApiResponse;
+import com.airline.dto.FareCalendarDay;
 import com.airline.dto.FlightResponse;
-import com.airline.dto.RouteInfo;
-import com.airline.entity.Flight;
+import com.airline.dto.FlightView;
+import com.airline.dto.ItineraryResponse;
+import com.airline.dto.SeatMapResponse;
+import com.airline.service.ConnectionSearchService;
+import com.airline.service.FareCalendarService;
 import com.airline.service.FlightService;
+import com.airline.service.SeatMapService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import java.time.LocalDate;
+import java.time.YearMonth;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -20,14 +26,28 @@ public class FlightRestController {
     @Autowired
     private FlightService flightService;
 
+    @Autowired
+    private SeatMapService seatMapService;
+
+    @Autowired
+    private ConnectionSearchService connectionSearchService;
+
+    @Autowired
+    private FareCalendarService fareCalendarService;
+
     /**
      * API search flights with pagination Dùng cho AJAX calls từ search.html
      *
+     * Có tham số cursor (kể cả rỗng = trang đầu) thì dùng phân trang keyset:
+     * trả về nextCursor, totalFlights chỉ khi includeTotal=true.
+     *
      * @param origin
      * @param destination
      * @param date
      * @param page
      * @param size
+     * @param cursor
+     * @param includeTotal
      * @return
      */
     @GetMapping("/search")
@@ -36,17 +56,23 @@ public class FlightRestController {
             @RequestParam("destination") String destination,
             @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
             @RequestParam(name = "page", defaultValue = "0") int page,
-            @RequestParam(name = "size", defaultValue = "10") int size) {
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            @RequestParam(name = "cursor", required = false) String cursor,
+            @RequestParam(name = "includeTotal", defaultValue = "false") boolean includeTotal) {
+
+        if (cursor != null) {
+            return searchFlightsByCursor(origin, destination, date, cursor, size, includeTotal);
+        }
 
         try {
-            Map<String, Object> result = flightService.searchFlightsWithPaging(origin, destination, date, page, size);
+            Map<String, Object> result = flightService.searchFlightViewsWithPaging(origin, destination, date, page, size);
 
-            // Convert Flight entities to FlightResponse DTOs
+            // Projection -> FlightResponse DTOs (không load entity)
             @SuppressWarnings("unchecked")
-            List<Flight> flights = (List<Flight>) result.get("flights");
+            List<FlightView> flights = (List<FlightView>) result.get("flights");
 
             List<FlightResponse> flightResponses = flights.stream()
-                    .map(this::convertToFlightResponse)
+                    .map(FlightView::toResponse)
                     .collect(Collectors.toList());
 
             // Prepare response data
@@ -65,26 +91,94 @@ public class FlightRestController {
         }
     }
 
+    private ResponseEntity<ApiResponse<Map<String, Object>>> searchFlightsByCursor(
+            String origin, String destination, LocalDate date, String cursor, int size, boolean includeTotal) {
+        if (size < 1 || size > 100) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error("Size must be between 1 and 100"));
+        }
+        try {
+            Map<String, Object> result = flightService.searchFlightsByCursor(
+                    origin, destination, date, cursor, size, includeTotal);
+
+            @SuppressWarnings("unchecked")
+            List<FlightView> flights = (List<FlightView>) result.get("flights");
+
+            Map<String, Object> responseData = new HashMap<>(result);
+            responseData.put("flights", flights.stream()
+                    .map(FlightView::toResponse)
+                    .collect(Collectors.toList()));
+
+            return ResponseEntity.ok(ApiResponse.success("Flights loaded successfully", responseData));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
     /**
-     * Convert Flight entity to FlightResponse DTO
+     * API tìm hành trình bay thẳng và nối chuyến (tối đa 2 điểm dừng), xếp theo
+     * tổng thời gian bay rồi tổng giá
      */
-    private FlightResponse convertToFlightResponse(Flight flight) {
-        RouteInfo routeInfo = RouteInfo.builder()
-                .id(flight.getRoute().getId())
-                .origin(flight.getRoute().getOrigin())
-                .destination(flight.getRoute().getDestination())
-                .distanceKm(flight.getRoute().getDistanceKm())
-                .build();
-
-        return FlightResponse.builder()
-                .id(flight.getId())
-                .flightNumber(flight.getFlightNumber())
-                .departureTime(flight.getDepartureTime())
-                .arrivalTime(flight.getArrivalTime())
-                .price(flight.getPrice())
-                .availableSeats(flight.getAvailableSeats())
-                .route(routeInfo)
-                .aircraftModel(flight.getAircraft().getModelName())
-                .build();
+    @GetMapping("/connections")
+    public ResponseEntity<ApiResponse<List<ItineraryResponse>>> searchConnections(
+            @RequestParam("origin") String origin,
+            @RequestParam("destination") String destination,
+            @RequestParam("date") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "passengers", defaultValue = "1") int passengers,
+            @RequestParam(name = "maxStops", defaultValue = "2") int maxStops,
+            @RequestParam(name = "minLayover", defaultValue = "" + ConnectionSearchService.DEFAULT_MIN_LAYOVER_MINUTES) int minLayover,
+            @RequestParam(name = "maxLayover", defaultValue = "" + ConnectionSearchService.DEFAULT_MAX_LAYOVER_MINUTES) int maxLayover,
+            @RequestParam(name = "limit", defaultValue = "20") int limit) {
+        try {
+            List<ItineraryResponse> itineraries = connectionSearchService.searchItineraries(
+                    origin, destination, date, passengers, maxStops, minLayover, maxLayover, limit);
+            return ResponseEntity.ok(ApiResponse.success("Itineraries loaded successfully", itineraries));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * API lịch giá: giá thấp nhất và số ghế trống mỗi ngày. Truyền month
+     * (yyyy-MM) để lấy cả tháng, hoặc date và days để lấy date ± days ngày.
+     */
+    @GetMapping("/fare-calendar")
+    public ResponseEntity<ApiResponse<List<FareCalendarDay>>> getFareCalendar(
+            @RequestParam("origin") String origin,
+            @RequestParam("destination") String destination,
+            @RequestParam(name = "month", required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth month,
+            @RequestParam(name = "date", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date,
+            @RequestParam(name = "days", defaultValue = "3") int days) {
+        try {
+            List<FareCalendarDay> calendar;
+            if (month != null) {
+                calendar = fareCalendarService.getFareCalendar(origin, destination, month);
+            } else if (date != null && days >= 0) {
+                calendar = fareCalendarService.getFareCalendar(origin, destination,
+                        date.minusDays(days), date.plusDays(days));
+            } else {
+                return ResponseEntity.badRequest()
+                        .body(ApiResponse.error("Either month or date is required"));
+            }
+            return ResponseEntity.ok(ApiResponse.success("Fare calendar loaded successfully", calendar));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
+    }
+
+    /**
+     * API sơ đồ ghế của chuyến bay (trả lời từ bộ nhớ)
+     */
+    @GetMapping("/{id}/seats")
+    public ResponseEntity<ApiResponse<SeatMapResponse>> getSeatMap(@PathVariable("id") Long id) {
+        try {
+            return ResponseEntity.ok(ApiResponse.success(seatMapService.getSeatMap(id)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(ApiResponse.error(e.getMessage()));
+        }
     }
 }
@@ -6,8 +6,11 @@ import com.airline.dto.PaymentRequest;
 import com.airline.entity.Booking;
 import com.airline.entity.Payment;
 import com.airline.service.BookingService;
+import com.airline.service.PaymentConfirmationPipeline;
 import com.airline.service.PaymentService;
 // import com.airline.service.impl.PaymentServiceImpl; // <-- Xóa import không dùng
+import com.airline.util.SnowflakeIdGenerator;
+import com.airline.util.VNPaySigner;
 import com.airline.util.VNPayUtils;
 import jakarta.servlet.http.HttpServletRequest;
 // import jakarta.servlet.http.HttpSession; // <-- Xóa import không dùng
@@ -17,9 +20,6 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.io.UnsupportedEncodingException; // <-- Import
-import java.net.URLEncoder; // <-- Import
-import java.nio.charset.StandardCharsets; // <-- Import
 import java.text.SimpleDateFormat; // <-- Import
 import java.util.*; // <-- Import
 
@@ -33,6 +33,12 @@ public class PaymentRestController {
     @Autowired
     private BookingService bookingService;
 
+    @Autowired
+    private PaymentConfirmationPipeline paymentConfirmationPipeline;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
     // === THAY THẾ HOÀN TOÀN PHƯƠNG THỨC NÀY ===
     @PostMapping("/create")
     public ResponseEntity<ApiResponse<Map<String, Object>>> createPayment(
@@ -44,8 +50,9 @@ public class PaymentRestController {
             Booking booking = bookingService.findById(request.getBookingId())
                     .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
 
-            // 1. Tạo vnp_TxnRef (Mã đơn hàng)
-            String vnp_TxnRef = VNPayConfig.getRandomNumber(8);
+            // 1. Tạo vnp_TxnRef (Mã đơn hàng): duy nhất giữa các instance,
+            // không trùng như số ngẫu nhiên 8 chữ số
+            String vnp_TxnRef = idGenerator.nextTxnRef();
 
             // 2. Tạo Payment (PENDING) và LƯU vnp_TxnRef vào DB
             Payment payment = paymentService.createPayment(
@@ -88,44 +95,10 @@ public class PaymentRestController {
             String vnp_ExpireDate = formatter.format(cld.getTime());
             vnp_Params.put("vnp_ExpireDate", vnp_ExpireDate);
 
-            // 5. Tạo Query string và Hash (LOGIC TỪ CreatePaymentServlet)
-            List<String> fieldNames = new ArrayList<>(vnp_Params.keySet());
-            Collections.sort(fieldNames);
-            StringBuilder hashData = new StringBuilder();
-            StringBuilder query = new StringBuilder();
-
-            Iterator<String> itr = fieldNames.iterator();
-            while (itr.hasNext()) {
-                String fieldName = itr.next();
-                String fieldValue = vnp_Params.get(fieldName);
-                if (fieldValue != null && fieldValue.length() > 0) {
-                    // Build hash data
-                    hashData.append(fieldName);
-                    hashData.append('=');
-                    // Sử dụng US_ASCII theo VNPayUtils để hash
-                    hashData.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-                    // Build query string
-                    query.append(URLEncoder.encode(fieldName, StandardCharsets.UTF_8.toString()));
-                    query.append('=');
-                    query.append(URLEncoder.encode(fieldValue, StandardCharsets.UTF_8.toString()));
-
-                    if (itr.hasNext()) {
-                        query.append('&');
-                        hashData.append('&');
-                    }
-                }
-            }
-
-            // 6. Tạo vnp_SecureHash
-            // Sử dụng VNPayUtils (đã có trong project airline)
-            String vnp_SecureHash = VNPayUtils.hashAllFields(vnp_Params, VNPayConfig.vnp_HashSecret);
-            vnp_Params.put("vnp_SecureHash", vnp_SecureHash);
-
-            // 7. Tạo URL thanh toán
-            // String paymentUrl = VNPayConfig.vnp_Url + "?" + query.toString() + "&vnp_SecureHash=" + vnp_SecureHash;
-            // CẬP NHẬT: query đã bao gồm hash, chỉ cần thêm vào URL
-            query.append("&vnp_SecureHash=" + URLEncoder.encode(vnp_SecureHash, StandardCharsets.UTF_8.toString()));
-            String paymentUrl = VNPayConfig.vnp_Url + "?" + query.toString();
+            // 5-7. Query string đã sắp xếp + vnp_SecureHash, dựng một lần
+            // (chuỗi ký trùng với query khi mọi giá trị là ASCII)
+            String paymentUrl = VNPayConfig.vnp_Url + "?"
+                    + VNPaySigner.forSecret(VNPayConfig.vnp_HashSecret).signedQuery(vnp_Params);
 
             Map<String, Object> data = new HashMap<>();
             data.put("paymentId", payment.getId());
@@ -152,7 +125,7 @@ public class PaymentRestController {
                     .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
 
             // 1. Tạo mã giao dịch giả lập
-            String txnRef = "SIM_" + System.currentTimeMillis();
+            String txnRef = "SIM_" + idGenerator.nextTxnRef();
 
             // 2. Tạo Payment (PENDING)
             Payment payment = paymentService.createPayment(
@@ -178,4 +151,35 @@ public class PaymentRestController {
                     .body(ApiResponse.error(e.getMessage()));
         }
     }
+
+    /**
+     * IPN (server-to-server) của VNPAY. Trả lời theo định dạng VNPAY
+     * {"RspCode", "Message"}; VNPAY gửi lại nếu không nhận được "00" / "02".
+     * Chỉ ghi nhận callback rồi trả lời; trạng thái Payment / Booking được
+     * PaymentConfirmationPipeline áp dụng đúng một lần ở nền.
+     */
+    @GetMapping("/ipn")
+    public Map<String, String> ipn(HttpServletRequest request) {
+        PaymentService.CallbackResult result;
+        Map<String, String> fields = VNPayUtils.callbackFields(request.getParameterMap());
+        String txnRef = fields.get("vnp_TxnRef");
+        if (!VNPaySigner.forSecret(VNPayConfig.vnp_HashSecret)
+                .verify(fields, request.getParameter("vnp_SecureHash"))) {
+            result = PaymentService.CallbackResult.INVALID_SIGNATURE;
+        } else if (txnRef == null) {
+            result = PaymentService.CallbackResult.ORDER_NOT_FOUND;
+        } else {
+            try {
+                result = paymentConfirmationPipeline.submit(txnRef, fields.get("vnp_ResponseCode"),
+                        Long.parseLong(fields.get("vnp_Amount")));
+            } catch (RuntimeException e) {
+                result = PaymentService.CallbackResult.UNKNOWN_ERROR;
+            }
+        }
+
+        Map<String, String> response = new LinkedHashMap<>();
+        response.put("RspCode", result.getCode());
+        response.put("Message", result.getMessage());
+        return response;
+    }
 }
@@ -0,0 +1,77 @@
+package com.airline.controller.api;
+
+import com.airline.dto.ApiResponse;
+import com.airline.service.PaymentGatewaySimulator;
+import com.airline.service.PaymentGatewaySimulator.Outcome;
+import com.airline.service.PaymentGatewaySimulator.Scenario;
+import com.airline.util.VNPayUtils;
+import jakarta.servlet.http.HttpServletRequest;
+import java.net.URI;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Gateway VNPAY giả lập cho load test offline. Chạy với
+ * -Dvnpay.simulator.enabled=true -Dvnpay.url=http://localhost:9999/airline/api/dev/vnpay/pay
+ * -Dvnpay.returnUrl=http://localhost:9999/airline/payment/result
+ * thì paymentUrl do /api/payment/create trả về trỏ vào đây.
+ *
+ * Tham số thêm (tuỳ chọn, ghi đè cấu hình vnpay.simulator.*): simOutcome
+ * (SUCCESS / FAILURE / RANDOM), simDelayMs, simDeliveries; redirect=false để
+ * nhận JSON thay vì chuyển hướng về vnp_ReturnUrl.
+ */
+@RestController
+@RequestMapping("/api/dev/vnpay")
+public class PaymentSimulatorRestController {
+
+    @Autowired
+    private PaymentGatewaySimulator simulator;
+
+    @GetMapping("/pay")
+    public ResponseEntity<ApiResponse<Map<String, String>>> pay(
+            HttpServletRequest request,
+            @RequestParam(name = "simOutcome", required = false) Outcome outcome,
+            @RequestParam(name = "simDelayMs", required = false) Long delayMillis,
+            @RequestParam(name = "simDeliveries", required = false) Integer deliveries,
+            @RequestParam(name = "redirect", defaultValue = "true") boolean redirect) {
+
+        if (!simulator.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        Scenario defaults = simulator.defaultScenario();
+        Scenario scenario = new Scenario(
+                outcome != null ? outcome : defaults.outcome(),
+                delayMillis != null ? delayMillis : defaults.delayMillis(),
+                deliveries != null ? deliveries : defaults.deliveries());
+
+        Map<String, String> fields = VNPayUtils.callbackFields(request.getParameterMap());
+        String query;
+        try {
+            query = simulator.pay(fields, request.getParameter("vnp_SecureHash"), scenario);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(ApiResponse.error(e.getMessage()));
+        }
+
+        String returnUrl = fields.get("vnp_ReturnUrl");
+        if (redirect && returnUrl != null) {
+            String location = returnUrl + (returnUrl.contains("?") ? "&" : "?") + query;
+            return ResponseEntity.status(HttpStatus.FOUND).location(URI.create(location)).build();
+        }
+        Map<String, String> data = new LinkedHashMap<>();
+        data.put("returnUrl", returnUrl);
+        data.put("callbackQuery", query);
+        return ResponseEntity.ok(ApiResponse.success("Payment simulated", data));
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> stats() {
+        if (!simulator.isEnabled()) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(ApiResponse.success(simulator.getStats()));
+    }
+}
@@ -2,8 +2,7 @@ package com.airline.controller.api;
 
 import com.airline.dto.ApiResponse;
 import com.airline.dto.FlightResponse;
-import com.airline.dto.RouteInfo;
-import com.airline.entity.Flight;
+import com.airline.dto.FlightView;
 import com.airline.entity.User;
 import com.airline.service.RecommendationService;
 import jakarta.servlet.http.HttpSession;
@@ -32,33 +31,12 @@ public class RecommendationRestController {
                 .body(ApiResponse.error("Please login to see recommendations"));
         }
 
-        List<Flight> flights = recommendationService.getRecommendedFlights(user.getId(), limit);
+        List<FlightView> flights = recommendationService.getRecommendedFlightViews(user.getId(), limit);
         
         List<FlightResponse> response = flights.stream()
-            .map(this::mapToResponse)
+            .map(FlightView::toResponse)
             .collect(Collectors.toList());
 
         return ResponseEntity.ok(ApiResponse.success(response));
     }
-
-    private FlightResponse mapToResponse(Flight flight) {
-        RouteInfo routeInfo = RouteInfo.builder()
-            .id(flight.getRoute().getId())
-            .origin(flight.getRoute().getOrigin())
-            .destination(flight.getRoute().getDestination())
-            .distanceKm(flight.getRoute().getDistanceKm())
-            .build();
-
-        return FlightResponse.builder()
-            .id(flight.getId())
-            .flightNumber(flight.getFlightNumber())
-            .departureTime(flight.getDepartureTime())
-            .arrivalTime(flight.getArrivalTime())
-            .price(flight.getPrice())
-            .availableSeats(flight.getAvailableSeats())
-            .route(routeInfo)
-            .aircraftModel(flight.getAircraft().getModelName())
-            .build();
-    }
 }
-
@@ -1,6 +1,10 @@
 package com.airline.dao;
 
+import com.airline.dto.AdminBookingView;
 import com.airline.entity.Booking;
+import com.airline.util.KeysetCursor;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,11 +19,56 @@ public interface BookingDAO {
 
     List<Booking> findAll();
 
+    long count();
+
     List<Booking> findByUserId(Long userId);
 
     List<Booking> findByFlightId(Long flightId);
 
     List<Booking> findByStatus(Booking.BookingStatus status);
 
+    /**
+     * Số booking (trạng thái status) của user theo từng route, một query
+     * GROUP BY: [routeId, bookingCount]
+     */
+    List<Object[]> countRoutesByUser(Long userId, Booking.BookingStatus status);
+
+    /**
+     * Như countRoutesByUser nhưng bỏ qua các booking trong excludedBookingIds
+     */
+    List<Object[]> countRoutesByUser(Long userId, Booking.BookingStatus status,
+            Collection<Long> excludedBookingIds);
+
     void delete(Booking booking);
+
+    /**
+     * Danh sách admin (projection, một dòng / booking): lọc status, userId,
+     * flightId, khoảng bookingDate [from, to) — tham số null là bỏ qua; xếp
+     * theo (bookingDate, id), seek sau con trỏ after
+     */
+    List<AdminBookingView> findViewsPage(Booking.BookingStatus status, Long userId, Long flightId,
+            LocalDateTime from, LocalDateTime to, boolean descending, KeysetCursor after, int limit);
+
+    /**
+     * Tất cả booking PENDING còn giữ chỗ: [id, holdExpiresAt, bookingDate]
+     */
+    List<Object[]> findPendingHolds();
+
+    /**
+     * Booking PENDING đã hết hạn giữ chỗ trong danh sách ids:
+     * [id, flightId, passengerCount, routeId, departureTime, userId, totalPrice]
+     */
+    List<Object[]> findExpiredHolds(Collection<Long> ids, LocalDateTime now);
+
+    /**
+     * Huỷ hàng loạt các booking còn PENDING trong ids
+     *
+     * @return số booking thực sự được huỷ
+     */
+    int cancelPendingBookings(Collection<Long> ids, LocalDateTime now);
+
+    /**
+     * Ghế đã cấp cho các booking trong ids: [flightId, seatNumber]
+     */
+    List<Object[]> findSeatNumbersByBookingIds(Collection<Long> ids);
 }
@@ -0,0 +1,15 @@
+// ========================================
+// DashboardDAO
+// ========================================
+package com.airline.dao;
+
+import com.airline.dto.DashboardStats;
+
+public interface DashboardDAO {
+
+    /**
+     * Toàn bộ số liệu dashboard bằng COUNT/SUM trong một round trip, không load
+     * entity nào
+     */
+    DashboardStats loadDashboardStats();
+}
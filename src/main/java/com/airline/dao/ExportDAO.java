@@ -0,0 +1,39 @@
+package com.airline.dao;
+
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+
+/**
+ * ExportDAO Đọc dữ liệu xuất báo cáo / job batch bằng con trỏ JDBC chỉ-tiến
+ * (forward-only scroll): từng dòng được đẩy cho sink ngay khi đọc, không gom
+ * thành List.
+ * Phải gọi trong transaction (giữ connection suốt quá trình đọc).
+ */
+public interface ExportDAO {
+
+    /**
+     * Booking đặt trong [from, to) (null là bỏ qua), theo id:
+     * [id, bookingDate, status, totalPrice, passengerCount, userId, username,
+     * userEmail, flightId, flightNumber, departureTime, origin, destination]
+     *
+     * @return số dòng đã đọc
+     */
+    long scrollBookings(LocalDateTime from, LocalDateTime to, Consumer<Object[]> sink);
+
+    /**
+     * Hành khách của các booking đặt trong [from, to), theo id:
+     * [id, bookingId, fullName, email, phone, seatNumber, bookingStatus,
+     * flightNumber, departureTime, origin, destination]
+     *
+     * @return số dòng đã đọc
+     */
+    long scrollPassengers(LocalDateTime from, LocalDateTime to, Consumer<Object[]> sink);
+
+    /**
+     * Các cặp (user, route) phân biệt của booking CONFIRMED, theo userId:
+     * [userId, routeId]
+     *
+     * @return số dòng đã đọc
+     */
+    long scrollConfirmedUserRoutes(Consumer<Object[]> sink);
+}
@@ -1,7 +1,10 @@
 package com.airline.dao;
 
+import com.airline.dto.FlightView;
 import com.airline.entity.Flight;
+import com.airline.util.KeysetCursor;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -30,6 +33,100 @@ public interface FlightDAO {
 
     long countByRouteAndDate(Long routeId, LocalDateTime date);
 
+    // ===== Projection (FlightView) cho các danh sách chỉ đọc =====
+    List<FlightView> findViewsByRouteAndDate(Long routeId, LocalDateTime date, int page, int size);
+
+    /**
+     * Phân trang keyset: các chuyến trong ngày của route xếp theo
+     * (departureTime, id), bắt đầu ngay sau (afterDeparture, afterId).
+     * afterDeparture == null là trang đầu.
+     */
+    List<FlightView> findViewsByRouteAndDateAfter(Long routeId, LocalDateTime date,
+            LocalDateTime afterDeparture, Long afterId, int limit);
+
+    /**
+     * Id các chuyến còn ghế khởi hành trong (now, until), xếp giảm dần theo
+     * độ phổ biến: số booking chưa huỷ tạo từ since + loadWeight * tỉ lệ lấp
+     * đầy (1 - ghế trống / sức chứa)
+     */
+    List<Long> findPopularUpcomingIds(LocalDateTime since, LocalDateTime until, double loadWeight, int limit);
+
+    /**
+     * Id tối đa limit chuyến còn ghế khởi hành sớm nhất sau from, theo
+     * (departureTime, id) (seek trên idx_flights_departure)
+     */
+    List<Long> findUpcomingIds(LocalDateTime from, int limit);
+
+    /**
+     * Danh sách admin: lọc (routeId, khoảng giờ khởi hành [from, to), tiền tố
+     * số hiệu — tham số null là bỏ qua), xếp theo (departureTime, id), seek
+     * sau con trỏ after (null là trang đầu)
+     */
+    List<FlightView> findViewsPage(Long routeId, LocalDateTime from, LocalDateTime to,
+            String flightNumberPrefix, boolean descending, KeysetCursor after, int limit);
+
+    /**
+     * Tối đa perRoute chuyến sắp khởi hành còn ghế của mỗi route trong
+     * routeIds, một query cho mọi route (seek TOP n trên
+     * idx_flights_route_departure, không đọc các chuyến đã bay):
+     * [flightId, routeId] theo (routeId, departureTime)
+     */
+    List<Object[]> findUpcomingIdsByRoutes(Collection<Long> routeIds, int perRoute);
+
+    /**
+     * FlightView theo danh sách id (thứ tự không xác định)
+     */
+    List<FlightView> findViewsByIds(Collection<Long> ids);
+
+    /**
+     * Top chuyến bay theo số booking (chính xác, GROUP BY trên
+     * idx_bookings_flight): [flightId, bookingCount]. Chỉ dùng để khởi tạo /
+     * đối soát sketch top-N.
+     */
     List<Object[]> findTopFlightsByBookingCount(int limit);
 
+    /**
+     * Các chuyến theo danh sách id, kèm route và aircraft (thứ tự không xác định)
+     */
+    List<Flight> findByIds(Collection<Long> ids);
+
+    /**
+     * Giữ chỗ nguyên tử: trừ ghế bằng một câu UPDATE có điều kiện
+     * (available_seats >= count), không đọc-sửa-ghi entity.
+     *
+     * @return true nếu đủ ghế và đã trừ, false nếu không đủ ghế
+     */
+    boolean reserveSeats(Long flightId, int count);
+
+    /**
+     * Trả ghế lại cho chuyến bay bằng một câu UPDATE duy nhất
+     *
+     * @return true nếu chuyến bay đang hết ghế và nay có ghế trở lại
+     */
+    boolean releaseSeats(Long flightId, int count);
+
+    /**
+     * Lịch bay dạng projection (không load entity), khởi hành từ thời điểm from:
+     * [id, routeId, flightNumber, departureTime, arrivalTime, price, availableSeats,
+     * version]
+     */
+    List<Object[]> findScheduleRows(LocalDateTime from);
+
+    /**
+     * Id các chuyến bay dùng máy bay aircraftId
+     */
+    List<Long> findIdsByAircraftId(Long aircraftId);
+
+    /**
+     * Một dòng lịch bay theo id, cùng định dạng với findScheduleRows
+     */
+    Optional<Object[]> findScheduleRow(Long flightId);
+
+    /**
+     * Giá thấp nhất (trong các chuyến còn ghế) và số ghế trống theo từng ngày
+     * của một route, một query GROUP BY trên idx_flights_route_departure:
+     * [date, minPrice, availableSeats, flightCount]
+     */
+    List<Object[]> findDailyFares(Long routeId, LocalDateTime from, LocalDateTime to);
+
 }
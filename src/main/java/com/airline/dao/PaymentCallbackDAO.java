@@ -0,0 +1,57 @@
+// ========================================
+// PaymentCallbackDAO
+// ========================================
+package com.airline.dao;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bảng PaymentCallbacks: khoá idempotency theo vnp_TxnRef cho callback của
+ * VNPAY (IPN và trang return), đồng thời là hàng đợi bền của pipeline xác
+ * nhận thanh toán: processed_at NULL = đã nhận, chưa áp dụng. processed_at
+ * được đặt cùng transaction với việc đổi trạng thái Payment / Booking nên mỗi
+ * giao dịch chỉ được áp dụng một lần.
+ */
+public interface PaymentCallbackDAO {
+
+    /**
+     * Ghi nhận callback nếu txnRef chưa có
+     *
+     * @return false nếu txnRef đã được ghi trước đó (callback trùng)
+     */
+    boolean insertIfAbsent(String txnRef, String responseCode, long amount);
+
+    /**
+     * Nhận xử lý callback: đặt processed_at nếu chưa có
+     *
+     * @return false nếu đã được xử lý (bởi luồng / instance khác)
+     */
+    boolean markProcessed(String txnRef);
+
+    /**
+     * txnRef -&gt; response_code của các callback chưa xử lý trong danh sách
+     */
+    Map<String, String> findPendingResponseCodes(Collection<String> txnRefs);
+
+    /**
+     * Các callback chưa xử lý nhận trước receivedBefore và lỗi ít hơn
+     * maxAttempts lần, cũ nhất trước
+     */
+    List<String> findPending(LocalDateTime receivedBefore, int maxAttempts, int limit);
+
+    /**
+     * Ghi một lần áp dụng lỗi (tăng attempts, lưu last_error)
+     *
+     * @return attempts sau khi tăng, 0 nếu không có callback chưa xử lý
+     */
+    int recordFailure(String txnRef, String error);
+
+    /**
+     * Số callback chưa xử lý đã lỗi từ maxAttempts lần trở lên (không còn
+     * được replay)
+     */
+    long countExhausted(int maxAttempts);
+}
@@ -4,6 +4,7 @@
 package com.airline.dao;
 
 import com.airline.entity.Payment;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -17,7 +18,18 @@ public interface PaymentDAO {
 
     List<Payment> findByBookingId(Long bookingId);
 
+    /**
+     * Payment (kèm booking) theo danh sách transactionId, một query
+     */
+    List<Payment> findByTransactionIds(Collection<String> transactionIds);
+
     List<Payment> findAll();
 
+    /**
+     * Tối đa limit payment (kèm booking) theo trạng thái, cũ nhất trước
+     * (idx_payments_status)
+     */
+    List<Payment> findByStatus(Payment.PaymentStatus status, int limit);
+
     void delete(Payment payment);
 }
@@ -0,0 +1,62 @@
+// ========================================
+// RollupDAO
+// ========================================
+package com.airline.dao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Bảng FlightRollups: doanh thu / ghế đã bán gom sẵn theo chuyến bay (ngày
+ * khởi hành, route, aircraft). Báo cáo admin chỉ đọc bảng này.
+ */
+public interface RollupDAO {
+
+    /**
+     * Cộng dồn (upsert) thay đổi của một booking vào dòng rollup của flight
+     */
+    void applyDelta(Long flightId, int bookings, int seats, BigDecimal revenue);
+
+    /**
+     * Đồng bộ dòng rollup với flight sau khi flight được tạo / sửa / xoá: tạo
+     * dòng (số liệu 0) nếu chưa có, cập nhật ngày / route / aircraft / sức
+     * chứa, hoặc xoá dòng nếu flight không còn
+     */
+    void syncFlight(Long flightId);
+
+    /**
+     * Cập nhật sức chứa của mọi dòng rollup dùng máy bay aircraftId theo bảng
+     * Aircrafts (sau khi admin đổi sức chứa)
+     *
+     * @return số dòng đã cập nhật
+     */
+    int syncAircraft(Long aircraftId);
+
+    /**
+     * [minFlightId, maxFlightId], null nếu chưa có flight nào
+     */
+    long[] findFlightIdRange();
+
+    /**
+     * Dựng lại các dòng rollup cho flight có id trong [fromId, toId] từ bảng
+     * giao dịch: mỗi flight một dòng (kể cả chưa bán vé nào), dòng của flight
+     * đã xoá bị bỏ. Giữ khoá (HOLDLOCK) trên các booking trong dải tới khi
+     * commit nên không chen được với applyDelta của booking cùng dải.
+     *
+     * @return số dòng rollup đã ghi
+     */
+    int rebuildRange(long fromId, long toId);
+
+    /**
+     * Các query báo cáo: [key, confirmedBookings, bookedSeats, capacity, revenue]
+     */
+    List<Object[]> sumByDay(LocalDate from, LocalDate to);
+
+    List<Object[]> sumByRoute(LocalDate from, LocalDate to);
+
+    /**
+     * [aircraftId, modelName, confirmedBookings, bookedSeats, capacity, revenue]
+     */
+    List<Object[]> sumByAircraft(LocalDate from, LocalDate to);
+}
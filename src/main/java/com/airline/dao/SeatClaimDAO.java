@@ -0,0 +1,35 @@
+// ========================================
+// SeatClaimDAO
+// ========================================
+package com.airline.dao;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Bảng SeatClaims: mỗi ghế đang giữ / đã bán của một chuyến bay là một dòng,
+ * PK (flight_id, seat_number). Ghế được nhận trong cùng transaction đặt vé
+ * nên hai booking (kể cả trên hai instance) không bao giờ có cùng một ghế; sơ
+ * đồ ghế trong bộ nhớ chỉ là gợi ý.
+ */
+public interface SeatClaimDAO {
+
+    /**
+     * Nhận ghế nếu chưa ai giữ
+     *
+     * @return false nếu ghế đã thuộc về booking khác
+     */
+    boolean claim(Long flightId, String seatNumber);
+
+    /**
+     * Trả các ghế của một chuyến bay (booking huỷ / hết hạn giữ chỗ)
+     *
+     * @return số ghế đã trả
+     */
+    int release(Long flightId, Collection<String> seatNumbers);
+
+    /**
+     * Các ghế đang được giữ / đã bán (đã commit) của một chuyến bay
+     */
+    List<String> findClaimedSeats(Long flightId);
+}
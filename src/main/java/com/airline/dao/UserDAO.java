@@ -1,6 +1,9 @@
 package com.airline.dao;
 
+import com.airline.dto.AdminUserView;
 import com.airline.entity.User;
+import com.airline.util.KeysetCursor;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -27,7 +30,22 @@ public interface UserDAO {
 
     boolean existsByEmail(String email);
 
-    // THÊM DÒNG NÀY
+    /**
+     * Danh sách admin (projection): lọc tiền tố username/email và role (null
+     * là bỏ qua), xếp theo (createdAt, id), seek sau con trỏ after
+     */
+    List<AdminUserView> findViewsPage(String query, User.UserRole role, boolean descending,
+            KeysetCursor after, int limit);
+
+    /**
+     * Top user theo số booking (chính xác, GROUP BY trên idx_bookings_user):
+     * [userId, bookingCount]. Chỉ dùng để khởi tạo / đối soát sketch top-N.
+     */
     List<Object[]> findTopUsersByBookingCount(int limit);
 
+    /**
+     * Các user theo danh sách id (thứ tự không xác định)
+     */
+    List<User> findByIds(Collection<Long> ids);
+
 }
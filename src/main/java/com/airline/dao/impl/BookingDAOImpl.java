@@ -4,10 +4,15 @@
 package com.airline.dao.impl;
 
 import com.airline.dao.BookingDAO;
+import com.airline.dto.AdminBookingView;
 import com.airline.entity.Booking;
+import com.airline.util.KeysetCursor;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -60,6 +65,12 @@ public class BookingDAOImpl implements BookingDAO {
                 .getResultList();
     }
 
+    @Override
+    public long count() {
+        return em.createQuery("SELECT COUNT(b) FROM Booking b", Long.class)
+                .getSingleResult();
+    }
+
     @Override
     public List<Booking> findByUserId(Long userId) {
         return em.createQuery(
@@ -95,6 +106,28 @@ public class BookingDAOImpl implements BookingDAO {
                 .getResultList();
     }
 
+    @Override
+    public List<Object[]> countRoutesByUser(Long userId, Booking.BookingStatus status) {
+        return countRoutesByUser(userId, status, List.of());
+    }
+
+    @Override
+    public List<Object[]> countRoutesByUser(Long userId, Booking.BookingStatus status,
+            Collection<Long> excludedBookingIds) {
+        boolean exclude = !excludedBookingIds.isEmpty();
+        TypedQuery<Object[]> query = em.createQuery(
+                "SELECT f.route.id, COUNT(b.id) FROM Booking b JOIN b.flight f "
+                + "WHERE b.user.id = :userId AND b.status = :status "
+                + (exclude ? "AND b.id NOT IN :excluded " : "")
+                + "GROUP BY f.route.id", Object[].class)
+                .setParameter("userId", userId)
+                .setParameter("status", status);
+        if (exclude) {
+            query.setParameter("excluded", excludedBookingIds);
+        }
+        return query.getResultList();
+    }
+
     @Override
     public void delete(Booking booking) {
         if (em.contains(booking)) {
@@ -103,4 +136,103 @@ public class BookingDAOImpl implements BookingDAO {
             em.remove(em.merge(booking));
         }
     }
+
+    @Override
+    public List<AdminBookingView> findViewsPage(Booking.BookingStatus status, Long userId, Long flightId,
+            LocalDateTime from, LocalDateTime to, boolean descending, KeysetCursor after, int limit) {
+        // Không fetch passengers: SIZE() là subquery đếm trên idx_passengers_booking,
+        // chỉ chạy cho các dòng của trang
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.airline.dto.AdminBookingView("
+                + "b.id, u.id, u.username, f.id, f.flightNumber, f.departureTime, "
+                + "r.origin, r.destination, b.bookingDate, b.totalPrice, b.status, SIZE(b.passengers)) "
+                + "FROM Booking b JOIN b.user u JOIN b.flight f JOIN f.route r WHERE 1 = 1 ");
+        if (status != null) {
+            jpql.append("AND b.status = :status ");
+        }
+        if (userId != null) {
+            jpql.append("AND u.id = :userId ");
+        }
+        if (flightId != null) {
+            jpql.append("AND f.id = :flightId ");
+        }
+        if (from != null) {
+            jpql.append("AND b.bookingDate >= :from ");
+        }
+        if (to != null) {
+            jpql.append("AND b.bookingDate < :to ");
+        }
+        if (after != null) {
+            jpql.append("AND ").append(KeysetCursor.seekClause("b.bookingDate", "b.id", descending));
+        }
+        jpql.append(KeysetCursor.orderBy("b.bookingDate", "b.id", descending));
+
+        TypedQuery<AdminBookingView> query = em.createQuery(jpql.toString(), AdminBookingView.class)
+                .setMaxResults(limit);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (userId != null) {
+            query.setParameter("userId", userId);
+        }
+        if (flightId != null) {
+            query.setParameter("flightId", flightId);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        if (after != null) {
+            query.setParameter("afterTime", after.time())
+                    .setParameter("afterId", after.id());
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Object[]> findPendingHolds() {
+        return em.createQuery(
+                "SELECT b.id, b.holdExpiresAt, b.bookingDate FROM Booking b "
+                + "WHERE b.status = :status", Object[].class)
+                .setParameter("status", Booking.BookingStatus.PENDING)
+                .getResultList();
+    }
+
+    @Override
+    public List<Object[]> findExpiredHolds(Collection<Long> ids, LocalDateTime now) {
+        return em.createQuery(
+                "SELECT b.id, b.flight.id, SIZE(b.passengers), "
+                + "b.flight.route.id, b.flight.departureTime, b.user.id, b.totalPrice FROM Booking b "
+                + "WHERE b.id IN :ids AND b.status = :status "
+                + "AND (b.holdExpiresAt IS NULL OR b.holdExpiresAt <= :now)", Object[].class)
+                .setParameter("ids", ids)
+                .setParameter("status", Booking.BookingStatus.PENDING)
+                .setParameter("now", now)
+                .getResultList();
+    }
+
+    @Override
+    public int cancelPendingBookings(Collection<Long> ids, LocalDateTime now) {
+        return em.createQuery(
+                "UPDATE Booking b "
+                + "SET b.status = :cancelled, b.holdExpiresAt = NULL, "
+                + "b.updatedAt = :now, b.version = b.version + 1 "
+                + "WHERE b.id IN :ids AND b.status = :pending")
+                .setParameter("cancelled", Booking.BookingStatus.CANCELLED)
+                .setParameter("pending", Booking.BookingStatus.PENDING)
+                .setParameter("now", now)
+                .setParameter("ids", ids)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<Object[]> findSeatNumbersByBookingIds(Collection<Long> ids) {
+        return em.createQuery(
+                "SELECT p.booking.flight.id, p.seatNumber FROM BookingPassenger p "
+                + "WHERE p.booking.id IN :ids AND p.seatNumber IS NOT NULL", Object[].class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
 }
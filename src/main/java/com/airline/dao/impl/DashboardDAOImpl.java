@@ -0,0 +1,51 @@
+package com.airline.dao.impl;
+
+import com.airline.dao.DashboardDAO;
+import com.airline.dto.DashboardStats;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+
+@Repository
+public class DashboardDAOImpl implements DashboardDAO {
+
+    // Một câu SQL: các bảng nhỏ đếm bằng sub-query, Bookings được gom một lần
+    // theo status trên idx_bookings_status (INCLUDE total_price, không chạm
+    // clustered index)
+    private static final String DASHBOARD_SQL
+            = "SELECT "
+            + "(SELECT COUNT_BIG(*) FROM Users), "
+            + "(SELECT COUNT_BIG(*) FROM Flights), "
+            + "b.total, b.pending, b.confirmed, b.cancelled, b.revenue, "
+            + "(SELECT COUNT_BIG(*) FROM Payments WHERE status = 'SUCCESS') "
+            + "FROM (SELECT COUNT_BIG(*) AS total, "
+            + "SUM(CASE WHEN status = 'PENDING' THEN 1 ELSE 0 END) AS pending, "
+            + "SUM(CASE WHEN status = 'CONFIRMED' THEN 1 ELSE 0 END) AS confirmed, "
+            + "SUM(CASE WHEN status = 'CANCELLED' THEN 1 ELSE 0 END) AS cancelled, "
+            + "SUM(CASE WHEN status = 'CONFIRMED' THEN total_price ELSE 0 END) AS revenue "
+            + "FROM Bookings) b";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public DashboardStats loadDashboardStats() {
+        Object[] row = (Object[]) em.createNativeQuery(DASHBOARD_SQL).getSingleResult();
+        return DashboardStats.builder()
+                .totalUsers(toLong(row[0]))
+                .totalFlights(toLong(row[1]))
+                .totalBookings(toLong(row[2]))
+                .pendingBookings(toLong(row[3]))
+                .confirmedBookings(toLong(row[4]))
+                .cancelledBookings(toLong(row[5]))
+                .totalRevenue(row[6] != null ? new BigDecimal(row[6].toString()) : BigDecimal.ZERO)
+                .successfulPayments(toLong(row[7]))
+                .build();
+    }
+
+    // SUM trên bảng rỗng trả về NULL
+    private static Long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+}
@@ -0,0 +1,121 @@
+package com.airline.dao.impl;
+
+import com.airline.dao.ExportDAO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+import java.util.function.Consumer;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
+import org.hibernate.query.NativeQuery;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public class ExportDAOImpl implements ExportDAO {
+
+    // Số dòng driver lấy mỗi lượt round-trip
+    private static final int FETCH_SIZE = 5_000;
+    // Dọn persistence context định kỳ để bộ nhớ không tăng theo số dòng
+    private static final int CLEAR_INTERVAL = 10_000;
+
+    // Chỗ chèn điều kiện khoảng ngày cho bảng dẫn xuất
+    private static final String RANGE_PLACEHOLDER = "{bookingRange}";
+
+    // Số hành khách lấy từ bảng dẫn xuất GROUP BY thay vì subquery trên từng
+    // dòng; bảng dẫn xuất cũng chỉ gom hành khách của các booking trong khoảng
+    // ngày được xuất, không quét toàn bộ BookingPassengers
+    private static final String BOOKINGS_SQL
+            = "SELECT b.id, b.booking_date, b.status, b.total_price, ISNULL(p.seats, 0), "
+            + "u.id, u.username, u.email, f.id, f.flight_number, f.departure_time, r.origin, r.destination "
+            + "FROM Bookings b "
+            + "JOIN Users u ON u.id = b.user_id "
+            + "JOIN Flights f ON f.id = b.flight_id "
+            + "JOIN Routes r ON r.id = f.route_id "
+            + "LEFT JOIN (SELECT bp.booking_id, COUNT(*) AS seats FROM BookingPassengers bp "
+            + "JOIN Bookings pb ON pb.id = bp.booking_id "
+            + "WHERE 1 = 1 " + RANGE_PLACEHOLDER
+            + "GROUP BY bp.booking_id) p "
+            + "ON p.booking_id = b.id ";
+
+    private static final String PASSENGERS_SQL
+            = "SELECT p.id, p.booking_id, p.full_name, p.email, p.phone, p.seat_number, b.status, "
+            + "f.flight_number, f.departure_time, r.origin, r.destination "
+            + "FROM BookingPassengers p "
+            + "JOIN Bookings b ON b.id = p.booking_id "
+            + "JOIN Flights f ON f.id = b.flight_id "
+            + "JOIN Routes r ON r.id = f.route_id ";
+
+    private static final String USER_ROUTES_SQL
+            = "SELECT DISTINCT b.user_id, f.route_id "
+            + "FROM Bookings b JOIN Flights f ON f.id = b.flight_id "
+            + "WHERE b.status = 'CONFIRMED' "
+            + "ORDER BY b.user_id";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public long scrollBookings(LocalDateTime from, LocalDateTime to, Consumer<Object[]> sink) {
+        return scroll(BOOKINGS_SQL, "b.id", from, to, sink);
+    }
+
+    @Override
+    public long scrollPassengers(LocalDateTime from, LocalDateTime to, Consumer<Object[]> sink) {
+        return scroll(PASSENGERS_SQL, "p.id", from, to, sink);
+    }
+
+    @Override
+    public long scrollConfirmedUserRoutes(Consumer<Object[]> sink) {
+        return scroll(scrollQuery(USER_ROUTES_SQL), sink);
+    }
+
+    private long scroll(String select, String orderColumn, LocalDateTime from, LocalDateTime to,
+            Consumer<Object[]> sink) {
+        StringBuilder sql = new StringBuilder(select.replace(RANGE_PLACEHOLDER, bookingRange("pb", from, to)))
+                .append("WHERE 1 = 1 ")
+                .append(bookingRange("b", from, to))
+                .append("ORDER BY ").append(orderColumn);
+
+        NativeQuery<?> query = scrollQuery(sql.toString());
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        return scroll(query, sink);
+    }
+
+    private static String bookingRange(String alias, LocalDateTime from, LocalDateTime to) {
+        StringBuilder range = new StringBuilder();
+        if (from != null) {
+            range.append("AND ").append(alias).append(".booking_date >= :from ");
+        }
+        if (to != null) {
+            range.append("AND ").append(alias).append(".booking_date < :to ");
+        }
+        return range.toString();
+    }
+
+    private NativeQuery<?> scrollQuery(String sql) {
+        return em.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .setFetchSize(FETCH_SIZE)
+                .setReadOnly(true)
+                .setCacheMode(CacheMode.IGNORE);
+    }
+
+    private long scroll(NativeQuery<?> query, Consumer<Object[]> sink) {
+        long rows = 0;
+        try (ScrollableResults<?> results = query.scroll(ScrollMode.FORWARD_ONLY)) {
+            while (results.next()) {
+                sink.accept((Object[]) results.get());
+                if (++rows % CLEAR_INTERVAL == 0) {
+                    em.clear();
+                }
+            }
+        }
+        return rows;
+    }
+}
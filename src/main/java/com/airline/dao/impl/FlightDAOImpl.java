@@ -4,12 +4,17 @@
 package com.airline.dao.impl;
 
 import com.airline.dao.FlightDAO;
+import com.airline.dto.FlightView;
 import com.airline.entity.Flight;
+import com.airline.util.KeysetCursor;
+import com.airline.util.LikePatterns;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -161,14 +166,280 @@ public class FlightDAOImpl implements FlightDAO {
                 .getSingleResult();
     }
 
+    // Constructor expression: Hibernate tạo thẳng FlightView, không hydrate entity
+    private static final String VIEW_SELECT = "SELECT new com.airline.dto.FlightView("
+            + "f.id, f.flightNumber, f.departureTime, f.arrivalTime, f.price, f.availableSeats, f.version, "
+            + "r.id, r.origin, r.destination, r.distanceKm, a.id, a.modelName) "
+            + "FROM Flight f JOIN f.route r JOIN f.aircraft a ";
+
+    @Override
+    public List<FlightView> findViewsByRouteAndDate(Long routeId, LocalDateTime date, int page, int size) {
+        LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
+        LocalDateTime endOfDay = startOfDay.plusDays(1);
+
+        return em.createQuery(
+                VIEW_SELECT
+                + "WHERE r.id = :routeId "
+                + "AND f.departureTime >= :start AND f.departureTime < :end "
+                + "ORDER BY f.departureTime, f.id", FlightView.class)
+                .setParameter("routeId", routeId)
+                .setParameter("start", startOfDay)
+                .setParameter("end", endOfDay)
+                .setFirstResult(page * size)
+                .setMaxResults(size)
+                .getResultList();
+    }
+
+    @Override
+    public List<FlightView> findViewsByRouteAndDateAfter(Long routeId, LocalDateTime date,
+            LocalDateTime afterDeparture, Long afterId, int limit) {
+        LocalDateTime startOfDay = date.toLocalDate().atStartOfDay();
+        LocalDateTime endOfDay = startOfDay.plusDays(1);
+
+        // Seek trên (route_id, departure_time[, id]) thay vì OFFSET: trang sâu
+        // tốn chi phí như trang đầu
+        String seek = afterDeparture == null ? ""
+                : "AND (f.departureTime > :afterDeparture "
+                + "OR (f.departureTime = :afterDeparture AND f.id > :afterId)) ";
+
+        TypedQuery<FlightView> query = em.createQuery(
+                VIEW_SELECT
+                + "WHERE r.id = :routeId "
+                + "AND f.departureTime >= :start AND f.departureTime < :end "
+                + seek
+                + "ORDER BY f.departureTime, f.id", FlightView.class)
+                .setParameter("routeId", routeId)
+                .setParameter("start", startOfDay)
+                .setParameter("end", endOfDay)
+                .setMaxResults(limit);
+        if (afterDeparture != null) {
+            query.setParameter("afterDeparture", afterDeparture)
+                    .setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<FlightView> findViewsPage(Long routeId, LocalDateTime from, LocalDateTime to,
+            String flightNumberPrefix, boolean descending, KeysetCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder(VIEW_SELECT).append("WHERE 1 = 1 ");
+        if (routeId != null) {
+            jpql.append("AND r.id = :routeId ");
+        }
+        if (from != null) {
+            jpql.append("AND f.departureTime >= :from ");
+        }
+        if (to != null) {
+            jpql.append("AND f.departureTime < :to ");
+        }
+        if (flightNumberPrefix != null) {
+            jpql.append("AND f.flightNumber LIKE :flightNumber ESCAPE '!' ");
+        }
+        if (after != null) {
+            jpql.append("AND ").append(KeysetCursor.seekClause("f.departureTime", "f.id", descending));
+        }
+        jpql.append(KeysetCursor.orderBy("f.departureTime", "f.id", descending));
+
+        TypedQuery<FlightView> query = em.createQuery(jpql.toString(), FlightView.class)
+                .setMaxResults(limit);
+        if (routeId != null) {
+            query.setParameter("routeId", routeId);
+        }
+        if (from != null) {
+            query.setParameter("from", from);
+        }
+        if (to != null) {
+            query.setParameter("to", to);
+        }
+        if (flightNumberPrefix != null) {
+            query.setParameter("flightNumber", LikePatterns.prefix(flightNumberPrefix));
+        }
+        if (after != null) {
+            query.setParameter("afterTime", after.time())
+                    .setParameter("afterId", after.id());
+        }
+        return query.getResultList();
+    }
+
+    @Override
+    public List<Long> findPopularUpcomingIds(LocalDateTime since, LocalDateTime until, double loadWeight, int limit) {
+        // Đếm booking gần đây qua idx_bookings_date rồi JOIN theo flight_id,
+        // chỉ các chuyến trong khoảng khởi hành được xếp hạng
+        List<?> rows = em.createNativeQuery(
+                "SELECT TOP (:limit) f.id FROM Flights f "
+                + "JOIN Aircrafts a ON a.id = f.aircraft_id "
+                + "LEFT JOIN (SELECT b.flight_id, COUNT(*) AS recent FROM Bookings b "
+                + "WHERE b.booking_date >= :since AND b.status <> 'CANCELLED' "
+                + "GROUP BY b.flight_id) v ON v.flight_id = f.id "
+                + "WHERE f.departure_time > :now AND f.departure_time < :until AND f.available_seats > 0 "
+                + "ORDER BY COALESCE(v.recent, 0) "
+                + "+ :loadWeight * (1.0 - CAST(f.available_seats AS FLOAT) / a.capacity) DESC, "
+                + "f.departure_time, f.id")
+                .setParameter("limit", limit)
+                .setParameter("since", since)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("until", until)
+                .setParameter("loadWeight", loadWeight)
+                .getResultList();
+        return rows.stream()
+                .map(id -> ((Number) id).longValue())
+                .toList();
+    }
+
+    @Override
+    public List<Long> findUpcomingIds(LocalDateTime from, int limit) {
+        return em.createQuery(
+                "SELECT f.id FROM Flight f "
+                + "WHERE f.departureTime > :from AND f.availableSeats > 0 "
+                + "ORDER BY f.departureTime, f.id", Long.class)
+                .setParameter("from", from)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    public List<Object[]> findUpcomingIdsByRoutes(Collection<Long> routeIds, int perRoute) {
+        if (routeIds.isEmpty()) {
+            return List.of();
+        }
+        // CROSS APPLY TOP: mỗi route chỉ seek đúng perRoute dòng đầu tiên sau
+        // :now trên (route_id, departure_time), không phụ thuộc lịch sử route
+        List<?> rows = em.createNativeQuery(
+                "SELECT t.id, r.id FROM Routes r "
+                + "CROSS APPLY (SELECT TOP (:perRoute) f.id, f.departure_time FROM Flights f "
+                + "WHERE f.route_id = r.id AND f.departure_time > :now AND f.available_seats > 0 "
+                + "ORDER BY f.departure_time, f.id) t "
+                + "WHERE r.id IN (:routeIds) "
+                + "ORDER BY r.id, t.departure_time, t.id")
+                .setParameter("perRoute", perRoute)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("routeIds", routeIds)
+                .getResultList();
+        return rows.stream()
+                .map(row -> (Object[]) row)
+                .map(row -> new Object[]{((Number) row[0]).longValue(), ((Number) row[1]).longValue()})
+                .toList();
+    }
+
+    @Override
+    public List<FlightView> findViewsByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return em.createQuery(VIEW_SELECT + "WHERE f.id IN :ids", FlightView.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
     // THÊM PHƯƠNG THỨC MỚI
     @Override
     public List<Object[]> findTopFlightsByBookingCount(int limit) {
+        // Chỉ nhóm theo khoá ngoại, không JOIN / hydrate Flight
         return em.createQuery(
-                "SELECT b.flight, COUNT(b.id) FROM Booking b "
-                + "GROUP BY b.flight "
+                "SELECT b.flight.id, COUNT(b.id) FROM Booking b "
+                + "GROUP BY b.flight.id "
                 + "ORDER BY COUNT(b.id) DESC", Object[].class)
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    @Override
+    public List<Flight> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return em.createQuery(
+                "SELECT f FROM Flight f "
+                + "JOIN FETCH f.route "
+                + "JOIN FETCH f.aircraft "
+                + "WHERE f.id IN :ids", Flight.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
+
+    @Override
+    public boolean reserveSeats(Long flightId, int count) {
+        // Điều kiện nằm trong WHERE nên DB tự khoá đúng 1 dòng trong lúc UPDATE,
+        // không bao giờ bán quá số ghế và không cần SELECT trước.
+        int updated = em.createQuery(
+                "UPDATE Flight f "
+                + "SET f.availableSeats = f.availableSeats - :count, "
+                + "f.updatedAt = :now, "
+                + "f.version = f.version + 1 "
+                + "WHERE f.id = :id AND f.availableSeats >= :count")
+                .setParameter("count", count)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", flightId)
+                .executeUpdate();
+        return updated == 1;
+    }
+
+    @Override
+    public boolean releaseSeats(Long flightId, int count) {
+        int updated = em.createQuery(
+                "UPDATE Flight f "
+                + "SET f.availableSeats = f.availableSeats + :count, "
+                + "f.updatedAt = :now, "
+                + "f.version = f.version + 1 "
+                + "WHERE f.id = :id")
+                .setParameter("count", count)
+                .setParameter("now", LocalDateTime.now())
+                .setParameter("id", flightId)
+                .executeUpdate();
+        if (updated == 0) {
+            return false;
+        }
+        // Dòng đang bị khoá bởi UPDATE trên: giá trị đọc được là của chính nó
+        Integer available = em.createQuery(
+                "SELECT f.availableSeats FROM Flight f WHERE f.id = :id", Integer.class)
+                .setParameter("id", flightId)
+                .getSingleResult();
+        return available == count;
+    }
+
+    private static final String SCHEDULE_SELECT
+            = "SELECT f.id, f.route.id, f.flightNumber, f.departureTime, f.arrivalTime, "
+            + "f.price, f.availableSeats, f.version FROM Flight f ";
+
+    @Override
+    public List<Object[]> findScheduleRows(LocalDateTime from) {
+        return em.createQuery(
+                SCHEDULE_SELECT
+                + "WHERE f.departureTime >= :from "
+                + "ORDER BY f.route.id, f.departureTime", Object[].class)
+                .setParameter("from", from)
+                .getResultList();
+    }
+
+    @Override
+    public List<Long> findIdsByAircraftId(Long aircraftId) {
+        return em.createQuery("SELECT f.id FROM Flight f WHERE f.aircraft.id = :aircraftId", Long.class)
+                .setParameter("aircraftId", aircraftId)
+                .getResultList();
+    }
+
+    @Override
+    public Optional<Object[]> findScheduleRow(Long flightId) {
+        return em.createQuery(
+                SCHEDULE_SELECT + "WHERE f.id = :id", Object[].class)
+                .setParameter("id", flightId)
+                .getResultStream()
+                .findFirst();
+    }
+
+    @Override
+    public List<Object[]> findDailyFares(Long routeId, LocalDateTime from, LocalDateTime to) {
+        return em.createQuery(
+                "SELECT CAST(f.departureTime AS LocalDate), "
+                + "MIN(CASE WHEN f.availableSeats > 0 THEN f.price END), "
+                + "SUM(f.availableSeats), COUNT(f) "
+                + "FROM Flight f "
+                + "WHERE f.route.id = :routeId "
+                + "AND f.departureTime >= :from AND f.departureTime < :to "
+                + "GROUP BY CAST(f.departureTime AS LocalDate)", Object[].class)
+                .setParameter("routeId", routeId)
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
 }
@@ -0,0 +1,111 @@
+package com.airline.dao.impl;
+
+import com.airline.dao.PaymentCallbackDAO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+public class PaymentCallbackDAOImpl implements PaymentCallbackDAO {
+
+    // UPDLOCK + HOLDLOCK chỉ khoá đúng khoá txn_ref (seek trên PK): hai callback
+    // trùng đến cùng lúc được xếp hàng, callback sau thấy dòng đã có và không
+    // INSERT; các txn_ref khác không chờ nhau
+    private static final String INSERT_IF_ABSENT_SQL
+            = "INSERT INTO PaymentCallbacks (txn_ref, response_code, amount, received_at) "
+            + "SELECT :txnRef, :responseCode, :amount, GETDATE() "
+            + "WHERE NOT EXISTS (SELECT 1 FROM PaymentCallbacks WITH (UPDLOCK, HOLDLOCK) "
+            + "WHERE txn_ref = :txnRef)";
+
+    private static final String MARK_PROCESSED_SQL
+            = "UPDATE PaymentCallbacks SET processed_at = GETDATE() "
+            + "WHERE txn_ref = :txnRef AND processed_at IS NULL";
+
+    private static final String RECORD_FAILURE_SQL
+            = "UPDATE PaymentCallbacks SET attempts = attempts + 1, last_error = :error "
+            + "WHERE txn_ref = :txnRef AND processed_at IS NULL";
+
+    // Độ dài cột last_error
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public boolean insertIfAbsent(String txnRef, String responseCode, long amount) {
+        return em.createNativeQuery(INSERT_IF_ABSENT_SQL)
+                .setParameter("txnRef", txnRef)
+                .setParameter("responseCode", responseCode)
+                .setParameter("amount", amount)
+                .executeUpdate() == 1;
+    }
+
+    @Override
+    public boolean markProcessed(String txnRef) {
+        return em.createNativeQuery(MARK_PROCESSED_SQL)
+                .setParameter("txnRef", txnRef)
+                .executeUpdate() == 1;
+    }
+
+    @Override
+    public Map<String, String> findPendingResponseCodes(Collection<String> txnRefs) {
+        Map<String, String> codes = new HashMap<>();
+        if (txnRefs.isEmpty()) {
+            return codes;
+        }
+        List<?> rows = em.createNativeQuery(
+                "SELECT txn_ref, response_code FROM PaymentCallbacks "
+                + "WHERE txn_ref IN (:txnRefs) AND processed_at IS NULL")
+                .setParameter("txnRefs", txnRefs)
+                .getResultList();
+        for (Object row : rows) {
+            Object[] columns = (Object[]) row;
+            codes.put((String) columns[0], (String) columns[1]);
+        }
+        return codes;
+    }
+
+    @Override
+    public List<String> findPending(LocalDateTime receivedBefore, int maxAttempts, int limit) {
+        List<?> rows = em.createNativeQuery(
+                "SELECT TOP (:limit) txn_ref FROM PaymentCallbacks "
+                + "WHERE processed_at IS NULL AND received_at < :receivedBefore AND attempts < :maxAttempts "
+                + "ORDER BY received_at")
+                .setParameter("limit", limit)
+                .setParameter("receivedBefore", receivedBefore)
+                .setParameter("maxAttempts", maxAttempts)
+                .getResultList();
+        return rows.stream()
+                .map(String.class::cast)
+                .toList();
+    }
+
+    @Override
+    public int recordFailure(String txnRef, String error) {
+        String message = error == null ? "unknown" : error;
+        int updated = em.createNativeQuery(RECORD_FAILURE_SQL)
+                .setParameter("txnRef", txnRef)
+                .setParameter("error", message.length() > MAX_ERROR_LENGTH
+                        ? message.substring(0, MAX_ERROR_LENGTH) : message)
+                .executeUpdate();
+        if (updated == 0) {
+            return 0;
+        }
+        return ((Number) em.createNativeQuery("SELECT attempts FROM PaymentCallbacks WHERE txn_ref = :txnRef")
+                .setParameter("txnRef", txnRef)
+                .getSingleResult()).intValue();
+    }
+
+    @Override
+    public long countExhausted(int maxAttempts) {
+        return ((Number) em.createNativeQuery(
+                "SELECT COUNT(*) FROM PaymentCallbacks WHERE processed_at IS NULL AND attempts >= :maxAttempts")
+                .setParameter("maxAttempts", maxAttempts)
+                .getSingleResult()).longValue();
+    }
+}
@@ -6,6 +6,7 @@ import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -52,12 +53,34 @@ public class PaymentDAOImpl implements PaymentDAO {
                 .getResultList();
     }
 
+    @Override
+    public List<Payment> findByTransactionIds(Collection<String> transactionIds) {
+        if (transactionIds.isEmpty()) {
+            return List.of();
+        }
+        return em.createQuery(
+                "SELECT p FROM Payment p JOIN FETCH p.booking WHERE p.transactionId IN :transactionIds",
+                Payment.class)
+                .setParameter("transactionIds", transactionIds)
+                .getResultList();
+    }
+
     @Override
     public List<Payment> findAll() {
         return em.createQuery("SELECT p FROM Payment p ORDER BY p.paymentDate DESC", Payment.class)
                 .getResultList();
     }
 
+    @Override
+    public List<Payment> findByStatus(Payment.PaymentStatus status, int limit) {
+        return em.createQuery(
+                "SELECT p FROM Payment p JOIN FETCH p.booking WHERE p.status = :status "
+                + "ORDER BY p.paymentDate, p.id", Payment.class)
+                .setParameter("status", status)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
     @Override
     public void delete(Payment payment) {
         if (em.contains(payment)) {
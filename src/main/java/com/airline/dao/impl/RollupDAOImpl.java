@@ -0,0 +1,190 @@
+package com.airline.dao.impl;
+
+import com.airline.dao.RollupDAO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public class RollupDAOImpl implements RollupDAO {
+
+    // Cộng delta và làm mới các cột chiều (flight có thể đã đổi route / máy
+    // bay) của dòng đã có; flight đã bị xoá thì không đụng tới
+    private static final String UPDATE_DELTA_SQL
+            = "UPDATE FlightRollups SET "
+            + "stat_date = (SELECT CAST(f.departure_time AS DATE) FROM Flights f WHERE f.id = :flightId), "
+            + "route_id = (SELECT f.route_id FROM Flights f WHERE f.id = :flightId), "
+            + "aircraft_id = (SELECT f.aircraft_id FROM Flights f WHERE f.id = :flightId), "
+            + "capacity = (SELECT a.capacity FROM Flights f JOIN Aircrafts a ON a.id = f.aircraft_id "
+            + "WHERE f.id = :flightId), "
+            + "confirmed_bookings = confirmed_bookings + :bookings, "
+            + "booked_seats = booked_seats + :seats, "
+            + "revenue = revenue + :revenue, "
+            + "updated_at = GETDATE() "
+            + "WHERE flight_id = :flightId AND EXISTS (SELECT 1 FROM Flights WHERE id = :flightId)";
+
+    // UPDLOCK, HOLDLOCK: hai booking của cùng một flight xác nhận đồng thời
+    // không thể cùng INSERT dòng mới; bên chờ thấy dòng đã có và cộng lại
+    // bằng UPDATE_DELTA_SQL
+    private static final String INSERT_DELTA_SQL
+            = "INSERT INTO FlightRollups "
+            + "(flight_id, stat_date, route_id, aircraft_id, capacity, confirmed_bookings, booked_seats, revenue) "
+            + "SELECT f.id, CAST(f.departure_time AS DATE), f.route_id, f.aircraft_id, a.capacity, "
+            + ":bookings, :seats, :revenue "
+            + "FROM Flights f JOIN Aircrafts a ON a.id = f.aircraft_id "
+            + "WHERE f.id = :flightId AND NOT EXISTS "
+            + "(SELECT 1 FROM FlightRollups WITH (UPDLOCK, HOLDLOCK) WHERE flight_id = :flightId)";
+
+    private static final String SYNC_AIRCRAFT_SQL
+            = "UPDATE FlightRollups SET "
+            + "capacity = (SELECT a.capacity FROM Aircrafts a WHERE a.id = :aircraftId), "
+            + "updated_at = GETDATE() "
+            + "WHERE aircraft_id = :aircraftId";
+
+    private static final String DELETE_ORPHAN_SQL
+            = "DELETE FROM FlightRollups WHERE flight_id = :flightId "
+            + "AND NOT EXISTS (SELECT 1 FROM Flights WHERE id = :flightId)";
+
+    // Khoá (tới khi commit) mọi booking của dải trước khi đụng tới
+    // FlightRollups: booking đang xác nhận / huỷ dở dang thì chờ nó commit
+    // (delta của nó đã vào bảng rollup cũ và được đọc lại dưới đây), booking
+    // đổi trạng thái sau đó thì chờ backfill commit rồi mới cộng delta vào
+    // dòng vừa dựng lại
+    private static final String REBUILD_LOCK_SQL
+            = "SELECT COUNT(*), SUM(total_price) FROM Bookings WITH (HOLDLOCK) "
+            + "WHERE flight_id BETWEEN :fromId AND :toId";
+
+    private static final String REBUILD_DELETE_SQL
+            = "DELETE FROM FlightRollups WHERE flight_id BETWEEN :fromId AND :toId";
+
+    private static final String REBUILD_INSERT_SQL
+            = "INSERT INTO FlightRollups (flight_id, stat_date, route_id, aircraft_id, capacity, "
+            + "confirmed_bookings, booked_seats, revenue) "
+            + "SELECT f.id, CAST(f.departure_time AS DATE), f.route_id, f.aircraft_id, a.capacity, "
+            + "ISNULL(b.bookings, 0), ISNULL(b.seats, 0), ISNULL(b.revenue, 0) "
+            + "FROM Flights f "
+            + "JOIN Aircrafts a ON a.id = f.aircraft_id "
+            + "LEFT JOIN ("
+            + "SELECT bk.flight_id, COUNT(*) AS bookings, SUM(bk.total_price) AS revenue, "
+            + "SUM(ISNULL(p.seats, 0)) AS seats "
+            + "FROM Bookings bk WITH (HOLDLOCK) "
+            + "LEFT JOIN (SELECT booking_id, COUNT(*) AS seats FROM BookingPassengers GROUP BY booking_id) p "
+            + "ON p.booking_id = bk.id "
+            + "WHERE bk.status = 'CONFIRMED' AND bk.flight_id BETWEEN :fromId AND :toId "
+            + "GROUP BY bk.flight_id"
+            + ") b ON b.flight_id = f.id "
+            + "WHERE f.id BETWEEN :fromId AND :toId";
+
+    private static final String SUM_COLUMNS
+            = "SUM(r.confirmed_bookings), SUM(r.booked_seats), SUM(r.capacity), SUM(r.revenue) ";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public void applyDelta(Long flightId, int bookings, int seats, BigDecimal revenue) {
+        if (executeDelta(UPDATE_DELTA_SQL, flightId, bookings, seats, revenue) > 0
+                || executeDelta(INSERT_DELTA_SQL, flightId, bookings, seats, revenue) > 0) {
+            return;
+        }
+        // Một transaction khác vừa tạo dòng (hoặc flight không còn tồn tại)
+        executeDelta(UPDATE_DELTA_SQL, flightId, bookings, seats, revenue);
+    }
+
+    private int executeDelta(String sql, Long flightId, int bookings, int seats, BigDecimal revenue) {
+        return em.createNativeQuery(sql)
+                .setParameter("flightId", flightId)
+                .setParameter("bookings", bookings)
+                .setParameter("seats", seats)
+                .setParameter("revenue", revenue)
+                .executeUpdate();
+    }
+
+    @Override
+    public void syncFlight(Long flightId) {
+        // Thay đổi của flight (kể cả xoá) phải nằm trong DB trước khi đọc
+        em.flush();
+        em.createNativeQuery(DELETE_ORPHAN_SQL)
+                .setParameter("flightId", flightId)
+                .executeUpdate();
+        // Flight còn tồn tại: delta 0 làm mới các cột chiều / tạo dòng
+        applyDelta(flightId, 0, 0, BigDecimal.ZERO);
+    }
+
+    @Override
+    public int syncAircraft(Long aircraftId) {
+        em.flush();
+        return em.createNativeQuery(SYNC_AIRCRAFT_SQL)
+                .setParameter("aircraftId", aircraftId)
+                .executeUpdate();
+    }
+
+    @Override
+    public long[] findFlightIdRange() {
+        Object[] row = (Object[]) em.createNativeQuery("SELECT MIN(id), MAX(id) FROM Flights")
+                .getSingleResult();
+        if (row[0] == null) {
+            return null;
+        }
+        return new long[]{((Number) row[0]).longValue(), ((Number) row[1]).longValue()};
+    }
+
+    @Override
+    public int rebuildRange(long fromId, long toId) {
+        em.createNativeQuery(REBUILD_LOCK_SQL)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .getSingleResult();
+        em.createNativeQuery(REBUILD_DELETE_SQL)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+        return em.createNativeQuery(REBUILD_INSERT_SQL)
+                .setParameter("fromId", fromId)
+                .setParameter("toId", toId)
+                .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> sumByDay(LocalDate from, LocalDate to) {
+        return em.createNativeQuery(
+                "SELECT r.stat_date, " + SUM_COLUMNS
+                + "FROM FlightRollups r "
+                + "WHERE r.stat_date BETWEEN :from AND :to "
+                + "GROUP BY r.stat_date ORDER BY r.stat_date")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> sumByRoute(LocalDate from, LocalDate to) {
+        return em.createNativeQuery(
+                "SELECT r.route_id, " + SUM_COLUMNS
+                + "FROM FlightRollups r "
+                + "WHERE r.stat_date BETWEEN :from AND :to "
+                + "GROUP BY r.route_id ORDER BY SUM(r.revenue) DESC")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object[]> sumByAircraft(LocalDate from, LocalDate to) {
+        return em.createNativeQuery(
+                "SELECT r.aircraft_id, a.model_name, " + SUM_COLUMNS
+                + "FROM FlightRollups r "
+                + "JOIN Aircrafts a ON a.id = r.aircraft_id "
+                + "WHERE r.stat_date BETWEEN :from AND :to "
+                + "GROUP BY r.aircraft_id, a.model_name ORDER BY SUM(r.revenue) DESC")
+                .setParameter("from", from)
+                .setParameter("to", to)
+                .getResultList();
+    }
+}
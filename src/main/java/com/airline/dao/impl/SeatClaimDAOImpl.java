@@ -0,0 +1,51 @@
+package com.airline.dao.impl;
+
+import com.airline.dao.SeatClaimDAO;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.stereotype.Repository;
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public class SeatClaimDAOImpl implements SeatClaimDAO {
+
+    // Giống PaymentCallbacks: UPDLOCK + HOLDLOCK khoá đúng khoá (flight, seat),
+    // hai booking giành cùng một ghế được xếp hàng và booking sau không INSERT
+    private static final String CLAIM_SQL
+            = "INSERT INTO SeatClaims (flight_id, seat_number, claimed_at) "
+            + "SELECT :flightId, :seatNumber, GETDATE() "
+            + "WHERE NOT EXISTS (SELECT 1 FROM SeatClaims WITH (UPDLOCK, HOLDLOCK) "
+            + "WHERE flight_id = :flightId AND seat_number = :seatNumber)";
+
+    @PersistenceContext
+    private EntityManager em;
+
+    @Override
+    public boolean claim(Long flightId, String seatNumber) {
+        return em.createNativeQuery(CLAIM_SQL)
+                .setParameter("flightId", flightId)
+                .setParameter("seatNumber", seatNumber)
+                .executeUpdate() == 1;
+    }
+
+    @Override
+    public int release(Long flightId, Collection<String> seatNumbers) {
+        if (seatNumbers.isEmpty()) {
+            return 0;
+        }
+        return em.createNativeQuery(
+                "DELETE FROM SeatClaims WHERE flight_id = :flightId AND seat_number IN (:seatNumbers)")
+                .setParameter("flightId", flightId)
+                .setParameter("seatNumbers", seatNumbers)
+                .executeUpdate();
+    }
+
+    @Override
+    public List<String> findClaimedSeats(Long flightId) {
+        List<?> rows = em.createNativeQuery("SELECT seat_number FROM SeatClaims WHERE flight_id = :flightId")
+                .setParameter("flightId", flightId)
+                .getResultList();
+        return rows.stream().map(String.class::cast).toList();
+    }
+}
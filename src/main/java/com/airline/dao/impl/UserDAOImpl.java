@@ -4,11 +4,16 @@
 package com.airline.dao.impl;
 
 import com.airline.dao.UserDAO;
+import com.airline.dto.AdminUserView;
 import com.airline.entity.User;
+import com.airline.util.KeysetCursor;
+import com.airline.util.LikePatterns;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.NoResultException;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -68,6 +73,40 @@ public class UserDAOImpl implements UserDAO {
                 .getResultList();
     }
 
+    @Override
+    public List<AdminUserView> findViewsPage(String query, User.UserRole role, boolean descending,
+            KeysetCursor after, int limit) {
+        StringBuilder jpql = new StringBuilder(
+                "SELECT new com.airline.dto.AdminUserView("
+                + "u.id, u.username, u.fullName, u.email, u.role, u.createdAt) "
+                + "FROM User u WHERE 1 = 1 ");
+        if (query != null) {
+            // Tiền tố: dùng được idx_users_username / idx_users_email
+            jpql.append("AND (u.username LIKE :query ESCAPE '!' OR u.email LIKE :query ESCAPE '!') ");
+        }
+        if (role != null) {
+            jpql.append("AND u.role = :role ");
+        }
+        if (after != null) {
+            jpql.append("AND ").append(KeysetCursor.seekClause("u.createdAt", "u.id", descending));
+        }
+        jpql.append(KeysetCursor.orderBy("u.createdAt", "u.id", descending));
+
+        TypedQuery<AdminUserView> q = em.createQuery(jpql.toString(), AdminUserView.class)
+                .setMaxResults(limit);
+        if (query != null) {
+            q.setParameter("query", LikePatterns.prefix(query));
+        }
+        if (role != null) {
+            q.setParameter("role", role);
+        }
+        if (after != null) {
+            q.setParameter("afterTime", after.time())
+                    .setParameter("afterId", after.id());
+        }
+        return q.getResultList();
+    }
+
     @Override
     public List<User> findByRole(User.UserRole role) {
         return em.createQuery(
@@ -105,11 +144,22 @@ public class UserDAOImpl implements UserDAO {
 
     @Override
     public List<Object[]> findTopUsersByBookingCount(int limit) {
+        // Chỉ nhóm theo khoá ngoại, không JOIN / hydrate User
         return em.createQuery(
-                "SELECT b.user, COUNT(b.id) FROM Booking b "
-                + "GROUP BY b.user "
+                "SELECT b.user.id, COUNT(b.id) FROM Booking b "
+                + "GROUP BY b.user.id "
                 + "ORDER BY COUNT(b.id) DESC", Object[].class)
                 .setMaxResults(limit)
                 .getResultList();
     }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return em.createQuery("SELECT u FROM User u WHERE u.id IN :ids", User.class)
+                .setParameter("ids", ids)
+                .getResultList();
+    }
 }
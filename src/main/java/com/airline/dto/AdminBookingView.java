@@ -0,0 +1,24 @@
+package com.airline.dto;
+
+import com.airline.entity.Booking;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * AdminBookingView Projection chỉ đọc cho danh sách booking của admin: một
+ * dòng / booking, không JOIN FETCH passengers
+ */
+public record AdminBookingView(
+        Long id,
+        Long userId,
+        String username,
+        Long flightId,
+        String flightNumber,
+        LocalDateTime departureTime,
+        String origin,
+        String destination,
+        LocalDateTime bookingDate,
+        BigDecimal totalPrice,
+        Booking.BookingStatus status,
+        Integer passengerCount) {
+}
@@ -0,0 +1,17 @@
+package com.airline.dto;
+
+import com.airline.entity.User;
+import java.time.LocalDateTime;
+
+/**
+ * AdminUserView Projection chỉ đọc cho danh sách user của admin (không load
+ * entity / quan hệ bookings)
+ */
+public record AdminUserView(
+        Long id,
+        String username,
+        String fullName,
+        String email,
+        User.UserRole role,
+        LocalDateTime createdAt) {
+}
@@ -12,6 +12,7 @@ import java.util.List;
 @Builder
 public class BookingResponse {
     private Long id;
+    private String bookingCode;
     private LocalDateTime bookingDate;
     private String status;
     private BigDecimal totalPrice;
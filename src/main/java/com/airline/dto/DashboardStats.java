@@ -16,5 +16,6 @@ public class DashboardStats {
     private Long confirmedBookings;
     private Long cancelledBookings;
     private BigDecimal totalRevenue;
+    private Long successfulPayments;
 }
 
@@ -0,0 +1,17 @@
+package com.airline.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Bất biến: cùng một instance được FareCalendarCache trả cho nhiều request
+ */
+@Value
+@Builder
+public class FareCalendarDay {
+    LocalDate date;
+    BigDecimal minPrice; // null nếu không còn chuyến nào còn ghế
+    long availableSeats;
+    long flightCount;
+}
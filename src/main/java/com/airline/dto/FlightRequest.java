@@ -16,4 +16,5 @@ public class FlightRequest {
     private Integer availableSeats;
     private Long routeId;
     private Long aircraftId;
+    private Long version;
 }
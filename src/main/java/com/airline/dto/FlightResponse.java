@@ -20,4 +20,5 @@ public class FlightResponse {
     private RouteInfo route;
     private String aircraftModel;// ... các thuộc tính khác
     private Long aircraftId; // <-- THÊM DÒNG NÀY
+    private Long version;
 }
@@ -0,0 +1,46 @@
+package com.airline.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * FlightView Projection bất biến của một chuyến bay cho các trang danh sách
+ * chỉ đọc. Được tạo trực tiếp bằng constructor expression trong JPQL nên
+ * Hibernate không hydrate entity, không giữ snapshot dirty-check và không làm
+ * phình persistence context.
+ */
+public record FlightView(
+        Long id,
+        String flightNumber,
+        LocalDateTime departureTime,
+        LocalDateTime arrivalTime,
+        BigDecimal price,
+        Integer availableSeats,
+        Long version,
+        Long routeId,
+        String origin,
+        String destination,
+        BigDecimal distanceKm,
+        Long aircraftId,
+        String aircraftModel) {
+
+    public FlightResponse toResponse() {
+        return FlightResponse.builder()
+                .id(id)
+                .flightNumber(flightNumber)
+                .departureTime(departureTime)
+                .arrivalTime(arrivalTime)
+                .price(price)
+                .availableSeats(availableSeats)
+                .route(RouteInfo.builder()
+                        .id(routeId)
+                        .origin(origin)
+                        .destination(destination)
+                        .distanceKm(distanceKm)
+                        .build())
+                .aircraftModel(aircraftModel)
+                .aircraftId(aircraftId)
+                .version(version)
+                .build();
+    }
+}
@@ -0,0 +1,21 @@
+package com.airline.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ItineraryResponse {
+    private int stops;
+    private LocalDateTime departureTime;
+    private LocalDateTime arrivalTime;
+    private long totalDurationMinutes;
+    private long totalLayoverMinutes;
+    private BigDecimal totalPrice;
+    private List<FlightResponse> legs;
+}
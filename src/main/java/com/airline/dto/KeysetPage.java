@@ -0,0 +1,27 @@
+package com.airline.dto;
+
+import com.airline.util.KeysetCursor;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * KeysetPage Một trang kết quả phân trang keyset: items, con trỏ trang sau
+ * (null nếu là trang cuối)
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor, boolean hasNext, int size) {
+
+    /**
+     * @param rows kết quả query đã lấy dư 1 dòng (limit = size + 1)
+     * @param keyOf khoá (time, id) của một dòng, dùng làm con trỏ trang sau
+     */
+    public static <T> KeysetPage<T> of(List<T> rows, int size, Function<T, KeysetCursor> keyOf) {
+        boolean hasNext = rows.size() > size;
+        List<T> items = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? keyOf.apply(items.get(items.size() - 1)).encode() : null;
+        return new KeysetPage<>(items, nextCursor, hasNext, size);
+    }
+
+    public <R> KeysetPage<R> map(Function<T, R> mapper) {
+        return new KeysetPage<>(items.stream().map(mapper).toList(), nextCursor, hasNext, size);
+    }
+}
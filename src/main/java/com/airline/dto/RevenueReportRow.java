@@ -0,0 +1,19 @@
+package com.airline.dto;
+
+import lombok.*;
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RevenueReportRow {
+    private String key;     // ngày (yyyy-MM-dd), routeId hoặc aircraftId
+    private String label;
+    private long confirmedBookings;
+    private long bookedSeats;
+    private long capacity;
+    private BigDecimal revenue;
+    private double loadFactor; // bookedSeats / capacity
+}
@@ -0,0 +1,19 @@
+package com.airline.dto;
+
+import lombok.*;
+import java.util.List;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SeatMapResponse {
+    private Long flightId;
+    private int rows;
+    private int seatsPerRow;
+    private String columns;
+    private int capacity;
+    private int availableSeats;
+    private List<String> occupiedSeats;
+}
@@ -23,6 +23,10 @@ public class Booking {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Mã đặt chỗ cho khách (SnowflakeIdGenerator, base32), null với dữ liệu cũ
+    @Column(name = "booking_code", length = 20, updatable = false)
+    private String bookingCode;
+
     @Column(name = "booking_date", nullable = false)
     private LocalDateTime bookingDate;
 
@@ -33,6 +37,15 @@ public class Booking {
     @Column(name = "total_price", nullable = false, precision = 10, scale = 2)
     private BigDecimal totalPrice;
 
+    // Thời điểm giữ chỗ (PENDING) hết hạn nếu chưa thanh toán
+    @Column(name = "hold_expires_at")
+    private LocalDateTime holdExpiresAt;
+
+    // Optimistic locking: confirm/cancel đồng thời không ghi đè nhau
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
 
@@ -99,6 +112,7 @@ public class Booking {
             throw new IllegalStateException("Only PENDING bookings can be confirmed");
         }
         this.status = BookingStatus.CONFIRMED;
+        this.holdExpiresAt = null;
     }
 
     public void cancel() {
@@ -106,6 +120,7 @@ public class Booking {
             throw new IllegalStateException("Booking is already cancelled");
         }
         this.status = BookingStatus.CANCELLED;
+        this.holdExpiresAt = null;
     }
 
     public int getPassengerCount() {
@@ -61,7 +61,10 @@ public class Payment {
     public enum PaymentStatus {
         PENDING,
         SUCCESS,
-        FAILED
+        FAILED,
+        // Đã trả tiền nhưng booking đã huỷ / hết hạn giữ chỗ trước khi tiền
+        // về: chờ hoàn tiền, transactionId vẫn là vnp_TxnRef để đối soát
+        REFUND_REQUIRED
     }
 
     // Helper methods
@@ -76,4 +79,8 @@ public class Payment {
     public boolean isPending() {
         return status == PaymentStatus.PENDING;
     }
+
+    public boolean isRefundRequired() {
+        return status == PaymentStatus.REFUND_REQUIRED;
+    }
 }
@@ -0,0 +1,17 @@
+package com.airline.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi admin đổi sức chứa của một máy bay. Rollup (sức chứa của các
+ * chuyến dùng máy bay này) được đồng bộ trước khi commit; sơ đồ ghế trong bộ
+ * nhớ được tính lại sau khi commit.
+ */
+@Getter
+@AllArgsConstructor
+public class AircraftChangedEvent {
+
+    private final Long aircraftId;
+    private final int capacity;
+}
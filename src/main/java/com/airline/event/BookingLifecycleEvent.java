@@ -0,0 +1,42 @@
+package com.airline.event;
+
+import com.airline.entity.Booking;
+import com.airline.entity.Booking.BookingStatus;
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi một booking được tạo, xác nhận hoặc huỷ (kể cả huỷ do hết hạn
+ * giữ chỗ). previousStatus là trạng thái trước chuyển đổi (null khi tạo mới).
+ * Các bộ đếm / rollup / gợi ý lắng nghe sự kiện này sau khi commit.
+ */
+@Getter
+@AllArgsConstructor
+public class BookingLifecycleEvent {
+
+    public enum Type {
+        CREATED, CONFIRMED, CANCELLED
+    }
+
+    private final Type type;
+    private final BookingStatus previousStatus;
+    private final Long bookingId;
+    private final Long userId;
+    private final Long flightId;
+    private final Long routeId;
+    private final BigDecimal totalPrice;
+    private final int passengerCount;
+
+    public static BookingLifecycleEvent of(Type type, BookingStatus previousStatus, Booking booking) {
+        return new BookingLifecycleEvent(
+                type,
+                previousStatus,
+                booking.getId(),
+                booking.getUser().getId(),
+                booking.getFlight().getId(),
+                booking.getFlight().getRoute().getId(),
+                booking.getTotalPrice(),
+                booking.getPassengerCount());
+    }
+}
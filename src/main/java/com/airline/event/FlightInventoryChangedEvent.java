@@ -0,0 +1,62 @@
+package com.airline.event;
+
+import com.airline.entity.Flight;
+import java.time.LocalDate;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi lịch bay hoặc số ghế trống của một chuyến bay thay đổi (tạo / sửa
+ * / xoá flight, đặt vé, huỷ vé, hết hạn giữ chỗ). Các cache đọc lắng nghe sự
+ * kiện này sau khi transaction commit để làm mới đúng (route, ngày) bị ảnh
+ * hưởng.
+ *
+ * scheduleChanged = true khi chính flight được tạo / sửa / xoá (không phải chỉ
+ * số ghế thay đổi do đặt / huỷ vé). seatsReopened = true khi chuyến đang hết
+ * ghế có ghế trở lại (huỷ vé / hết hạn giữ chỗ).
+ */
+@Getter
+@AllArgsConstructor
+public class FlightInventoryChangedEvent {
+
+    private final Long flightId;
+    private final Long routeId;
+    private final LocalDate departureDate;
+    private final boolean scheduleChanged;
+    private final boolean seatsReopened;
+
+    public FlightInventoryChangedEvent(Long flightId, Long routeId, LocalDate departureDate) {
+        this(flightId, routeId, departureDate, false, false);
+    }
+
+    public static FlightInventoryChangedEvent of(Flight flight) {
+        return new FlightInventoryChangedEvent(
+                flight.getId(),
+                flight.getRoute().getId(),
+                flight.getDepartureTime().toLocalDate());
+    }
+
+    /**
+     * Ghế được trả lại; reopened nếu trước đó chuyến bay đã hết ghế
+     */
+    public static FlightInventoryChangedEvent seatsReleased(Flight flight, boolean reopened) {
+        return new FlightInventoryChangedEvent(
+                flight.getId(),
+                flight.getRoute().getId(),
+                flight.getDepartureTime().toLocalDate(),
+                false,
+                reopened);
+    }
+
+    /**
+     * Flight được tạo / sửa / xoá (lịch bay, route, máy bay có thể đã đổi)
+     */
+    public static FlightInventoryChangedEvent scheduleChanged(Flight flight) {
+        return new FlightInventoryChangedEvent(
+                flight.getId(),
+                flight.getRoute().getId(),
+                flight.getDepartureTime().toLocalDate(),
+                true,
+                false);
+    }
+}
@@ -0,0 +1,18 @@
+package com.airline.event;
+
+import java.math.BigDecimal;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi một payment chuyển sang SUCCESS hoặc FAILED
+ */
+@Getter
+@AllArgsConstructor
+public class PaymentCompletedEvent {
+
+    private final Long paymentId;
+    private final Long bookingId;
+    private final BigDecimal amount;
+    private final boolean success;
+}
@@ -0,0 +1,25 @@
+package com.airline.event;
+
+import com.airline.entity.Route;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Phát ra khi admin tạo / sửa / xoá một route. route == null nghĩa là route
+ * đã bị xoá. RouteIndex áp dụng thay đổi sau khi transaction commit.
+ */
+@Getter
+@AllArgsConstructor
+public class RouteChangedEvent {
+
+    private final Long routeId;
+    private final Route route;
+
+    public static RouteChangedEvent saved(Route route) {
+        return new RouteChangedEvent(route.getId(), route);
+    }
+
+    public static RouteChangedEvent deleted(Long routeId) {
+        return new RouteChangedEvent(routeId, null);
+    }
+}
@@ -1,8 +1,16 @@
 package com.airline.service;
 
+import com.airline.dto.AdminBookingView;
+import com.airline.dto.AdminUserView;
+import com.airline.dto.DashboardStats;
+import com.airline.dto.FlightView;
+import com.airline.dto.KeysetPage;
 import com.airline.entity.Aircraft;
+import com.airline.entity.Booking;
 import com.airline.entity.Route;
+import com.airline.entity.User;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
@@ -11,9 +19,32 @@ import java.util.Map;
  */
 public interface AdminService {
 
+    int DEFAULT_PAGE_SIZE = 50;
+    int MAX_PAGE_SIZE = 200;
+
     // Dashboard Statistics
     Map<String, Object> getDashboardStatistics();
 
+    DashboardStats getDashboardStats();
+
+    /**
+     * Chỉ các danh sách top (topUsers, topFlights) của dashboard
+     */
+    Map<String, Object> getDashboardTopLists();
+
+    // ===== Danh sách admin: phân trang keyset, lọc, sắp xếp phía server =====
+    // Ngày lọc [from, to] tính cả hai đầu; cursor null / rỗng là trang đầu;
+    // size bị giới hạn trong [1, MAX_PAGE_SIZE]
+
+    KeysetPage<FlightView> listFlights(Long routeId, LocalDate from, LocalDate to, String flightNumber,
+            boolean descending, String cursor, int size);
+
+    KeysetPage<AdminUserView> listUsers(String query, User.UserRole role, boolean descending,
+            String cursor, int size);
+
+    KeysetPage<AdminBookingView> listBookings(Booking.BookingStatus status, Long userId, Long flightId,
+            LocalDate from, LocalDate to, boolean descending, String cursor, int size);
+
     // Aircraft Management
     Aircraft createAircraft(Aircraft aircraft);
 
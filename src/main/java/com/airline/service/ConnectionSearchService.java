@@ -0,0 +1,23 @@
+package com.airline.service;
+
+import com.airline.dto.ItineraryResponse;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tìm hành trình bay thẳng và nối chuyến (tối đa 2 điểm dừng)
+ */
+public interface ConnectionSearchService {
+
+    int DEFAULT_MIN_LAYOVER_MINUTES = 45;
+    int DEFAULT_MAX_LAYOVER_MINUTES = 360;
+
+    /**
+     * @param maxStops 0 (chỉ bay thẳng), 1 hoặc 2
+     * @param minLayoverMinutes thời gian nối chuyến tối thiểu
+     * @param maxLayoverMinutes thời gian nối chuyến tối đa
+     * @param limit số hành trình tối đa trả về, xếp theo tổng thời gian rồi giá
+     */
+    List<ItineraryResponse> searchItineraries(String origin, String destination, LocalDate date,
+            int passengers, int maxStops, int minLayoverMinutes, int maxLayoverMinutes, int limit);
+}
@@ -0,0 +1,23 @@
+package com.airline.service;
+
+import java.io.Writer;
+import java.time.LocalDate;
+
+/**
+ * Xuất CSV toàn bộ booking / hành khách cho bộ phận tài chính, ghi thẳng ra
+ * Writer theo luồng (bộ nhớ không phụ thuộc số dòng)
+ */
+public interface ExportService {
+
+    enum Dataset {
+        BOOKINGS, PASSENGERS
+    }
+
+    /**
+     * Ghi header + các dòng của dataset có ngày đặt trong [from, to] (null là
+     * bỏ qua) ra out, rồi flush
+     *
+     * @return số dòng dữ liệu đã ghi (không tính header)
+     */
+    long exportCsv(Dataset dataset, LocalDate from, LocalDate to, Writer out);
+}
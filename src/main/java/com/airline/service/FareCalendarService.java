@@ -0,0 +1,20 @@
+package com.airline.service;
+
+import com.airline.dto.FareCalendarDay;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+/**
+ * Lịch giá theo ngày của một route (giá thấp nhất + ghế trống mỗi ngày)
+ */
+public interface FareCalendarService {
+
+    /**
+     * Các ngày trong [from, to] (bao gồm cả hai đầu), ngày không có chuyến vẫn
+     * có mặt với flightCount = 0
+     */
+    List<FareCalendarDay> getFareCalendar(String origin, String destination, LocalDate from, LocalDate to);
+
+    List<FareCalendarDay> getFareCalendar(String origin, String destination, YearMonth month);
+}
@@ -18,14 +18,24 @@ public interface FlightService {
 
     List<Flight> findAvailableFlights();
 
-    List<Flight> searchFlights(String origin, String destination, LocalDate date);
-
     Flight updateFlight(Flight flight);
 
     void deleteFlight(Long id);
 
     boolean hasAvailableSeats(Long flightId, int requiredSeats);
 
-    Map<String, Object> searchFlightsWithPaging(String origin, String destination, LocalDate date, int page, int size);
+    /**
+     * Tìm chuyến bay theo trang; "flights" là List&lt;FlightView&gt; bất biến
+     * (được chia sẻ qua cache)
+     */
+    Map<String, Object> searchFlightViewsWithPaging(String origin, String destination, LocalDate date, int page, int size);
+
+    /**
+     * Tìm chuyến bay theo keyset cursor (departureTime, id). cursor rỗng là
+     * trang đầu; "flights" là List&lt;FlightView&gt;, kết quả có "nextCursor"
+     * (null nếu hết) và "totalFlights" chỉ khi includeTotal (được cache).
+     */
+    Map<String, Object> searchFlightsByCursor(String origin, String destination, LocalDate date,
+            String cursor, int size, boolean includeTotal);
 
 }
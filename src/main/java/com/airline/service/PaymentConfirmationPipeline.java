@@ -0,0 +1,34 @@
+package com.airline.service;
+
+import java.util.Map;
+
+/**
+ * Pipeline xác nhận thanh toán bất đồng bộ cho callback của VNPAY (IPN và
+ * trang return).
+ *
+ * - submit() chỉ ghi nhận callback vào PaymentCallbacks (transaction ngắn) rồi
+ * đưa vào hàng đợi có giới hạn và trả lời ngay; luồng worker gom nhiều callback
+ * vào một transaction để đổi trạng thái Payment / Booking.
+ * - Back-pressure: khi hàng đợi đầy quá lâu, submit() từ chối trước khi ghi DB
+ * (VNPAY sẽ gửi lại).
+ * - Callback đã ghi nhận nhưng chưa áp dụng (restart, lỗi) được nạp lại từ
+ * PaymentCallbacks lúc khởi động và định kỳ; callback lỗi quá nhiều lần
+ * được giữ lại (attempts / last_error) cho người vận hành, không replay nữa.
+ */
+public interface PaymentConfirmationPipeline {
+
+    /**
+     * @param amount vnp_Amount (VND * 100)
+     */
+    PaymentService.CallbackResult submit(String txnRef, String responseCode, long amount);
+
+    /**
+     * Như submit() nhưng cho trang return của trình duyệt: không chờ / từ chối
+     * khi hàng đợi đầy, chỉ ghi nhận để replay áp dụng sau
+     *
+     * @param amount vnp_Amount (VND * 100)
+     */
+    PaymentService.CallbackResult submitReturn(String txnRef, String responseCode, long amount);
+
+    Map<String, Long> getStats();
+}
@@ -0,0 +1,43 @@
+package com.airline.service;
+
+import java.util.Map;
+
+/**
+ * Cổng thanh toán VNPAY giả lập chạy trong ứng dụng, dùng cho load / soak
+ * test offline: nhận URL thanh toán đã ký, kiểm tra chữ ký theo đúng quy tắc
+ * của VNPaySigner, rồi gửi IPN (và trả về query cho trang return) với kết quả
+ * cấu hình được.
+ *
+ * Chỉ bật khi -Dvnpay.simulator.enabled=true (hoặc VNPAY_SIMULATOR_ENABLED).
+ */
+public interface PaymentGatewaySimulator {
+
+    enum Outcome {
+        SUCCESS,
+        FAILURE,
+        // Thất bại với xác suất vnpay.simulator.failureRate
+        RANDOM
+    }
+
+    /**
+     * Kịch bản cho một giao dịch: kết quả, độ trễ trước khi gửi IPN và số lần
+     * gửi IPN (&gt; 1 để giả lập VNPAY gửi lại)
+     */
+    record Scenario(Outcome outcome, long delayMillis, int deliveries) {
+    }
+
+    boolean isEnabled();
+
+    Scenario defaultScenario();
+
+    /**
+     * Xử lý một lần thanh toán: kiểm tra chữ ký / merchant, lên lịch gửi IPN
+     *
+     * @param fields các tham số vnp_* của URL thanh toán (không gồm vnp_SecureHash)
+     * @return query đã ký để gắn vào vnp_ReturnUrl
+     * @throws IllegalArgumentException chữ ký hoặc tham số không hợp lệ
+     */
+    String pay(Map<String, String> fields, String secureHash, Scenario scenario);
+
+    Map<String, Object> getStats();
+}
@@ -7,6 +7,35 @@ import java.util.Optional;
 
 public interface PaymentService {
 
+    /**
+     * Kết quả áp dụng callback VNPAY, kèm RspCode / Message trả lời IPN
+     */
+    enum CallbackResult {
+        // Đã ghi nhận bền vững (PaymentCallbacks), được áp dụng bất đồng bộ
+        ACCEPTED("00", "Confirm Success"),
+        ORDER_NOT_FOUND("01", "Order not found"),
+        ALREADY_CONFIRMED("02", "Order already confirmed"),
+        INVALID_AMOUNT("04", "Invalid amount"),
+        INVALID_SIGNATURE("97", "Invalid signature"),
+        UNKNOWN_ERROR("99", "Unknown error");
+
+        private final String code;
+        private final String message;
+
+        CallbackResult(String code, String message) {
+            this.code = code;
+            this.message = message;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
     Payment createPayment(Long bookingId, BigDecimal amount, String paymentMethod);
 
     Optional<Payment> findById(Long id);
@@ -20,4 +49,41 @@ public interface PaymentService {
     Payment processPayment(Long paymentId, String transactionId);
 
     Payment failPayment(Long paymentId, String reason);
+
+    /**
+     * Tiền đã về nhưng booking không còn giữ chỗ (hết hạn / bị huỷ): đánh dấu
+     * REFUND_REQUIRED, giữ nguyên transactionId (vnp_TxnRef) để hoàn tiền
+     */
+    Payment markRefundRequired(Long paymentId);
+
+    /**
+     * Các payment chờ hoàn tiền, cũ nhất trước
+     */
+    List<Payment> findRefundRequired(int limit);
+
+    /**
+     * Ghi nhận callback (đã xác thực chữ ký) của giao dịch txnRef vào
+     * PaymentCallbacks, chưa đổi trạng thái. Callback trùng trả về
+     * ALREADY_CONFIRMED.
+     *
+     * @param amount vnp_Amount (VND * 100)
+     */
+    CallbackResult recordCallback(String txnRef, String responseCode, long amount);
+
+    /**
+     * Áp dụng các callback đã ghi nhận (chưa xử lý) trong MỘT transaction:
+     * xác nhận / đánh dấu thất bại Payment và Booking, đặt processed_at. Mỗi
+     * callback chỉ được áp dụng một lần dù được gọi lại hay chạy song song.
+     *
+     * @return số callback đã áp dụng
+     */
+    int applyCallbacks(List<String> txnRefs);
+
+    /**
+     * Ghi lại một lần áp dụng callback thất bại (transaction riêng, sau khi
+     * transaction áp dụng đã rollback)
+     *
+     * @return số lần đã thất bại của callback
+     */
+    int recordCallbackFailure(String txnRef, String error);
 }
@@ -1,9 +1,15 @@
 package com.airline.service;
 
+import com.airline.dto.FlightView;
 import com.airline.entity.Flight;
 import java.util.List;
 
 public interface RecommendationService {
     List<Flight> getRecommendedFlights(Long userId, int limit);
+
+    /**
+     * Cùng logic với getRecommendedFlights nhưng trả về projection cho REST API
+     */
+    List<FlightView> getRecommendedFlightViews(Long userId, int limit);
 }
 
@@ -0,0 +1,28 @@
+package com.airline.service;
+
+import com.airline.dto.RevenueReportRow;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Rollup doanh thu / load factor: cập nhật tăng dần theo vòng đời booking,
+ * backfill song song theo chunk, và các báo cáo chỉ đọc bảng rollup
+ */
+public interface RollupService {
+
+    enum GroupBy {
+        DAY, ROUTE, AIRCRAFT
+    }
+
+    List<RevenueReportRow> getRevenueReport(GroupBy groupBy, LocalDate from, LocalDate to);
+
+    /**
+     * Bắt đầu backfill ở background
+     *
+     * @return false nếu đang có một lần backfill chạy
+     */
+    boolean startBackfill();
+
+    Map<String, Object> getBackfillStatus();
+}
@@ -0,0 +1,20 @@
+package com.airline.service;
+
+import java.time.LocalDateTime;
+
+/**
+ * SeatHoldService Quản lý thời hạn giữ chỗ của các booking PENDING. Hết hạn mà
+ * chưa thanh toán thì booking bị huỷ và ghế được trả lại cho chuyến bay.
+ */
+public interface SeatHoldService {
+
+    LocalDateTime newHoldExpiry();
+
+    void hold(Long bookingId, LocalDateTime expiresAt);
+
+    void release(Long bookingId);
+
+    int expireHolds();
+
+    long getOutstandingHolds();
+}
@@ -0,0 +1,28 @@
+package com.airline.service;
+
+import com.airline.dto.SeatMapResponse;
+import com.airline.entity.BookingPassenger;
+import com.airline.entity.Flight;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * SeatMapService Cấp số ghế cho hành khách: ghế được nhận trong DB
+ * (SeatClaims), sơ đồ ghế trong bộ nhớ chỉ dùng làm gợi ý
+ */
+public interface SeatMapService {
+
+    void assignSeats(Flight flight, List<BookingPassenger> passengers);
+
+    void releaseSeats(Long flightId, Collection<String> seatNumbers);
+
+    SeatMapResponse getSeatMap(Long flightId);
+
+    /**
+     * Đồng bộ sơ đồ ghế đang dùng với SeatClaims sau khi chuyến bay / máy bay
+     * thay đổi (bố cục theo sức chứa mới), không bỏ sơ đồ đi
+     */
+    void revalidate(Flight flight);
+
+    void evict(Long flightId);
+}
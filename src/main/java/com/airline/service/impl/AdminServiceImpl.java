@@ -3,15 +3,30 @@
 // ========================================
 package com.airline.service.impl;
 
+import com.airline.cache.TopBookingsSketch;
 import com.airline.dao.*;
+import com.airline.dto.AdminBookingView;
+import com.airline.dto.AdminUserView;
+import com.airline.dto.DashboardStats;
+import com.airline.dto.FlightView;
+import com.airline.dto.KeysetPage;
 import com.airline.entity.*;
+import com.airline.event.AircraftChangedEvent;
+import com.airline.event.RouteChangedEvent;
 import com.airline.service.AdminService;
+import com.airline.util.KeysetCursor;
+import com.airline.util.SpaceSaving;
 import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -28,6 +43,9 @@ public class AdminServiceImpl implements AdminService {
     private final PaymentDAO paymentDAO;
     private final AircraftDAO aircraftDAO;
     private final RouteDAO routeDAO;
+    private final DashboardDAO dashboardDAO;
+    private final TopBookingsSketch topBookingsSketch;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
     public AdminServiceImpl(UserDAO userDAO,
@@ -35,13 +53,19 @@ public class AdminServiceImpl implements AdminService {
             BookingDAO bookingDAO,
             PaymentDAO paymentDAO,
             AircraftDAO aircraftDAO,
-            RouteDAO routeDAO) {
+            RouteDAO routeDAO,
+            DashboardDAO dashboardDAO,
+            TopBookingsSketch topBookingsSketch,
+            ApplicationEventPublisher eventPublisher) {
         this.userDAO = userDAO;
         this.flightDAO = flightDAO;
         this.bookingDAO = bookingDAO;
         this.paymentDAO = paymentDAO;
         this.aircraftDAO = aircraftDAO;
         this.routeDAO = routeDAO;
+        this.dashboardDAO = dashboardDAO;
+        this.topBookingsSketch = topBookingsSketch;
+        this.eventPublisher = eventPublisher;
     }
 
 //    @Override
@@ -79,63 +103,65 @@ public class AdminServiceImpl implements AdminService {
 //
 //        return stats;
 //    }
+    @Override
+    @Transactional(readOnly = true)
+    public DashboardStats getDashboardStats() {
+        return dashboardDAO.loadDashboardStats();
+    }
+
     @Override
     @Transactional(readOnly = true)
     public Map<String, Object> getDashboardStatistics() {
         Map<String, Object> stats = new HashMap<>();
 
-        // Count statistics
-        stats.put("totalUsers", (long) userDAO.findAll().size()); // <-- CHUYỂN SANG LONG
-        stats.put("totalFlights", (long) flightDAO.findAll().size()); // <-- CHUYỂN SANG LONG
-        stats.put("totalBookings", (long) bookingDAO.findAll().size()); // <-- CHUYỂN SANG LONG
-
-        // Booking status breakdown
-        long confirmedBookings = bookingDAO.findByStatus(Booking.BookingStatus.CONFIRMED).size();
-        long pendingBookings = bookingDAO.findByStatus(Booking.BookingStatus.PENDING).size();
-        long cancelledBookings = bookingDAO.findByStatus(Booking.BookingStatus.CANCELLED).size();
+        // Count / revenue statistics: một query aggregate duy nhất
+        DashboardStats counts = dashboardDAO.loadDashboardStats();
+        stats.put("totalUsers", counts.getTotalUsers());
+        stats.put("totalFlights", counts.getTotalFlights());
+        stats.put("totalBookings", counts.getTotalBookings());
+        stats.put("confirmedBookings", counts.getConfirmedBookings());
+        stats.put("pendingBookings", counts.getPendingBookings());
+        stats.put("cancelledBookings", counts.getCancelledBookings());
+        stats.put("totalRevenue", counts.getTotalRevenue());
+        stats.put("successfulPayments", counts.getSuccessfulPayments());
 
-        stats.put("confirmedBookings", confirmedBookings);
-        stats.put("pendingBookings", pendingBookings);
-        stats.put("cancelledBookings", cancelledBookings);
-
-        // Revenue calculation
-        BigDecimal totalRevenue = bookingDAO.findByStatus(Booking.BookingStatus.CONFIRMED)
-                .stream()
-                .map(Booking::getTotalPrice)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        stats.put("totalRevenue", totalRevenue);
+        stats.putAll(getDashboardTopLists());
+        return stats;
+    }
 
-        // Payment statistics
-        long successfulPayments = paymentDAO.findAll().stream()
-                .filter(Payment::isSuccess)
-                .count();
-        stats.put("successfulPayments", successfulPayments);
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getDashboardTopLists() {
+        Map<String, Object> stats = new HashMap<>();
 
         // === THÊM TOP LISTS MỚI ===
+        // Thứ hạng + số booking lấy từ sketch trong bộ nhớ; DB chỉ còn tra
+        // 10 user / 10 chuyến theo khoá chính
         // 1. Top 10 Users by Bookings
-        List<Object[]> topUsersData = userDAO.findTopUsersByBookingCount(10);
-        List<Map<String, Object>> topUsers = topUsersData.stream()
-                .map(arr -> {
-                    User user = (User) arr[0];
-                    Long count = (Long) arr[1];
+        List<SpaceSaving.Entry<Long>> topUserIds = topBookingsSketch.topUsers(10);
+        Map<Long, User> usersById = userDAO.findByIds(keys(topUserIds)).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        List<Map<String, Object>> topUsers = topUserIds.stream()
+                .filter(entry -> usersById.containsKey(entry.key()))
+                .map(entry -> {
                     Map<String, Object> userStat = new HashMap<>();
-                    userStat.put("user", user);
-                    userStat.put("bookingCount", count);
+                    userStat.put("user", usersById.get(entry.key()));
+                    userStat.put("bookingCount", entry.count());
                     return userStat;
                 })
                 .collect(Collectors.toList());
         stats.put("topUsers", topUsers);
 
         // 2. Top 10 Flights by Bookings
-        List<Object[]> topFlightsData = flightDAO.findTopFlightsByBookingCount(10);
-        List<Map<String, Object>> topFlights = topFlightsData.stream()
-                .map(arr -> {
-                    Flight flight = (Flight) arr[0];
-                    Long count = (Long) arr[1];
+        List<SpaceSaving.Entry<Long>> topFlightIds = topBookingsSketch.topFlights(10);
+        Map<Long, Flight> flightsById = flightDAO.findByIds(keys(topFlightIds)).stream()
+                .collect(Collectors.toMap(Flight::getId, Function.identity()));
+        List<Map<String, Object>> topFlights = topFlightIds.stream()
+                .filter(entry -> flightsById.containsKey(entry.key()))
+                .map(entry -> {
                     Map<String, Object> flightStat = new HashMap<>();
-                    flightStat.put("flight", flight);
-                    flightStat.put("bookingCount", count);
+                    flightStat.put("flight", flightsById.get(entry.key()));
+                    flightStat.put("bookingCount", entry.count());
                     return flightStat;
                 })
                 .collect(Collectors.toList());
@@ -145,6 +171,60 @@ public class AdminServiceImpl implements AdminService {
         return stats;
     }
 
+    private static List<Long> keys(List<SpaceSaving.Entry<Long>> entries) {
+        return entries.stream().map(SpaceSaving.Entry::key).collect(Collectors.toList());
+    }
+
+    // ========================================
+    // Admin Listings (keyset)
+    // ========================================
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<FlightView> listFlights(Long routeId, LocalDate from, LocalDate to, String flightNumber,
+            boolean descending, String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        List<FlightView> rows = flightDAO.findViewsPage(routeId, startOf(from), endOf(to),
+                trimToNull(flightNumber), descending, KeysetCursor.decode(cursor), pageSize + 1);
+        return KeysetPage.of(rows, pageSize, f -> new KeysetCursor(f.departureTime(), f.id()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<AdminUserView> listUsers(String query, User.UserRole role, boolean descending,
+            String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        List<AdminUserView> rows = userDAO.findViewsPage(trimToNull(query), role, descending,
+                KeysetCursor.decode(cursor), pageSize + 1);
+        return KeysetPage.of(rows, pageSize, u -> new KeysetCursor(u.createdAt(), u.id()));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public KeysetPage<AdminBookingView> listBookings(Booking.BookingStatus status, Long userId, Long flightId,
+            LocalDate from, LocalDate to, boolean descending, String cursor, int size) {
+        int pageSize = clampPageSize(size);
+        List<AdminBookingView> rows = bookingDAO.findViewsPage(status, userId, flightId, startOf(from),
+                endOf(to), descending, KeysetCursor.decode(cursor), pageSize + 1);
+        return KeysetPage.of(rows, pageSize, b -> new KeysetCursor(b.bookingDate(), b.id()));
+    }
+
+    private static int clampPageSize(int size) {
+        return Math.max(1, Math.min(size, MAX_PAGE_SIZE));
+    }
+
+    private static LocalDateTime startOf(LocalDate date) {
+        return date != null ? date.atStartOfDay() : null;
+    }
+
+    // Ngày "to" tính cả ngày đó: cận trên mở là 0h ngày hôm sau
+    private static LocalDateTime endOf(LocalDate date) {
+        return date != null ? date.plusDays(1).atStartOfDay() : null;
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
     // ========================================
     // Aircraft Management
     // ========================================
@@ -157,7 +237,13 @@ public class AdminServiceImpl implements AdminService {
     public Aircraft updateAircraft(Aircraft aircraft) {
         Aircraft existing = aircraftDAO.findById(aircraft.getId())
                 .orElseThrow(() -> new IllegalArgumentException("Aircraft not found"));
-        return aircraftDAO.save(aircraft);
+        Integer previousCapacity = existing.getCapacity();
+        Aircraft saved = aircraftDAO.save(aircraft);
+        // Sức chứa đổi: rollup (load factor) và sơ đồ ghế của các chuyến dùng máy bay này
+        if (!Objects.equals(previousCapacity, saved.getCapacity())) {
+            eventPublisher.publishEvent(new AircraftChangedEvent(saved.getId(), saved.getCapacity()));
+        }
+        return saved;
     }
 
     @Override
@@ -182,14 +268,18 @@ public class AdminServiceImpl implements AdminService {
         if (routeDAO.findByOriginAndDestination(route.getOrigin(), route.getDestination()).isPresent()) {
             throw new IllegalArgumentException("Route already exists");
         }
-        return routeDAO.save(route);
+        Route saved = routeDAO.save(route);
+        eventPublisher.publishEvent(RouteChangedEvent.saved(saved));
+        return saved;
     }
 
     @Override
     public Route updateRoute(Route route) {
         Route existing = routeDAO.findById(route.getId())
                 .orElseThrow(() -> new IllegalArgumentException("Route not found"));
-        return routeDAO.save(route);
+        Route saved = routeDAO.save(route);
+        eventPublisher.publishEvent(RouteChangedEvent.saved(saved));
+        return saved;
     }
 
     @Override
@@ -197,6 +287,7 @@ public class AdminServiceImpl implements AdminService {
         Route route = routeDAO.findById(id)
                 .orElseThrow(() -> new IllegalArgumentException("Route not found"));
         routeDAO.delete(route);
+        eventPublisher.publishEvent(RouteChangedEvent.deleted(id));
     }
 
     @Override
@@ -1,5 +1,6 @@
 package com.airline.service.impl;
 
+import com.airline.config.RetryOnConflict;
 import com.airline.dao.BookingDAO;
 import com.airline.dao.FlightDAO;
 import com.airline.dao.UserDAO;
@@ -7,13 +8,21 @@ import com.airline.entity.Booking;
 import com.airline.entity.BookingPassenger;
 import com.airline.entity.Flight;
 import com.airline.entity.User;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.event.FlightInventoryChangedEvent;
 import com.airline.service.BookingService;
+import com.airline.service.SeatHoldService;
+import com.airline.service.SeatMapService;
+import com.airline.util.SnowflakeIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -28,6 +37,18 @@ public class BookingServiceImpl implements BookingService {
     @Autowired
     private FlightDAO flightDAO;
 
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private SeatMapService seatMapService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private SnowflakeIdGenerator idGenerator;
+
     @Override
     public Booking createBooking(Long userId, Long flightId, List<BookingPassenger> passengers) {
         User user = userDAO.findById(userId)
@@ -38,21 +59,27 @@ public class BookingServiceImpl implements BookingService {
         
         int passengerCount = passengers.size();
         
-        // Check available seats
-        if (!flight.hasAvailableSeats(passengerCount)) {
-            throw new IllegalStateException("Not enough available seats");
-        }
-        
         // Calculate total price
         BigDecimal totalPrice = flight.getPrice()
             .multiply(BigDecimal.valueOf(passengerCount));
         
+        // Reserve seats atomically (conditional UPDATE, no read-modify-write)
+        if (!flightDAO.reserveSeats(flightId, passengerCount)) {
+            throw new IllegalStateException("Not enough available seats");
+        }
+        
+        // Assign seat numbers (adjacent when possible) from the in-memory seat map;
+        // they are inserted together with the passengers in the same flush
+        seatMapService.assignSeats(flight, passengers);
+        
         // Create booking
         Booking booking = Booking.builder()
+            .bookingCode(idGenerator.nextBookingCode())
             .user(user)
             .flight(flight)
             .totalPrice(totalPrice)
             .status(Booking.BookingStatus.PENDING)
+            .holdExpiresAt(seatHoldService.newHoldExpiry())
             .build();
         
         // Add passengers
@@ -60,11 +87,14 @@ public class BookingServiceImpl implements BookingService {
             booking.addPassenger(passenger);
         }
         
-        // Decrease available seats
-        flight.decreaseAvailableSeats(passengerCount);
-        flightDAO.save(flight);
+        Booking saved = bookingDAO.save(booking);
+        eventPublisher.publishEvent(FlightInventoryChangedEvent.of(flight));
+        eventPublisher.publishEvent(BookingLifecycleEvent.of(BookingLifecycleEvent.Type.CREATED, null, saved));
         
-        return bookingDAO.save(booking);
+        // Start hold timer: seats come back automatically if never paid
+        seatHoldService.hold(saved.getId(), saved.getHoldExpiresAt());
+        
+        return saved;
     }
 
     @Override
@@ -92,25 +122,38 @@ public class BookingServiceImpl implements BookingService {
     }
 
     @Override
+    @RetryOnConflict
     public Booking confirmBooking(Long bookingId) {
         Booking booking = bookingDAO.findById(bookingId)
             .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
         
+        Booking.BookingStatus previousStatus = booking.getStatus();
         booking.confirm();
+        seatHoldService.release(bookingId);
+        eventPublisher.publishEvent(
+            BookingLifecycleEvent.of(BookingLifecycleEvent.Type.CONFIRMED, previousStatus, booking));
         return bookingDAO.save(booking);
     }
 
     @Override
+    @RetryOnConflict
     public Booking cancelBooking(Long bookingId) {
         Booking booking = bookingDAO.findById(bookingId)
             .orElseThrow(() -> new IllegalArgumentException("Booking not found"));
         
+        Booking.BookingStatus previousStatus = booking.getStatus();
         booking.cancel();
+        seatHoldService.release(bookingId);
         
         // Return seats to flight
-        Flight flight = booking.getFlight();
-        flight.increaseAvailableSeats(booking.getPassengerCount());
-        flightDAO.save(flight);
+        boolean reopened = flightDAO.releaseSeats(booking.getFlight().getId(), booking.getPassengerCount());
+        seatMapService.releaseSeats(booking.getFlight().getId(), booking.getPassengers().stream()
+            .map(BookingPassenger::getSeatNumber)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList()));
+        eventPublisher.publishEvent(FlightInventoryChangedEvent.seatsReleased(booking.getFlight(), reopened));
+        eventPublisher.publishEvent(
+            BookingLifecycleEvent.of(BookingLifecycleEvent.Type.CANCELLED, previousStatus, booking));
         
         return bookingDAO.save(booking);
     }
@@ -0,0 +1,246 @@
+package com.airline.service.impl;
+
+import com.airline.cache.FlightScheduleIndex;
+import com.airline.cache.FlightScheduleIndex.FlightSlot;
+import com.airline.cache.RouteIndex;
+import com.airline.dto.FlightResponse;
+import com.airline.dto.ItineraryResponse;
+import com.airline.dto.RouteInfo;
+import com.airline.entity.Route;
+import com.airline.service.ConnectionSearchService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+/**
+ * ConnectionSearchServiceImpl Tìm hành trình trên đồ thị route (RouteIndex)
+ * với lịch bay trong bộ nhớ (FlightScheduleIndex), không query DB.
+ *
+ * - Chặng đầu: các chuyến khởi hành trong ngày từ origin.
+ * - Chặng tiếp: binary search các chuyến khởi hành trong cửa sổ
+ * [giờ đến + minLayover, giờ đến + maxLayover] tại sân bay nối chuyến.
+ * - Chặng cuối luôn phải tới destination nên chỉ xét route trực tiếp tới
+ * destination; điểm nối thứ nhất của hành trình 2 điểm dừng phải có route tới
+ * destination.
+ * - Giữ top-N bằng heap có giới hạn; nhánh nào đã dài hơn kết quả tệ nhất
+ * trong heap thì bỏ qua.
+ */
+@Service
+public class ConnectionSearchServiceImpl implements ConnectionSearchService {
+
+    private static final int MAX_STOPS = 2;
+    private static final int MAX_LIMIT = 100;
+    private static final long MINUTES_PER_DAY = 24 * 60;
+
+    private static final Comparator<Candidate> RANKING = Comparator
+            .comparingLong(Candidate::duration)
+            .thenComparing(Candidate::price);
+
+    @Autowired
+    private RouteIndex routeIndex;
+
+    @Autowired
+    private FlightScheduleIndex flightScheduleIndex;
+
+    private record Candidate(FlightSlot[] legs, long duration, BigDecimal price) {
+    }
+
+    /**
+     * Trạng thái của một lần tìm kiếm
+     */
+    private static final class Search {
+
+        private final String destination;
+        private final int passengers;
+        private final int maxStops;
+        private final int minLayover;
+        private final int maxLayover;
+        private final int limit;
+        // Max-heap: phần tử đầu là kết quả tệ nhất đang giữ
+        private final PriorityQueue<Candidate> best;
+
+        private Search(String destination, int passengers, int maxStops,
+                int minLayover, int maxLayover, int limit) {
+            this.destination = destination;
+            this.passengers = passengers;
+            this.maxStops = maxStops;
+            this.minLayover = minLayover;
+            this.maxLayover = maxLayover;
+            this.limit = limit;
+            this.best = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        }
+
+        private boolean isPruned(FlightSlot first, FlightSlot last) {
+            return best.size() >= limit
+                    && last.arrivalMinute() - first.departureMinute() > best.peek().duration();
+        }
+
+        private void offer(FlightSlot[] path, int length) {
+            FlightSlot[] legs = new FlightSlot[length];
+            System.arraycopy(path, 0, legs, 0, length);
+            BigDecimal price = BigDecimal.ZERO;
+            for (FlightSlot leg : legs) {
+                price = price.add(leg.price());
+            }
+            best.offer(new Candidate(legs,
+                    legs[length - 1].arrivalMinute() - legs[0].departureMinute(), price));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+    }
+
+    @Override
+    public List<ItineraryResponse> searchItineraries(String origin, String destination, LocalDate date,
+            int passengers, int maxStops, int minLayoverMinutes, int maxLayoverMinutes, int limit) {
+        if (origin == null || destination == null || date == null) {
+            throw new IllegalArgumentException("Origin, destination and date are required");
+        }
+        if (origin.equalsIgnoreCase(destination)) {
+            throw new IllegalArgumentException("Origin and destination cannot be the same");
+        }
+        if (maxStops < 0 || maxStops > MAX_STOPS) {
+            throw new IllegalArgumentException("maxStops must be between 0 and " + MAX_STOPS);
+        }
+        if (minLayoverMinutes < 0 || maxLayoverMinutes < minLayoverMinutes) {
+            throw new IllegalArgumentException("Invalid layover range");
+        }
+        if (passengers < 1) {
+            throw new IllegalArgumentException("Passengers must be at least 1");
+        }
+
+        Search search = new Search(destination, passengers, maxStops,
+                minLayoverMinutes, maxLayoverMinutes, Math.max(1, Math.min(limit, MAX_LIMIT)));
+        long dayStart = FlightScheduleIndex.toMinute(date.atStartOfDay());
+        FlightSlot[] path = new FlightSlot[MAX_STOPS + 1];
+        String[] airports = new String[MAX_STOPS + 1];
+        airports[0] = origin;
+
+        for (Route route : routeIndex.getRoutesFrom(origin)) {
+            boolean arrives = route.getDestination().equalsIgnoreCase(destination);
+            if (!arrives && !canContinue(search, route.getDestination(), 1)) {
+                continue;
+            }
+            for (FlightSlot flight : flightScheduleIndex.departures(route.getId(), dayStart, dayStart + MINUTES_PER_DAY)) {
+                if (flight.availableSeats() < passengers || search.isPruned(flight, flight)) {
+                    continue;
+                }
+                path[0] = flight;
+                if (arrives) {
+                    search.offer(path, 1);
+                } else {
+                    airports[1] = route.getDestination();
+                    extend(search, path, airports, 1);
+                }
+            }
+        }
+
+        List<Candidate> ranked = new ArrayList<>(search.best);
+        ranked.sort(RANKING);
+        List<ItineraryResponse> result = new ArrayList<>(ranked.size());
+        for (Candidate candidate : ranked) {
+            result.add(toResponse(candidate));
+        }
+        return result;
+    }
+
+    /**
+     * Nối thêm một chặng từ airports[depth] (path[0..depth-1] đã có)
+     */
+    private void extend(Search search, FlightSlot[] path, String[] airports, int depth) {
+        FlightSlot last = path[depth - 1];
+        long from = last.arrivalMinute() + search.minLayover;
+        long to = last.arrivalMinute() + search.maxLayover + 1;
+        String airport = airports[depth];
+        boolean finalLeg = depth == search.maxStops;
+
+        Collection<Route> nextRoutes = finalLeg
+                ? routeIndex.find(airport, search.destination).map(List::of).orElse(List.of())
+                : routeIndex.getRoutesFrom(airport);
+
+        for (Route route : nextRoutes) {
+            String next = route.getDestination();
+            boolean arrives = next.equalsIgnoreCase(search.destination);
+            if (!arrives && (isVisited(airports, depth, next) || !canContinue(search, next, depth + 1))) {
+                continue;
+            }
+            for (FlightSlot flight : flightScheduleIndex.departures(route.getId(), from, to)) {
+                if (flight.availableSeats() < search.passengers || search.isPruned(path[0], flight)) {
+                    continue;
+                }
+                path[depth] = flight;
+                if (arrives) {
+                    search.offer(path, depth + 1);
+                } else {
+                    airports[depth + 1] = next;
+                    extend(search, path, airports, depth + 1);
+                }
+            }
+        }
+    }
+
+    /**
+     * Từ airport (sau legs chặng) còn có thể tới destination trong số chặng còn
+     * lại hay không
+     */
+    private boolean canContinue(Search search, String airport, int legs) {
+        int legsLeft = search.maxStops + 1 - legs;
+        if (legsLeft <= 0) {
+            return false;
+        }
+        return legsLeft > 1 || routeIndex.find(airport, search.destination).isPresent();
+    }
+
+    private static boolean isVisited(String[] airports, int depth, String airport) {
+        for (int i = 0; i <= depth; i++) {
+            if (airports[i].equalsIgnoreCase(airport)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ItineraryResponse toResponse(Candidate candidate) {
+        FlightSlot[] legs = candidate.legs();
+        List<FlightResponse> legResponses = new ArrayList<>(legs.length);
+        long layover = 0;
+        for (int i = 0; i < legs.length; i++) {
+            FlightSlot leg = legs[i];
+            if (i > 0) {
+                layover += leg.departureMinute() - legs[i - 1].arrivalMinute();
+            }
+            Optional<Route> route = routeIndex.findById(leg.routeId());
+            legResponses.add(FlightResponse.builder()
+                    .id(leg.id())
+                    .flightNumber(leg.flightNumber())
+                    .departureTime(leg.departureTime())
+                    .arrivalTime(leg.arrivalTime())
+                    .price(leg.price())
+                    .availableSeats(leg.availableSeats())
+                    .route(route.map(r -> RouteInfo.builder()
+                            .id(r.getId())
+                            .origin(r.getOrigin())
+                            .destination(r.getDestination())
+                            .distanceKm(r.getDistanceKm())
+                            .build()).orElse(null))
+                    .build());
+        }
+
+        return ItineraryResponse.builder()
+                .stops(legs.length - 1)
+                .departureTime(legs[0].departureTime())
+                .arrivalTime(legs[legs.length - 1].arrivalTime())
+                .totalDurationMinutes(candidate.duration())
+                .totalLayoverMinutes(layover)
+                .totalPrice(candidate.price())
+                .legs(legResponses)
+                .build();
+    }
+}
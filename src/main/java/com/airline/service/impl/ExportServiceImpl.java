@@ -0,0 +1,65 @@
+package com.airline.service.impl;
+
+import com.airline.dao.ExportDAO;
+import com.airline.service.ExportService;
+import com.airline.util.CsvWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+@Service
+public class ExportServiceImpl implements ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportServiceImpl.class);
+
+    private static final Object[] BOOKING_HEADER = {
+        "booking_id", "booking_date", "status", "total_price", "passengers",
+        "user_id", "username", "user_email",
+        "flight_id", "flight_number", "departure_time", "origin", "destination"
+    };
+
+    private static final Object[] PASSENGER_HEADER = {
+        "passenger_id", "booking_id", "full_name", "email", "phone", "seat_number", "booking_status",
+        "flight_number", "departure_time", "origin", "destination"
+    };
+
+    @Autowired
+    private ExportDAO exportDAO;
+
+    /**
+     * readOnly: transaction chỉ để giữ connection cho con trỏ scroll
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportCsv(Dataset dataset, LocalDate from, LocalDate to, Writer out) {
+        long started = System.nanoTime();
+        LocalDateTime start = from != null ? from.atStartOfDay() : null;
+        LocalDateTime end = to != null ? to.plusDays(1).atStartOfDay() : null;
+
+        CsvWriter csv = new CsvWriter(out);
+        long rows;
+        if (dataset == Dataset.BOOKINGS) {
+            csv.writeRow(BOOKING_HEADER);
+            rows = exportDAO.scrollBookings(start, end, csv::writeRow);
+        } else {
+            csv.writeRow(PASSENGER_HEADER);
+            rows = exportDAO.scrollPassengers(start, end, csv::writeRow);
+        }
+        try {
+            csv.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        log.info("Exported {} {} rows in {} ms", rows, dataset,
+                (System.nanoTime() - started) / 1_000_000);
+        return rows;
+    }
+}
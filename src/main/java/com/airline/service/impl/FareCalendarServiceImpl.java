@@ -0,0 +1,97 @@
+package com.airline.service.impl;
+
+import com.airline.cache.FareCalendarCache;
+import com.airline.cache.RouteIndex;
+import com.airline.dao.FlightDAO;
+import com.airline.dto.FareCalendarDay;
+import com.airline.entity.Route;
+import com.airline.service.FareCalendarService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * FareCalendarServiceImpl Lịch giá theo ngày: mỗi tháng của một route là một
+ * query GROUP BY, kết quả được cache theo (route, tháng).
+ */
+@Service
+@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+public class FareCalendarServiceImpl implements FareCalendarService {
+
+    private static final int MAX_DAYS = 62;
+
+    @Autowired
+    private FlightDAO flightDAO;
+
+    @Autowired
+    private RouteIndex routeIndex;
+
+    @Autowired
+    private FareCalendarCache fareCalendarCache;
+
+    @Override
+    public List<FareCalendarDay> getFareCalendar(String origin, String destination, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Invalid date range");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_DAYS) {
+            throw new IllegalArgumentException("Date range must not exceed " + MAX_DAYS + " days");
+        }
+        Route route = routeIndex.find(origin, destination)
+                .orElseThrow(() -> new IllegalArgumentException("Route not found"));
+
+        List<FareCalendarDay> result = new ArrayList<>();
+        Map<LocalDate, FareCalendarDay> days = null;
+        YearMonth loadedMonth = null;
+        for (LocalDate date = from; !date.isAfter(to); date = date.plusDays(1)) {
+            YearMonth month = YearMonth.from(date);
+            if (!month.equals(loadedMonth)) {
+                days = loadMonth(route.getId(), month);
+                loadedMonth = month;
+            }
+            FareCalendarDay day = days.get(date);
+            result.add(day != null ? day : FareCalendarDay.builder().date(date).build());
+        }
+        return result;
+    }
+
+    @Override
+    public List<FareCalendarDay> getFareCalendar(String origin, String destination, YearMonth month) {
+        return getFareCalendar(origin, destination, month.atDay(1), month.atEndOfMonth());
+    }
+
+    private Map<LocalDate, FareCalendarDay> loadMonth(Long routeId, YearMonth month) {
+        Map<LocalDate, FareCalendarDay> cached = fareCalendarCache.get(routeId, month);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = fareCalendarCache.generation(routeId);
+        List<Object[]> rows = flightDAO.findDailyFares(routeId,
+                month.atDay(1).atStartOfDay(), month.plusMonths(1).atDay(1).atStartOfDay());
+
+        Map<LocalDate, FareCalendarDay> days = new HashMap<>();
+        for (Object[] row : rows) {
+            LocalDate date = (LocalDate) row[0];
+            days.put(date, FareCalendarDay.builder()
+                    .date(date)
+                    .minPrice((BigDecimal) row[1])
+                    .availableSeats(row[2] != null ? ((Number) row[2]).longValue() : 0)
+                    .flightCount(((Number) row[3]).longValue())
+                    .build());
+        }
+        days = Collections.unmodifiableMap(days);
+        fareCalendarCache.put(routeId, month, days, generation);
+        return days;
+    }
+}
@@ -1,12 +1,21 @@
 package com.airline.service.impl;
 
+import com.airline.cache.FlightSearchCache;
+import com.airline.cache.FlightSearchCache.Kind;
+import com.airline.cache.FlightSearchCache.SearchKey;
+import com.airline.cache.RouteIndex;
 import com.airline.dao.FlightDAO;
-import com.airline.dao.RouteDAO;
+import com.airline.dto.FlightView;
 import com.airline.entity.Flight;
 import com.airline.entity.Route;
+import com.airline.event.FlightInventoryChangedEvent;
 import com.airline.service.FlightService;
+import com.airline.service.SeatMapService;
+import com.airline.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -24,11 +33,22 @@ public class FlightServiceImpl implements FlightService {
     private FlightDAO flightDAO;
 
     @Autowired
-    private RouteDAO routeDAO;
+    private SeatMapService seatMapService;
+
+    @Autowired
+    private FlightSearchCache flightSearchCache;
+
+    @Autowired
+    private RouteIndex routeIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     @Override
     public Flight createFlight(Flight flight) {
-        return flightDAO.save(flight);
+        Flight saved = flightDAO.save(flight);
+        eventPublisher.publishEvent(FlightInventoryChangedEvent.scheduleChanged(saved));
+        return saved;
     }
 
     @Override
@@ -55,23 +75,13 @@ public class FlightServiceImpl implements FlightService {
         return flightDAO.findAvailableFlights();
     }
 
-    @Override
-    @Transactional(readOnly = true)
-    public List<Flight> searchFlights(String origin, String destination, LocalDate date) {
-        Optional<Route> routeOpt = routeDAO.findByOriginAndDestination(origin, destination);
-
-        if (routeOpt.isEmpty()) {
-            return new ArrayList<>();
-        }
-
-        Route route = routeOpt.get();
-        LocalDateTime startOfDay = date.atStartOfDay();
-
-        return flightDAO.findByRouteAndDate(route.getId(), startOfDay);
-    }
-
     @Override
     public Flight updateFlight(Flight flight) {
+        // Route/ngày cũ (trước khi sửa) cũng phải bị làm mới trong cache
+        flightDAO.findById(flight.getId())
+                .map(FlightInventoryChangedEvent::scheduleChanged)
+                .ifPresent(eventPublisher::publishEvent);
+
         // 1. Vẫn lưu/merge flight như bình thường
         Flight mergedFlight = flightDAO.save(flight);
 
@@ -89,13 +99,21 @@ public class FlightServiceImpl implements FlightService {
             throw new IllegalStateException("Không thể tải lại flight sau khi cập nhật.");
         }
 
+        // Máy bay có thể đã đổi -> đồng bộ lại sơ đồ ghế theo sức chứa mới
+        seatMapService.revalidate(reFetchedFlight.get());
+
         // 3. Trả về đối tượng đã được tải đầy đủ (fully initialized)
+        eventPublisher.publishEvent(FlightInventoryChangedEvent.scheduleChanged(reFetchedFlight.get()));
         return reFetchedFlight.get();
     }
 
     @Override
     public void deleteFlight(Long id) {
-        flightDAO.findById(id).ifPresent(flightDAO::delete);
+        flightDAO.findById(id).ifPresent(flight -> {
+            eventPublisher.publishEvent(FlightInventoryChangedEvent.scheduleChanged(flight));
+            flightDAO.delete(flight);
+        });
+        seatMapService.evict(id);
     }
 
     @Override
@@ -105,12 +123,21 @@ public class FlightServiceImpl implements FlightService {
         return flightOpt.map(f -> f.hasAvailableSeats(requiredSeats)).orElse(false);
     }
 
+    /**
+     * SUPPORTS: cache hit không mở transaction (không chiếm connection)
+     */
     @Override
-    @Transactional(readOnly = true)
-    public Map<String, Object> searchFlightsWithPaging(String origin, String destination, LocalDate date, int page, int size) {
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String, Object> searchFlightViewsWithPaging(String origin, String destination, LocalDate date, int page, int size) {
+        SearchKey key = new SearchKey(Kind.VIEWS, origin, destination, date, page, size);
+        Map<String, Object> cached = flightSearchCache.get(key);
+        if (cached != null) {
+            return new HashMap<>(cached);
+        }
+
         Map<String, Object> result = new HashMap<>();
 
-        Optional<Route> routeOpt = routeDAO.findByOriginAndDestination(origin, destination);
+        Optional<Route> routeOpt = routeIndex.find(origin, destination);
 
         if (routeOpt.isEmpty()) {
             result.put("flights", new ArrayList<>());
@@ -123,12 +150,14 @@ public class FlightServiceImpl implements FlightService {
 
         Route route = routeOpt.get();
         LocalDateTime startOfDay = date.atStartOfDay();
+        long generation = flightSearchCache.generation(route.getId(), date);
 
-        // Get paginated flights
-        List<Flight> flights = flightDAO.findByRouteAndDate(route.getId(), startOfDay, page, size);
+        // Get paginated flights (projection bất biến, an toàn khi chia sẻ qua cache)
+        List<FlightView> flights = List.copyOf(
+                flightDAO.findViewsByRouteAndDate(route.getId(), startOfDay, page, size));
 
         // Get total count
-        long totalFlights = flightDAO.countByRouteAndDate(route.getId(), startOfDay);
+        long totalFlights = countFlights(origin, destination, date, route.getId());
         int totalPages = (int) Math.ceil((double) totalFlights / size);
 
         result.put("flights", flights);
@@ -137,6 +166,61 @@ public class FlightServiceImpl implements FlightService {
         result.put("totalFlights", totalFlights);
         result.put("pageSize", size);
 
+        flightSearchCache.put(key, route.getId(), Map.copyOf(result), flights.size(), generation);
+        return result;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Map<String, Object> searchFlightsByCursor(String origin, String destination, LocalDate date,
+            String cursor, int size, boolean includeTotal) {
+        KeysetCursor after = KeysetCursor.decode(cursor);
+        Map<String, Object> result = new HashMap<>();
+        result.put("pageSize", size);
+
+        Optional<Route> routeOpt = routeIndex.find(origin, destination);
+        if (routeOpt.isEmpty()) {
+            result.put("flights", new ArrayList<>());
+            result.put("nextCursor", null);
+            result.put("hasNext", false);
+            if (includeTotal) {
+                result.put("totalFlights", 0L);
+            }
+            return result;
+        }
+        Long routeId = routeOpt.get().getId();
+
+        // Lấy dư 1 dòng để biết còn trang sau hay không
+        List<FlightView> flights = flightDAO.findViewsByRouteAndDateAfter(routeId, date.atStartOfDay(),
+                after != null ? after.time() : null, after != null ? after.id() : null, size + 1);
+        boolean hasNext = flights.size() > size;
+        if (hasNext) {
+            flights = flights.subList(0, size);
+        }
+        FlightView last = flights.isEmpty() ? null : flights.get(flights.size() - 1);
+
+        result.put("flights", flights);
+        result.put("hasNext", hasNext);
+        result.put("nextCursor", hasNext ? new KeysetCursor(last.departureTime(), last.id()).encode() : null);
+        if (includeTotal) {
+            result.put("totalFlights", countFlights(origin, destination, date, routeId));
+        }
         return result;
     }
+
+    /**
+     * Tổng số chuyến của route trong ngày, cache cùng vòng đời với kết quả tìm
+     * kiếm (bị huỷ khi lịch bay / ghế của route-ngày đó thay đổi)
+     */
+    private long countFlights(String origin, String destination, LocalDate date, Long routeId) {
+        SearchKey key = new SearchKey(Kind.COUNT, origin, destination, date, -1, -1);
+        Long cached = flightSearchCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = flightSearchCache.generation(routeId, date);
+        long count = flightDAO.countByRouteAndDate(routeId, date.atStartOfDay());
+        flightSearchCache.put(key, routeId, count, 1, generation);
+        return count;
+    }
 }
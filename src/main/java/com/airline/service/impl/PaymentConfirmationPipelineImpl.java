@@ -0,0 +1,271 @@
+package com.airline.service.impl;
+
+import com.airline.cache.RecentPaymentCallbacks;
+import com.airline.dao.PaymentCallbackDAO;
+import com.airline.service.PaymentConfirmationPipeline;
+import com.airline.service.PaymentService;
+import com.airline.service.PaymentService.CallbackResult;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+@Service
+public class PaymentConfirmationPipelineImpl
+        implements PaymentConfirmationPipeline, SmartInitializingSingleton, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentConfirmationPipelineImpl.class);
+
+    // Callback đang chờ + đang áp dụng tối đa
+    private static final int CAPACITY = 10_000;
+    // Số callback tối đa trong một transaction
+    private static final int BATCH_SIZE = 100;
+    // Thời gian request chờ chỗ trống trước khi từ chối
+    private static final long SUBMIT_WAIT_MILLIS = 200;
+    // Callback chưa xử lý cũ hơn ngưỡng này được coi là bị bỏ sót
+    private static final long STALE_SECONDS = 60;
+    // Callback áp dụng lỗi chừng này lần thì ngừng replay (chờ người vận hành)
+    private static final int MAX_ATTEMPTS = 10;
+
+    private final PaymentService paymentService;
+    private final PaymentCallbackDAO paymentCallbackDAO;
+    private final RecentPaymentCallbacks recentPaymentCallbacks;
+
+    // Mỗi txnRef giữ một permit từ lúc vào hàng đợi tới khi áp dụng xong
+    private final Semaphore slots = new Semaphore(CAPACITY);
+    private final BlockingQueue<String> queue = new ArrayBlockingQueue<>(CAPACITY);
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "payment-confirmation");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile boolean running = true;
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder applied = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder recordedOnly = new LongAdder();
+    private final LongAdder exhausted = new LongAdder();
+
+    @Autowired
+    public PaymentConfirmationPipelineImpl(PaymentService paymentService, PaymentCallbackDAO paymentCallbackDAO,
+            RecentPaymentCallbacks recentPaymentCallbacks) {
+        this.paymentService = paymentService;
+        this.paymentCallbackDAO = paymentCallbackDAO;
+        this.recentPaymentCallbacks = recentPaymentCallbacks;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        worker.execute(this::drainLoop);
+        try {
+            // Khởi động: mọi callback chưa xử lý đều là của lần chạy trước
+            replay(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("Could not replay pending payment callbacks: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public CallbackResult submit(String txnRef, String responseCode, long amount) {
+        if (recentPaymentCallbacks.contains(txnRef)) {
+            return CallbackResult.ALREADY_CONFIRMED;
+        }
+        try {
+            if (!slots.tryAcquire(SUBMIT_WAIT_MILLIS, TimeUnit.MILLISECONDS)) {
+                rejected.increment();
+                return CallbackResult.UNKNOWN_ERROR;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CallbackResult.UNKNOWN_ERROR;
+        }
+        return record(txnRef, responseCode, amount, true);
+    }
+
+    @Override
+    public CallbackResult submitReturn(String txnRef, String responseCode, long amount) {
+        if (recentPaymentCallbacks.contains(txnRef)) {
+            return CallbackResult.ALREADY_CONFIRMED;
+        }
+        // Không chờ / từ chối: khách đã trả tiền, chỉ cần ghi nhận bền vững;
+        // hết chỗ thì để replayStale áp dụng sau
+        return record(txnRef, responseCode, amount, slots.tryAcquire());
+    }
+
+    /**
+     * @param hasSlot đã giữ một permit cho txnRef (được trả lại nếu không
+     * đưa vào hàng đợi)
+     */
+    private CallbackResult record(String txnRef, String responseCode, long amount, boolean hasSlot) {
+        CallbackResult result;
+        try {
+            result = paymentService.recordCallback(txnRef, responseCode, amount);
+        } catch (RuntimeException e) {
+            if (hasSlot) {
+                slots.release();
+            }
+            log.warn("Could not record payment callback {}: {}", txnRef, e.getMessage());
+            return CallbackResult.UNKNOWN_ERROR;
+        }
+        if (result == CallbackResult.ACCEPTED && hasSlot && inFlight.add(txnRef)) {
+            queue.add(txnRef); // Luôn còn chỗ: đã giữ permit
+            accepted.increment();
+        } else {
+            if (hasSlot) {
+                slots.release();
+            }
+            if (result == CallbackResult.ACCEPTED && !hasSlot) {
+                recordedOnly.increment();
+            }
+        }
+        if (result == CallbackResult.ACCEPTED || result == CallbackResult.ALREADY_CONFIRMED) {
+            recentPaymentCallbacks.add(txnRef);
+        }
+        return result;
+    }
+
+    /**
+     * Nạp lại callback đã ghi nhận nhưng chưa áp dụng (restart giữa chừng, lô
+     * bị lỗi, instance khác dừng đột ngột, trang return lúc hàng đợi đầy).
+     * Callback đã lỗi MAX_ATTEMPTS lần không được nạp lại.
+     */
+    @Scheduled(fixedDelay = 1, initialDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void replayStale() {
+        replay(LocalDateTime.now().minusSeconds(STALE_SECONDS));
+    }
+
+    private void replay(LocalDateTime receivedBefore) {
+        int free = Math.min(slots.availablePermits(), CAPACITY / 2);
+        if (free == 0) {
+            return;
+        }
+        for (String txnRef : paymentCallbackDAO.findPending(receivedBefore, MAX_ATTEMPTS, free)) {
+            if (!slots.tryAcquire()) {
+                break;
+            }
+            if (inFlight.add(txnRef)) {
+                queue.add(txnRef);
+                replayed.increment();
+            } else {
+                slots.release();
+            }
+        }
+    }
+
+    private void drainLoop() {
+        List<String> batch = new ArrayList<>(BATCH_SIZE);
+        while (running) {
+            try {
+                String first = queue.poll(1, TimeUnit.SECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                apply(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("Payment confirmation batch failed", e);
+            } finally {
+                inFlight.removeAll(batch);
+                slots.release(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Cả lô trong một transaction; nếu lô lỗi thì áp dụng từng callback để một
+     * giao dịch hỏng không chặn các giao dịch khác. Callback vẫn lỗi được giữ
+     * trong PaymentCallbacks (tăng attempts, lưu last_error) và thử lại ở lần
+     * replay sau, tối đa MAX_ATTEMPTS lần.
+     */
+    private void apply(List<String> batch) {
+        batches.increment();
+        try {
+            applied.add(paymentService.applyCallbacks(batch));
+            return;
+        } catch (RuntimeException e) {
+            log.warn("Payment confirmation batch of {} failed, applying one by one: {}",
+                    batch.size(), e.getMessage());
+        }
+        for (String txnRef : batch) {
+            try {
+                applied.add(paymentService.applyCallbacks(List.of(txnRef)));
+            } catch (RuntimeException e) {
+                failed.increment();
+                recordFailure(txnRef, e);
+            }
+        }
+    }
+
+    private void recordFailure(String txnRef, RuntimeException failure) {
+        String error = failure.getClass().getSimpleName() + ": " + failure.getMessage();
+        int attempts;
+        try {
+            attempts = paymentService.recordCallbackFailure(txnRef, error);
+        } catch (RuntimeException e) {
+            log.warn("Could not apply payment callback {} ({}), nor record the failure: {}",
+                    txnRef, error, e.getMessage());
+            return;
+        }
+        if (attempts >= MAX_ATTEMPTS) {
+            exhausted.increment();
+            log.error("Payment callback {} failed {} times, no longer replayed: {}", txnRef, attempts, error);
+        } else {
+            log.warn("Could not apply payment callback {} (attempt {}): {}", txnRef, attempts, error);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getStats() {
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("queued", (long) queue.size());
+        stats.put("inFlight", (long) inFlight.size());
+        stats.put("capacity", (long) CAPACITY);
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("batches", batches.sum());
+        stats.put("applied", applied.sum());
+        stats.put("failed", failed.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("recordedOnly", recordedOnly.sum());
+        stats.put("exhausted", exhausted.sum());
+        try {
+            stats.put("exhaustedPending", paymentCallbackDAO.countExhausted(MAX_ATTEMPTS));
+        } catch (RuntimeException e) {
+            stats.put("exhaustedPending", -1L);
+        }
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        running = false;
+        worker.shutdownNow();
+    }
+}
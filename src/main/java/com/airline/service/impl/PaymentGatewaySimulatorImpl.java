@@ -0,0 +1,170 @@
+package com.airline.service.impl;
+
+import com.airline.config.VNPayConfig;
+import com.airline.service.PaymentGatewaySimulator;
+import com.airline.util.VNPaySigner;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Service;
+
+@Service
+public class PaymentGatewaySimulatorImpl implements PaymentGatewaySimulator, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentGatewaySimulatorImpl.class);
+
+    // vnp_ResponseCode khi giả lập thất bại: khách huỷ giao dịch
+    private static final String FAILURE_CODE = "24";
+    private static final DateTimeFormatter PAY_DATE = DateTimeFormatter.ofPattern("yyyyMMddHHmmss");
+    private static final ZoneId VNPAY_ZONE = ZoneId.of("Asia/Ho_Chi_Minh");
+    private static final Pattern RSP_CODE = Pattern.compile("\"RspCode\"\\s*:\\s*\"(\\w+)\"");
+
+    private final boolean enabled = Boolean.parseBoolean(VNPayConfig.setting("vnpay.simulator.enabled", "false"));
+    private final double failureRate = Double.parseDouble(VNPayConfig.setting("vnpay.simulator.failureRate", "0.1"));
+    private final Scenario defaultScenario = new Scenario(
+            Outcome.valueOf(VNPayConfig.setting("vnpay.simulator.outcome", "SUCCESS").toUpperCase()),
+            Long.parseLong(VNPayConfig.setting("vnpay.simulator.delayMillis", "0")),
+            Integer.parseInt(VNPayConfig.setting("vnpay.simulator.deliveries", "1")));
+
+    // Chỉ tạo luồng / HttpClient khi bật giả lập
+    private final ScheduledExecutorService scheduler;
+    private final HttpClient httpClient;
+
+    private final AtomicLong transactionNo = new AtomicLong(System.currentTimeMillis() % 100_000_000L);
+    private final LongAdder payments = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder ipnSent = new LongAdder();
+    private final LongAdder ipnErrors = new LongAdder();
+    private final LongAdder ipnLatencyMicros = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> ipnResponses = new ConcurrentHashMap<>();
+
+    public PaymentGatewaySimulatorImpl() {
+        if (enabled) {
+            int threads = Integer.parseInt(VNPayConfig.setting("vnpay.simulator.threads", "8"));
+            this.scheduler = Executors.newScheduledThreadPool(threads);
+            this.httpClient = HttpClient.newBuilder()
+                    .executor(scheduler)
+                    .connectTimeout(Duration.ofSeconds(5))
+                    .build();
+            log.warn("VNPAY gateway simulator enabled, IPN target {}", VNPayConfig.vnp_IpnUrl);
+        } else {
+            this.scheduler = null;
+            this.httpClient = null;
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public Scenario defaultScenario() {
+        return defaultScenario;
+    }
+
+    @Override
+    public String pay(Map<String, String> fields, String secureHash, Scenario scenario) {
+        if (!enabled) {
+            throw new IllegalStateException("VNPAY simulator is disabled");
+        }
+        VNPaySigner signer = VNPaySigner.forSecret(VNPayConfig.vnp_HashSecret);
+        if (!signer.verify(fields, secureHash)) {
+            rejected.increment();
+            throw new IllegalArgumentException("Invalid signature");
+        }
+        if (!VNPayConfig.vnp_TmnCode.equals(fields.get("vnp_TmnCode"))
+                || fields.get("vnp_TxnRef") == null || fields.get("vnp_Amount") == null) {
+            rejected.increment();
+            throw new IllegalArgumentException("Invalid merchant or missing vnp_TxnRef / vnp_Amount");
+        }
+        payments.increment();
+
+        String responseCode = switch (scenario.outcome()) {
+            case SUCCESS -> "00";
+            case FAILURE -> FAILURE_CODE;
+            case RANDOM -> ThreadLocalRandom.current().nextDouble() < failureRate ? FAILURE_CODE : "00";
+        };
+
+        Map<String, String> callback = new HashMap<>();
+        callback.put("vnp_Amount", fields.get("vnp_Amount"));
+        callback.put("vnp_BankCode", "NCB");
+        callback.put("vnp_OrderInfo", fields.get("vnp_OrderInfo"));
+        callback.put("vnp_PayDate", ZonedDateTime.now(VNPAY_ZONE).format(PAY_DATE));
+        callback.put("vnp_ResponseCode", responseCode);
+        callback.put("vnp_TmnCode", fields.get("vnp_TmnCode"));
+        callback.put("vnp_TransactionNo", String.valueOf(transactionNo.incrementAndGet()));
+        callback.put("vnp_TransactionStatus", responseCode);
+        callback.put("vnp_TxnRef", fields.get("vnp_TxnRef"));
+        String query = signer.signedQuery(callback);
+
+        for (int i = 0; i < Math.max(1, scenario.deliveries()); i++) {
+            scheduler.schedule(() -> deliverIpn(query), Math.max(0, scenario.delayMillis()), TimeUnit.MILLISECONDS);
+        }
+        return query;
+    }
+
+    private void deliverIpn(String query) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(VNPayConfig.vnp_IpnUrl + "?" + query))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+        long started = System.nanoTime();
+        ipnSent.increment();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .whenComplete((response, error) -> {
+                    ipnLatencyMicros.add((System.nanoTime() - started) / 1_000);
+                    if (error != null || response.statusCode() != 200) {
+                        ipnErrors.increment();
+                        return;
+                    }
+                    Matcher matcher = RSP_CODE.matcher(response.body());
+                    String code = matcher.find() ? matcher.group(1) : "unparsed";
+                    ipnResponses.computeIfAbsent(code, c -> new LongAdder()).increment();
+                });
+    }
+
+    @Override
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("defaultScenario", defaultScenario);
+        stats.put("payments", payments.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("ipnSent", ipnSent.sum());
+        stats.put("ipnErrors", ipnErrors.sum());
+        long sent = ipnSent.sum();
+        stats.put("ipnAvgLatencyMicros", sent == 0 ? 0 : ipnLatencyMicros.sum() / sent);
+        Map<String, Long> responses = new LinkedHashMap<>();
+        ipnResponses.forEach((code, count) -> responses.put(code, count.sum()));
+        stats.put("ipnResponses", responses);
+        return stats;
+    }
+
+    @Override
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+}
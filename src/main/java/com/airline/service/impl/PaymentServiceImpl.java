@@ -1,16 +1,24 @@
 package com.airline.service.impl;
 
+import com.airline.config.RetryOnConflict;
 import com.airline.dao.BookingDAO;
+import com.airline.dao.PaymentCallbackDAO;
 import com.airline.dao.PaymentDAO;
 import com.airline.entity.Booking;
 import com.airline.entity.Payment;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.event.PaymentCompletedEvent;
 import com.airline.service.PaymentService;
+import com.airline.service.SeatHoldService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -22,6 +30,15 @@ public class PaymentServiceImpl implements PaymentService {
     @Autowired
     private BookingDAO bookingDAO;
 
+    @Autowired
+    private PaymentCallbackDAO paymentCallbackDAO;
+
+    @Autowired
+    private SeatHoldService seatHoldService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     // === THÊM @Override ===
     @Override
     public Payment createPayment(Long bookingId, BigDecimal amount, String paymentMethod) {
@@ -66,29 +83,114 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
+    @RetryOnConflict
     public Payment processPayment(Long paymentId, String transactionId) {
         Payment payment = paymentDAO.findById(paymentId)
                 .orElseThrow(() -> new IllegalArgumentException("Payment not found"));
+        if (payment.isSuccess()) {
+            return payment; // Callback lặp lại: booking đã được xác nhận
+        }
 
         payment.setStatus(Payment.PaymentStatus.SUCCESS);
         payment.setTransactionId(transactionId);
 
         // Confirm booking
         Booking booking = payment.getBooking();
+        Booking.BookingStatus previousStatus = booking.getStatus();
         booking.confirm();
+        seatHoldService.release(booking.getId());
         bookingDAO.save(booking);
 
+        eventPublisher.publishEvent(
+                BookingLifecycleEvent.of(BookingLifecycleEvent.Type.CONFIRMED, previousStatus, booking));
+        eventPublisher.publishEvent(
+                new PaymentCompletedEvent(payment.getId(), booking.getId(), payment.getAmount(), true));
         return paymentDAO.save(payment);
     }
 
     @Override
+    @RetryOnConflict
     public Payment failPayment(Long paymentId, String reason) {
         Payment payment = paymentDAO.findById(paymentId)
                 .orElseThrow(() -> new IllegalArgumentException("Payment not found"));
 
         payment.setStatus(Payment.PaymentStatus.FAILED);
-        payment.setTransactionId("FAILED: " + reason);
+        // Giữ vnp_TxnRef để đối soát với VNPAY; chỉ payment chưa có mã mới
+        // dùng lý do làm transactionId
+        if (payment.getTransactionId() == null) {
+            payment.setTransactionId("FAILED: " + reason);
+        }
+
+        eventPublisher.publishEvent(
+                new PaymentCompletedEvent(payment.getId(), payment.getBooking().getId(), payment.getAmount(), false));
+        return paymentDAO.save(payment);
+    }
+
+    @Override
+    @RetryOnConflict
+    public Payment markRefundRequired(Long paymentId) {
+        Payment payment = paymentDAO.findById(paymentId)
+                .orElseThrow(() -> new IllegalArgumentException("Payment not found"));
+
+        payment.setStatus(Payment.PaymentStatus.REFUND_REQUIRED);
 
+        eventPublisher.publishEvent(
+                new PaymentCompletedEvent(payment.getId(), payment.getBooking().getId(), payment.getAmount(), false));
         return paymentDAO.save(payment);
     }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<Payment> findRefundRequired(int limit) {
+        return paymentDAO.findByStatus(Payment.PaymentStatus.REFUND_REQUIRED, limit);
+    }
+
+    @Override
+    public CallbackResult recordCallback(String txnRef, String responseCode, long amount) {
+        Optional<Payment> found = paymentDAO.findByTransactionId(txnRef);
+        if (found.isEmpty()) {
+            return CallbackResult.ORDER_NOT_FOUND;
+        }
+        // Cùng quy ước với vnp_Amount lúc tạo link: phần nguyên * 100
+        if (found.get().getAmount().longValue() * 100 != amount) {
+            return CallbackResult.INVALID_AMOUNT;
+        }
+        return paymentCallbackDAO.insertIfAbsent(txnRef, responseCode, amount)
+                ? CallbackResult.ACCEPTED : CallbackResult.ALREADY_CONFIRMED;
+    }
+
+    @Override
+    @RetryOnConflict
+    public int applyCallbacks(List<String> txnRefs) {
+        Map<String, String> responseCodes = paymentCallbackDAO.findPendingResponseCodes(txnRefs);
+        Map<String, Payment> payments = paymentDAO.findByTransactionIds(responseCodes.keySet()).stream()
+                .collect(Collectors.toMap(Payment::getTransactionId, p -> p, (a, b) -> a));
+
+        int applied = 0;
+        for (String txnRef : txnRefs) {
+            String responseCode = responseCodes.get(txnRef);
+            if (responseCode == null || !paymentCallbackDAO.markProcessed(txnRef)) {
+                continue; // Đã xử lý trước đó hoặc bởi instance khác
+            }
+            Payment payment = payments.get(txnRef);
+            if (payment != null && payment.isPending()) {
+                if (!"00".equals(responseCode)) {
+                    failPayment(payment.getId(), "VNPAY " + responseCode);
+                } else if (!payment.getBooking().isPending()) {
+                    // Giữ chỗ đã hết hạn / bị huỷ trước khi tiền về: không xác
+                    // nhận được, ghi lại để hoàn tiền thay vì chặn cả lô
+                    markRefundRequired(payment.getId());
+                } else {
+                    processPayment(payment.getId(), txnRef);
+                }
+            }
+            applied++;
+        }
+        return applied;
+    }
+
+    @Override
+    public int recordCallbackFailure(String txnRef, String error) {
+        return paymentCallbackDAO.recordFailure(txnRef, error);
+    }
 }
@@ -1,19 +1,27 @@
 package com.airline.service.impl;
 
+import com.airline.cache.PopularFlightsCache;
+import com.airline.cache.RecommendationStore;
+import com.airline.cache.RecommendationStore.UserRecommendations;
+import com.airline.cache.RouteCooccurrenceIndex;
 import com.airline.dao.BookingDAO;
 import com.airline.dao.FlightDAO;
+import com.airline.dto.FlightView;
 import com.airline.entity.Booking;
 import com.airline.entity.Flight;
 import com.airline.service.RecommendationService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
-@Transactional(readOnly = true)
+@Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
 public class RecommendationServiceImpl implements RecommendationService {
 
     @Autowired
@@ -22,61 +30,110 @@ public class RecommendationServiceImpl implements RecommendationService {
     @Autowired
     private FlightDAO flightDAO;
 
+    @Autowired
+    private RecommendationStore recommendationStore;
+
+    @Autowired
+    private RouteCooccurrenceIndex routeCooccurrenceIndex;
+
+    @Autowired
+    private PopularFlightsCache popularFlightsCache;
+
+    // Số chuyến gợi ý tối đa cho mỗi route trong top
+    private static final int FLIGHTS_PER_ROUTE = 2;
+    // Số route "người bay X cũng bay Y" thêm vào sau các route trong top
+    private static final int RELATED_ROUTES = 2;
+
     /**
      * Rule-based AI: Recommend flights based on user's booking history
      * Logic:
-     * 1. Find all CONFIRMED bookings of the user
+     * 1. Count the user's CONFIRMED bookings per route (kept in RecommendationStore)
      * 2. Get the 3 most frequent routes
-     * 3. Find upcoming flights on those routes
+     * 3. Add routes frequently co-booked with them (RouteCooccurrenceIndex)
+     * 4. Find upcoming flights on those routes (cached candidate ids)
+     * 5. Load the candidates by id and drop the ones that are full or departed
      */
     @Override
     public List<Flight> getRecommendedFlights(Long userId, int limit) {
-        // Get user's confirmed bookings
-        List<Booking> userBookings = bookingDAO.findByUserId(userId).stream()
-            .filter(Booking::isConfirmed)
-            .collect(Collectors.toList());
-        
-        if (userBookings.isEmpty()) {
-            // No history -> return popular upcoming flights
-            return flightDAO.findAvailableFlights().stream()
-                .filter(f -> f.getDepartureTime().isAfter(LocalDateTime.now()))
-                .limit(limit)
-                .collect(Collectors.toList());
+        return recommend(userId, limit, flightDAO::findByIds, Flight::getId,
+            f -> f.hasAvailableSeats() && f.getDepartureTime().isAfter(LocalDateTime.now()));
+    }
+
+    /**
+     * Như getRecommendedFlights, nhưng chuyến bay được đọc bằng query
+     * projection thay vì entity
+     */
+    @Override
+    public List<FlightView> getRecommendedFlightViews(Long userId, int limit) {
+        return recommend(userId, limit, flightDAO::findViewsByIds, FlightView::id,
+            f -> f.availableSeats() > 0 && f.departureTime().isAfter(LocalDateTime.now()));
+    }
+
+    /**
+     * Trường hợp thường gặp: một lần tra RecommendationStore + một query theo
+     * khoá chính để kiểm tra ghế. Ứng viên hết ghế / đã bay bị bỏ qua và danh
+     * sách được đánh dấu tính lại cho lần sau.
+     */
+    private <T> List<T> recommend(Long userId, int limit, Function<List<Long>, List<T>> loader,
+            Function<T, Long> idOf, Predicate<T> bookable) {
+        UserRecommendations entry = recommendationStore.get(userId);
+        if (entry == null) {
+            entry = recommendationStore.load(userId, () -> loadRouteCounts(userId));
+        }
+
+        List<Long> candidates;
+        if (entry.getTopRoutes().isEmpty()) {
+            // No history -> popular upcoming flights (shared, refreshed in
+            // background); lấy dư để bù các chuyến vừa hết ghế
+            candidates = popularFlightsCache.get(limit * 2);
+        } else {
+            candidates = entry.getCandidates();
+            if (candidates == null) {
+                long generation = entry.getGeneration();
+                candidates = findCandidates(entry.getTopRoutes());
+                entry.setCandidates(candidates, generation);
+            }
         }
-        
-        // Count route frequency
-        Map<Long, Long> routeFrequency = userBookings.stream()
-            .map(b -> b.getFlight().getRoute().getId())
-            .collect(Collectors.groupingBy(
-                routeId -> routeId,
-                Collectors.counting()
-            ));
-        
-        // Get top 3 routes
-        List<Long> topRoutes = routeFrequency.entrySet().stream()
-            .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
-            .limit(3)
-            .map(Map.Entry::getKey)
+
+        Map<Long, T> loaded = loader.apply(candidates).stream()
+            .collect(Collectors.toMap(idOf, f -> f));
+        List<T> result = candidates.stream()
+            .map(loaded::get)
+            .filter(Objects::nonNull)
+            .filter(bookable)
             .collect(Collectors.toList());
-        
-        // Find upcoming flights on these routes
-        List<Flight> recommendedFlights = new ArrayList<>();
-        LocalDateTime now = LocalDateTime.now();
-        
-        for (Long routeId : topRoutes) {
-            List<Flight> routeFlights = flightDAO.findByRouteId(routeId).stream()
-                .filter(f -> f.getDepartureTime().isAfter(now))
-                .filter(Flight::hasAvailableSeats)
-                .limit(2)
-                .collect(Collectors.toList());
-            
-            recommendedFlights.addAll(routeFlights);
+        if (result.size() < candidates.size()) {
+            entry.invalidate();
         }
-        
-        return recommendedFlights.stream()
-            .distinct()
+        return result.stream()
             .limit(limit)
             .collect(Collectors.toList());
     }
-}
 
+    private Map<Long, Long> loadRouteCounts(Long userId) {
+        return bookingDAO.countRoutesByUser(userId, Booking.BookingStatus.CONFIRMED).stream()
+            .collect(Collectors.toMap(row -> (Long) row[0], row -> (Long) row[1]));
+    }
+
+    /**
+     * Id các chuyến ứng viên theo thứ tự hiển thị: route hay đặt nhất trước,
+     * rồi các route liên quan, trong mỗi route theo giờ khởi hành. Một query có
+     * giới hạn cho mọi route, không phụ thuộc số chuyến đã bay trên route.
+     */
+    private List<Long> findCandidates(List<Long> topRoutes) {
+        List<Long> routes = new ArrayList<>(topRoutes);
+        routes.addAll(routeCooccurrenceIndex.relatedRoutes(topRoutes, RELATED_ROUTES));
+
+        // Kết quả theo (routeId, departureTime): gom theo route rồi xếp lại
+        // theo thứ hạng route
+        Map<Long, List<Long>> byRoute = new LinkedHashMap<>();
+        routes.forEach(routeId -> byRoute.put(routeId, new ArrayList<>()));
+        for (Object[] row : flightDAO.findUpcomingIdsByRoutes(routes, FLIGHTS_PER_ROUTE)) {
+            byRoute.get((Long) row[1]).add((Long) row[0]);
+        }
+
+        return byRoute.values().stream()
+            .flatMap(List::stream)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,251 @@
+package com.airline.service.impl;
+
+import com.airline.cache.RouteIndex;
+import com.airline.dao.RollupDAO;
+import com.airline.dto.RevenueReportRow;
+import com.airline.entity.Booking.BookingStatus;
+import com.airline.entity.Route;
+import com.airline.event.AircraftChangedEvent;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.event.FlightInventoryChangedEvent;
+import com.airline.service.RollupService;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * RollupServiceImpl
+ *
+ * - Tăng dần: BookingLifecycleEvent được áp dụng trong CÙNG transaction với
+ * booking (BEFORE_COMMIT) bằng một upsert (UPDATE, rồi INSERT nếu chưa có
+ * dòng), nên rollup luôn khớp với dữ liệu đã commit.
+ * - Mỗi flight có một dòng ngay từ khi được tạo (sức chứa của chuyến chưa bán
+ * vé vẫn được tính vào load factor); sửa / xoá flight, đổi sức chứa máy bay
+ * cập nhật / xoá dòng trong cùng transaction.
+ * - Backfill: chia dải flight id thành các chunk, mỗi chunk dựng lại trong
+ * transaction riêng trên một thread pool; chunk khoá các booking của dải nên
+ * tuần tự với các upsert tăng dần, chunk lỗi (vd. deadlock victim) được thử
+ * lại.
+ * - Báo cáo: chỉ đọc FlightRollups.
+ */
+@Service
+public class RollupServiceImpl implements RollupService {
+
+    private static final Logger log = LoggerFactory.getLogger(RollupServiceImpl.class);
+
+    private static final int BACKFILL_CHUNK = 2_000;
+    private static final int BACKFILL_THREADS = 4;
+    private static final int BACKFILL_ATTEMPTS = 3;
+    private static final int MAX_REPORT_DAYS = 366;
+
+    private final RollupDAO rollupDAO;
+    private final RouteIndex routeIndex;
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private final AtomicInteger chunksTotal = new AtomicInteger();
+    private final AtomicInteger chunksDone = new AtomicInteger();
+    private final AtomicInteger chunksFailed = new AtomicInteger();
+    private final AtomicLong rowsRebuilt = new AtomicLong();
+    private volatile LocalDateTime lastStartedAt;
+    private volatile LocalDateTime lastFinishedAt;
+
+    @Autowired
+    public RollupServiceImpl(RollupDAO rollupDAO,
+            RouteIndex routeIndex,
+            PlatformTransactionManager transactionManager) {
+        this.rollupDAO = rollupDAO;
+        this.routeIndex = routeIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onBookingLifecycle(BookingLifecycleEvent event) {
+        BigDecimal revenue = event.getTotalPrice() != null ? event.getTotalPrice() : BigDecimal.ZERO;
+        if (event.getType() == BookingLifecycleEvent.Type.CONFIRMED) {
+            rollupDAO.applyDelta(event.getFlightId(), 1, event.getPassengerCount(), revenue);
+        } else if (event.getType() == BookingLifecycleEvent.Type.CANCELLED
+                && event.getPreviousStatus() == BookingStatus.CONFIRMED) {
+            rollupDAO.applyDelta(event.getFlightId(), -1, -event.getPassengerCount(), revenue.negate());
+        }
+    }
+
+    /**
+     * Flight được tạo / sửa / xoá: đồng bộ dòng rollup của nó trước khi commit
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onFlightChanged(FlightInventoryChangedEvent event) {
+        if (event.isScheduleChanged()) {
+            rollupDAO.syncFlight(event.getFlightId());
+        }
+    }
+
+    /**
+     * Máy bay đổi sức chứa: cập nhật sức chứa các dòng rollup của nó trước khi
+     * commit
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onAircraftChanged(AircraftChangedEvent event) {
+        rollupDAO.syncAircraft(event.getAircraftId());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<RevenueReportRow> getRevenueReport(GroupBy groupBy, LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            throw new IllegalArgumentException("Invalid date range");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= MAX_REPORT_DAYS) {
+            throw new IllegalArgumentException("Date range must not exceed " + MAX_REPORT_DAYS + " days");
+        }
+
+        List<RevenueReportRow> report = new ArrayList<>();
+        switch (groupBy) {
+            case DAY -> {
+                for (Object[] row : rollupDAO.sumByDay(from, to)) {
+                    report.add(toRow(row[0].toString(), row[0].toString(), row, 1));
+                }
+            }
+            case ROUTE -> {
+                for (Object[] row : rollupDAO.sumByRoute(from, to)) {
+                    Long routeId = ((Number) row[0]).longValue();
+                    String label = routeIndex.findById(routeId)
+                            .map(Route::getRouteDescription)
+                            .orElse("Route #" + routeId);
+                    report.add(toRow(routeId.toString(), label, row, 1));
+                }
+            }
+            case AIRCRAFT -> {
+                for (Object[] row : rollupDAO.sumByAircraft(from, to)) {
+                    report.add(toRow(row[0].toString(), (String) row[1], row, 2));
+                }
+            }
+        }
+        return report;
+    }
+
+    @Override
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        Thread coordinator = new Thread(this::runBackfill, "rollup-backfill");
+        coordinator.setDaemon(true);
+        coordinator.start();
+        return true;
+    }
+
+    @Override
+    public Map<String, Object> getBackfillStatus() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("running", backfillRunning.get());
+        status.put("chunksTotal", chunksTotal.get());
+        status.put("chunksDone", chunksDone.get());
+        status.put("chunksFailed", chunksFailed.get());
+        status.put("rowsRebuilt", rowsRebuilt.get());
+        status.put("lastStartedAt", lastStartedAt);
+        status.put("lastFinishedAt", lastFinishedAt);
+        return status;
+    }
+
+    private void runBackfill() {
+        lastStartedAt = LocalDateTime.now();
+        chunksTotal.set(0);
+        chunksDone.set(0);
+        chunksFailed.set(0);
+        rowsRebuilt.set(0);
+
+        ExecutorService pool = Executors.newFixedThreadPool(BACKFILL_THREADS);
+        try {
+            long[] range = transactionTemplate.execute(status -> rollupDAO.findFlightIdRange());
+            if (range == null) {
+                return;
+            }
+
+            List<Future<Integer>> chunks = new ArrayList<>();
+            for (long from = range[0]; from <= range[1]; from += BACKFILL_CHUNK) {
+                long chunkFrom = from;
+                long chunkTo = Math.min(from + BACKFILL_CHUNK - 1, range[1]);
+                chunks.add(pool.submit(() -> rebuildChunk(chunkFrom, chunkTo)));
+            }
+            chunksTotal.set(chunks.size());
+
+            for (Future<Integer> chunk : chunks) {
+                try {
+                    Integer rows = chunk.get();
+                    rowsRebuilt.addAndGet(rows != null ? rows : 0);
+                    chunksDone.incrementAndGet();
+                } catch (ExecutionException e) {
+                    chunksFailed.incrementAndGet();
+                    log.warn("Rollup backfill chunk failed: {}", e.getCause().getMessage());
+                }
+            }
+            log.info("Rollup backfill finished: {} chunks, {} rows, {} failed",
+                    chunksDone.get(), rowsRebuilt.get(), chunksFailed.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("Rollup backfill failed: {}", e.getMessage());
+        } finally {
+            pool.shutdown();
+            lastFinishedAt = LocalDateTime.now();
+            backfillRunning.set(false);
+        }
+    }
+
+    private Integer rebuildChunk(long fromId, long toId) {
+        for (int attempt = 1;; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> rollupDAO.rebuildRange(fromId, toId));
+            } catch (RuntimeException e) {
+                if (attempt >= BACKFILL_ATTEMPTS) {
+                    throw e;
+                }
+                log.info("Rollup backfill chunk [{}, {}] failed (attempt {}), retrying: {}",
+                        fromId, toId, attempt, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Các cột tổng bắt đầu từ vị trí offset: bookings, seats, capacity, revenue
+     */
+    private static RevenueReportRow toRow(String key, String label, Object[] row, int offset) {
+        long seats = toLong(row[offset + 1]);
+        long capacity = toLong(row[offset + 2]);
+        return RevenueReportRow.builder()
+                .key(key)
+                .label(label)
+                .confirmedBookings(toLong(row[offset]))
+                .bookedSeats(seats)
+                .capacity(capacity)
+                .revenue(row[offset + 3] != null ? new BigDecimal(row[offset + 3].toString()) : BigDecimal.ZERO)
+                .loadFactor(capacity > 0 ? (double) seats / capacity : 0)
+                .build();
+    }
+
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+}
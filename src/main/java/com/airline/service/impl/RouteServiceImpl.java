@@ -1,14 +1,17 @@
 package com.airline.service.impl;
 
+import com.airline.cache.RouteIndex;
 import com.airline.dao.RouteDAO;
 import com.airline.entity.Route;
+import com.airline.event.RouteChangedEvent;
 import com.airline.service.RouteService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -17,9 +20,17 @@ public class RouteServiceImpl implements RouteService {
     @Autowired
     private RouteDAO routeDAO;
 
+    @Autowired
+    private RouteIndex routeIndex;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Override
     public Route createRoute(Route route) {
-        return routeDAO.save(route);
+        Route saved = routeDAO.save(route);
+        eventPublisher.publishEvent(RouteChangedEvent.saved(saved));
+        return saved;
     }
 
     @Override
@@ -28,10 +39,13 @@ public class RouteServiceImpl implements RouteService {
         return routeDAO.findById(id);
     }
 
+    /**
+     * Đọc từ RouteIndex, không truy vấn DB
+     */
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Optional<Route> findByOriginAndDestination(String origin, String destination) {
-        return routeDAO.findByOriginAndDestination(origin, destination);
+        return routeIndex.find(origin, destination);
     }
 
     @Override
@@ -41,23 +55,14 @@ public class RouteServiceImpl implements RouteService {
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<String> getAllOrigins() {
-        return routeDAO.findAll().stream()
-            .map(Route::getOrigin)
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
+        return routeIndex.getOrigins();
     }
 
     @Override
-    @Transactional(readOnly = true)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public List<String> getAllDestinations() {
-        return routeDAO.findAll().stream()
-            .map(Route::getDestination)
-            .distinct()
-            .sorted()
-            .collect(Collectors.toList());
+        return routeIndex.getDestinations();
     }
 }
-
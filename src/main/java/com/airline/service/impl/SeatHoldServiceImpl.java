@@ -0,0 +1,233 @@
+package com.airline.service.impl;
+
+import com.airline.dao.BookingDAO;
+import com.airline.dao.FlightDAO;
+import com.airline.entity.Booking;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.event.FlightInventoryChangedEvent;
+import com.airline.service.SeatHoldService;
+import com.airline.service.SeatMapService;
+import com.airline.util.HashedTimerWheel;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * SeatHoldServiceImpl Giữ chỗ có thời hạn cho booking PENDING.
+ *
+ * Mỗi hold là một timeout trong HashedTimerWheel (tick 1 giây); một job định
+ * kỳ lấy các hold đến hạn, huỷ booking bằng UPDATE hàng loạt và trả ghế theo
+ * từng chuyến bay (một câu UPDATE cho mỗi flight), không quét toàn bảng.
+ */
+@Service
+public class SeatHoldServiceImpl implements SeatHoldService, SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(SeatHoldServiceImpl.class);
+
+    // Khớp với vnp_ExpireDate (15 phút) của link thanh toán VNPAY
+    private static final long HOLD_TTL_MINUTES = 15;
+    private static final long TICK_MILLIS = 1000;
+    private static final int TICKS_PER_WHEEL = 1024;
+    // Giới hạn số tham số IN (...) của SQL Server là 2100
+    private static final int EXPIRE_BATCH_SIZE = 500;
+
+    private static final ZoneId ZONE = ZoneId.systemDefault();
+
+    private final BookingDAO bookingDAO;
+    private final FlightDAO flightDAO;
+    private final SeatMapService seatMapService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+
+    private final HashedTimerWheel<Long> wheel
+            = new HashedTimerWheel<>(TICK_MILLIS, TICKS_PER_WHEEL, System.currentTimeMillis());
+    private final Map<Long, HashedTimerWheel.Timeout<Long>> holds = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SeatHoldServiceImpl(BookingDAO bookingDAO,
+            FlightDAO flightDAO,
+            SeatMapService seatMapService,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager) {
+        this.bookingDAO = bookingDAO;
+        this.flightDAO = flightDAO;
+        this.seatMapService = seatMapService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Nạp lại các hold còn dang dở (sau khi restart) vào timer wheel
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            TransactionTemplate readOnly = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            readOnly.setReadOnly(true);
+            List<Object[]> rows = readOnly.execute(status -> bookingDAO.findPendingHolds());
+            for (Object[] row : rows) {
+                LocalDateTime expiresAt = (LocalDateTime) row[1];
+                if (expiresAt == null) {
+                    // Booking tạo trước khi có cột hold_expires_at
+                    expiresAt = ((LocalDateTime) row[2]).plusMinutes(HOLD_TTL_MINUTES);
+                }
+                hold((Long) row[0], expiresAt);
+            }
+            log.info("Loaded {} outstanding seat holds", rows.size());
+        } catch (Exception e) {
+            log.warn("Could not load outstanding seat holds: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public LocalDateTime newHoldExpiry() {
+        return LocalDateTime.now().plusMinutes(HOLD_TTL_MINUTES);
+    }
+
+    @Override
+    public void hold(Long bookingId, LocalDateTime expiresAt) {
+        long deadline = expiresAt.atZone(ZONE).toInstant().toEpochMilli();
+        HashedTimerWheel.Timeout<Long> previous = holds.put(bookingId, wheel.schedule(bookingId, deadline));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    @Override
+    public void release(Long bookingId) {
+        // Chỉ bỏ hold khi confirm/cancel đã commit: nếu transaction rollback
+        // (retry khi xung đột, batch thanh toán lỗi) booking vẫn PENDING và
+        // vẫn phải hết hạn đúng giờ
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cancelHold(bookingId);
+                }
+            });
+        } else {
+            cancelHold(bookingId);
+        }
+    }
+
+    private void cancelHold(Long bookingId) {
+        HashedTimerWheel.Timeout<Long> timeout = holds.remove(bookingId);
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    @Scheduled(fixedDelay = TICK_MILLIS)
+    public void tick() {
+        try {
+            expireHolds();
+        } catch (Exception e) {
+            log.error("Seat hold expiry failed", e);
+        }
+    }
+
+    @Override
+    public int expireHolds() {
+        List<Long> due = wheel.advance(System.currentTimeMillis());
+        if (due.isEmpty()) {
+            return 0;
+        }
+        for (Long bookingId : due) {
+            holds.remove(bookingId);
+        }
+
+        int expired = 0;
+        for (int from = 0; from < due.size(); from += EXPIRE_BATCH_SIZE) {
+            List<Long> chunk = due.subList(from, Math.min(from + EXPIRE_BATCH_SIZE, due.size()));
+            Integer cancelled = transactionTemplate.execute(status -> {
+                int count = expireChunk(chunk);
+                if (count < 0) {
+                    // Có booking vừa được confirm/cancel song song -> làm lại từng cái
+                    status.setRollbackOnly();
+                }
+                return count;
+            });
+            if (cancelled != null && cancelled < 0) {
+                cancelled = 0;
+                for (Long bookingId : chunk) {
+                    cancelled += transactionTemplate.execute(status -> Math.max(0, expireChunk(List.of(bookingId))));
+                }
+            }
+            expired += cancelled != null ? cancelled : 0;
+        }
+        if (expired > 0) {
+            log.info("Expired {} seat holds", expired);
+        }
+        return expired;
+    }
+
+    @Override
+    public long getOutstandingHolds() {
+        return wheel.size();
+    }
+
+    /**
+     * Huỷ các booking còn PENDING trong chunk và trả ghế theo từng flight.
+     *
+     * @return số booking đã huỷ, hoặc -1 nếu trạng thái thay đổi giữa SELECT và
+     * UPDATE (khi đó transaction phải rollback)
+     */
+    private int expireChunk(List<Long> bookingIds) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = bookingDAO.findExpiredHolds(bookingIds, now);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = new ArrayList<>(rows.size());
+        Map<Long, Integer> seatsByFlight = new HashMap<>();
+        Map<Long, Object[]> flightRows = new HashMap<>();
+        List<BookingLifecycleEvent> cancellations = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long flightId = (Long) row[1];
+            int passengers = ((Number) row[2]).intValue();
+            ids.add((Long) row[0]);
+            seatsByFlight.merge(flightId, passengers, Integer::sum);
+            flightRows.putIfAbsent(flightId, row);
+            cancellations.add(new BookingLifecycleEvent(BookingLifecycleEvent.Type.CANCELLED,
+                    Booking.BookingStatus.PENDING, (Long) row[0], (Long) row[5], flightId,
+                    (Long) row[3], (BigDecimal) row[6], passengers));
+        }
+
+        if (bookingDAO.cancelPendingBookings(ids, now) != ids.size()) {
+            return -1;
+        }
+        List<FlightInventoryChangedEvent> events = new ArrayList<>(seatsByFlight.size());
+        seatsByFlight.forEach((flightId, seats) -> {
+            boolean reopened = flightDAO.releaseSeats(flightId, seats);
+            Object[] row = flightRows.get(flightId);
+            events.add(new FlightInventoryChangedEvent(
+                    flightId, (Long) row[3], ((LocalDateTime) row[4]).toLocalDate(), false, reopened));
+        });
+
+        Map<Long, List<String>> seatNumbersByFlight = new HashMap<>();
+        for (Object[] row : bookingDAO.findSeatNumbersByBookingIds(ids)) {
+            seatNumbersByFlight.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((String) row[1]);
+        }
+        seatNumbersByFlight.forEach(seatMapService::releaseSeats);
+        events.forEach(eventPublisher::publishEvent);
+        cancellations.forEach(eventPublisher::publishEvent);
+        return ids.size();
+    }
+}
@@ -0,0 +1,248 @@
+package com.airline.service.impl;
+
+import com.airline.dao.FlightDAO;
+import com.airline.dao.SeatClaimDAO;
+import com.airline.dto.SeatMapResponse;
+import com.airline.entity.BookingPassenger;
+import com.airline.entity.Flight;
+import com.airline.event.AircraftChangedEvent;
+import com.airline.service.SeatMapService;
+import com.airline.util.SeatMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * SeatMapServiceImpl Quyền sở hữu ghế nằm ở bảng SeatClaims (PK flight, seat),
+ * được nhận trong cùng transaction đặt vé. Mỗi chuyến bay có thêm một SeatMap
+ * (bitset) trong bộ nhớ, chỉ là gợi ý để chọn ghế trống / liền nhau và trả sơ
+ * đồ ghế không cần query. Gợi ý có thể lệch (booking chưa commit, instance
+ * khác): ghế bị DB từ chối được đánh dấu lại trong sơ đồ và thay bằng ghế khác.
+ */
+@Service
+public class SeatMapServiceImpl implements SeatMapService {
+
+    @Autowired
+    private SeatClaimDAO seatClaimDAO;
+
+    @Autowired
+    private FlightDAO flightDAO;
+
+    private final Map<Long, SeatMap> seatMaps = new ConcurrentHashMap<>();
+
+    // Ghế đã nhận trong các transaction đặt vé chưa kết thúc của instance này:
+    // SeatClaims chưa thấy chúng nên phải giữ lại khi nạp / đồng bộ sơ đồ
+    private final Map<Long, Set<String>> inFlight = new ConcurrentHashMap<>();
+
+    @Override
+    public void assignSeats(Flight flight, List<BookingPassenger> passengers) {
+        Long flightId = flight.getId();
+        SeatMap seatMap = seatMapFor(flight);
+        Set<String> pending = inFlight.computeIfAbsent(flightId, id -> ConcurrentHashMap.newKeySet());
+        List<String> taken = new ArrayList<>(passengers.size());
+        List<BookingPassenger> unassigned = new ArrayList<>();
+
+        try {
+            // 1. Ghế hành khách tự chọn: sơ đồ có thể lệch, DB quyết định
+            for (BookingPassenger passenger : passengers) {
+                String seat = passenger.getSeatNumber();
+                if (seat == null || seat.isBlank()) {
+                    unassigned.add(passenger);
+                    continue;
+                }
+                seat = seat.trim().toUpperCase();
+                if (seatMap.indexOf(seat) < 0 || taken.contains(seat)) {
+                    throw new IllegalStateException("Seat " + seat + " is not available");
+                }
+                seatMap.claim(seat);
+                if (!seatClaimDAO.claim(flightId, seat)) {
+                    throw new IllegalStateException("Seat " + seat + " is not available");
+                }
+                taken.add(seat);
+                pending.add(seat);
+                passenger.setSeatNumber(seat);
+            }
+
+            // 2. Ghế tự động, ưu tiên ngồi cạnh nhau. Sơ đồ báo hết ghế có thể
+            // do lệch với DB (instance khác đã trả ghế): đồng bộ lại một lần
+            int chosen = taken.size();
+            if (!claimFree(flightId, seatMap, unassigned.size(), taken, pending)
+                    && !claimFree(flightId, refresh(flightId, flight.getAircraft().getCapacity()),
+                            unassigned.size() - (taken.size() - chosen), taken, pending)) {
+                throw new IllegalStateException("Not enough available seats");
+            }
+            for (int i = 0; i < unassigned.size(); i++) {
+                unassigned.get(i).setSeatNumber(taken.get(chosen + i));
+            }
+        } catch (RuntimeException e) {
+            pending.removeAll(taken);
+            releaseHint(flightId, taken);
+            throw e;
+        }
+
+        // Transaction đặt vé kết thúc: claim đã commit (SeatClaims thấy được)
+        // hoặc rollback -> trả ghế lại cho sơ đồ
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    pending.removeAll(taken);
+                    if (status != STATUS_COMMITTED) {
+                        releaseHint(flightId, taken);
+                    }
+                }
+            });
+        } else {
+            pending.removeAll(taken);
+        }
+    }
+
+    @Override
+    public void releaseSeats(Long flightId, Collection<String> seatNumbers) {
+        if (seatNumbers.isEmpty()) {
+            return;
+        }
+        List<String> seats = new ArrayList<>(seatNumbers);
+
+        // Xoá claim trong transaction huỷ; sơ đồ chỉ trả ghế khi đã commit,
+        // tránh gợi ý ghế mà DB vẫn giữ nếu rollback
+        seatClaimDAO.release(flightId, seats);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    releaseHint(flightId, seats);
+                }
+            });
+        } else {
+            releaseHint(flightId, seats);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public SeatMapResponse getSeatMap(Long flightId) {
+        SeatMap seatMap = seatMaps.get(flightId);
+        if (seatMap == null) {
+            Flight flight = flightDAO.findById(flightId)
+                    .orElseThrow(() -> new IllegalArgumentException("Flight not found"));
+            seatMap = seatMapFor(flight);
+        }
+
+        return SeatMapResponse.builder()
+                .flightId(flightId)
+                .rows(seatMap.getRows())
+                .seatsPerRow(seatMap.getSeatsPerRow())
+                .columns(seatMap.getColumns())
+                .capacity(seatMap.getCapacity())
+                .availableSeats(seatMap.getAvailableCount())
+                .occupiedSeats(seatMap.getOccupiedSeats())
+                .build();
+    }
+
+    @Override
+    public void revalidate(Flight flight) {
+        // Chưa nạp: lần dùng tới sẽ nạp từ SeatClaims với sức chứa mới
+        if (seatMaps.containsKey(flight.getId())) {
+            refresh(flight.getId(), flight.getAircraft().getCapacity());
+        }
+    }
+
+    /**
+     * Máy bay đổi sức chứa: tính lại bố cục sơ đồ ghế của các chuyến đang nạp
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAircraftChanged(AircraftChangedEvent event) {
+        for (Long flightId : flightDAO.findIdsByAircraftId(event.getAircraftId())) {
+            if (seatMaps.containsKey(flightId)) {
+                refresh(flightId, event.getCapacity());
+            }
+        }
+    }
+
+    @Override
+    public void evict(Long flightId) {
+        seatMaps.remove(flightId);
+    }
+
+    private SeatMap seatMapFor(Flight flight) {
+        SeatMap seatMap = seatMaps.get(flight.getId());
+        if (seatMap != null) {
+            return seatMap;
+        }
+
+        // Nạp ngoài computeIfAbsent để không giữ lock của ConcurrentHashMap khi query
+        SeatMap loaded = SeatMap.forCapacity(flight.getAircraft().getCapacity());
+        loaded.reset(occupiedSeats(flight.getId()));
+        SeatMap existing = seatMaps.putIfAbsent(flight.getId(), loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * Đồng bộ sơ đồ với SeatClaims (cộng các ghế đang nhận dở ở instance này).
+     * Cùng sức chứa: đặt lại ngay trên sơ đồ đang dùng; máy bay đổi sức chứa:
+     * thay bằng sơ đồ mới
+     */
+    private SeatMap refresh(Long flightId, int capacity) {
+        Set<String> occupied = occupiedSeats(flightId);
+
+        SeatMap current = seatMaps.get(flightId);
+        if (current != null && current.getCapacity() == capacity) {
+            current.reset(occupied);
+            return current;
+        }
+        SeatMap resized = SeatMap.forCapacity(capacity);
+        resized.reset(occupied);
+        seatMaps.put(flightId, resized);
+        return resized;
+    }
+
+    private Set<String> occupiedSeats(Long flightId) {
+        Set<String> occupied = new HashSet<>(seatClaimDAO.findClaimedSeats(flightId));
+        occupied.addAll(inFlight.getOrDefault(flightId, Set.of()));
+        return occupied;
+    }
+
+    /**
+     * Chọn count ghế theo sơ đồ rồi nhận trong DB, ghế nhận được nối vào
+     * taken. Ghế DB từ chối (gợi ý lệch) vẫn được đánh dấu trong sơ đồ và được
+     * thay bằng ghế khác
+     *
+     * @return false nếu sơ đồ hết ghế trống trước khi đủ count ghế
+     */
+    private boolean claimFree(Long flightId, SeatMap seatMap, int count,
+            List<String> taken, Set<String> pending) {
+        int claimed = 0;
+        while (claimed < count) {
+            List<String> candidates = seatMap.allocate(count - claimed);
+            if (candidates == null) {
+                return false;
+            }
+            for (String seat : candidates) {
+                if (seatClaimDAO.claim(flightId, seat)) {
+                    taken.add(seat);
+                    pending.add(seat);
+                    claimed++;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void releaseHint(Long flightId, Collection<String> seats) {
+        SeatMap seatMap = seatMaps.get(flightId);
+        if (seatMap != null) {
+            seatMap.release(seats);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.airline.util;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * CsvWriter Ghi CSV (RFC 4180) từng dòng ra một Writer, không giữ dòng nào
+ * trong bộ nhớ. Chỉ bọc trường trong dấu nháy khi cần (có dấu phẩy, nháy,
+ * xuống dòng) để giữ tốc độ ghi cho dữ liệu số / ngày giờ.
+ *
+ * File được mở bằng Excel: chuỗi bắt đầu bằng =, +, -, @ (hoặc tab / CR) bị
+ * coi là công thức, nên được thêm tiền tố ' (chống CSV/formula injection qua
+ * tên, email do người dùng nhập). Số không bị ảnh hưởng.
+ *
+ * Không thread-safe; IOException được bọc thành UncheckedIOException để dùng
+ * được trong callback của DAO.
+ */
+public final class CsvWriter implements Flushable, Closeable {
+
+    private final Writer out;
+
+    public CsvWriter(Writer out) {
+        this.out = out;
+    }
+
+    public void writeRow(Object... fields) {
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeField(fields[i]);
+            }
+            out.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeField(Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value instanceof Number) {
+            out.write(value instanceof BigDecimal decimal ? decimal.toPlainString() : value.toString());
+            return;
+        }
+        if (value instanceof Timestamp timestamp) {
+            out.write(timestamp.toLocalDateTime().toString());
+            return;
+        }
+        String text = value.toString();
+        if (isFormulaLike(text)) {
+            text = "'" + text;
+        }
+        if (!needsQuoting(text)) {
+            out.write(text);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private static boolean isFormulaLike(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        char first = text.charAt(0);
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+
+    private static boolean needsQuoting(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
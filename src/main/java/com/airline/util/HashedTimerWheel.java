@@ -0,0 +1,147 @@
+package com.airline.util;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * HashedTimerWheel Bộ hẹn giờ dạng "bánh xe băm" (Varghese &amp; Lauck): mỗi
+ * timeout được đặt vào ô (deadlineTick mod wheelSize) kèm số vòng còn lại.
+ * Thêm và huỷ là O(1), mỗi tick chỉ duyệt đúng một ô, nên giữ được hàng trăm
+ * nghìn timeout mà không cần quét toàn bộ hay tạo thread riêng.
+ *
+ * schedule()/cancel() an toàn khi gọi từ nhiều thread; advance() được gọi từ
+ * một thread định kỳ duy nhất.
+ */
+public class HashedTimerWheel<T> {
+
+    private final long tickMillis;
+    private final long startMillis;
+    private final int mask;
+    private final List<List<Timeout<T>>> wheel;
+    private final Queue<Timeout<T>> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicLong outstanding = new AtomicLong();
+
+    // Tick kế tiếp sẽ được xử lý (chỉ advance() đọc/ghi)
+    private long currentTick;
+
+    public HashedTimerWheel(long tickMillis, int ticksPerWheel, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        int size = Integer.highestOneBit(Math.max(2, ticksPerWheel - 1) << 1);
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.mask = size - 1;
+        this.wheel = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            wheel.add(new LinkedList<>());
+        }
+    }
+
+    /**
+     * Đăng ký payload hết hạn tại deadlineMillis (epoch millis)
+     */
+    public Timeout<T> schedule(T payload, long deadlineMillis) {
+        long deadlineTick = Math.max(0, Math.floorDiv(deadlineMillis - startMillis + tickMillis - 1, tickMillis));
+        Timeout<T> timeout = new Timeout<>(this, payload, deadlineTick);
+        outstanding.incrementAndGet();
+        pending.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * Xử lý tất cả các tick tới thời điểm nowMillis và trả về payload đã hết hạn
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long targetTick = Math.floorDiv(nowMillis - startMillis, tickMillis);
+        List<T> expired = new ArrayList<>();
+        transferPending();
+
+        while (currentTick <= targetTick) {
+            Iterator<Timeout<T>> it = wheel.get((int) (currentTick & mask)).iterator();
+            while (it.hasNext()) {
+                Timeout<T> timeout = it.next();
+                if (timeout.cancelled) {
+                    it.remove();
+                } else if (timeout.remainingRounds <= 0) {
+                    it.remove();
+                    if (timeout.expire()) {
+                        expired.add(timeout.payload);
+                    }
+                } else {
+                    timeout.remainingRounds--;
+                }
+            }
+            currentTick++;
+        }
+        return expired;
+    }
+
+    /**
+     * Số timeout còn hiệu lực (chưa hết hạn, chưa huỷ)
+     */
+    public long size() {
+        return outstanding.get();
+    }
+
+    private void transferPending() {
+        Timeout<T> timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long tick = Math.max(timeout.deadlineTick, currentTick);
+            timeout.remainingRounds = (tick - currentTick) / wheel.size();
+            wheel.get((int) (tick & mask)).add(timeout);
+        }
+    }
+
+    /**
+     * Handle của một timeout đã đăng ký
+     */
+    public static final class Timeout<T> {
+
+        private final HashedTimerWheel<T> owner;
+        private final T payload;
+        private final long deadlineTick;
+        private long remainingRounds;
+        private volatile boolean cancelled;
+        private volatile boolean done;
+
+        private Timeout(HashedTimerWheel<T> owner, T payload, long deadlineTick) {
+            this.owner = owner;
+            this.payload = payload;
+            this.deadlineTick = deadlineTick;
+        }
+
+        public T getPayload() {
+            return payload;
+        }
+
+        /**
+         * Huỷ timeout; ô chứa nó sẽ dọn lần tới khi được duyệt
+         */
+        public synchronized boolean cancel() {
+            if (cancelled || done) {
+                return false;
+            }
+            cancelled = true;
+            owner.outstanding.decrementAndGet();
+            return true;
+        }
+
+        private synchronized boolean expire() {
+            if (cancelled || done) {
+                return false;
+            }
+            done = true;
+            owner.outstanding.decrementAndGet();
+            return true;
+        }
+    }
+}
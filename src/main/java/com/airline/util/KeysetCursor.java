@@ -0,0 +1,55 @@
+package com.airline.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * KeysetCursor Con trỏ phân trang keyset (sortKey, id), mã hoá base64url để
+ * client coi như chuỗi mờ (opaque). Trang tiếp theo bắt đầu ngay sau cặp
+ * (time, id) này theo thứ tự ORDER BY time, id.
+ */
+public record KeysetCursor(LocalDateTime time, Long id) {
+
+    private static final char SEPARATOR = '|';
+
+    public String encode() {
+        String raw = time + String.valueOf(SEPARATOR) + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Điều kiện seek JPQL cho ORDER BY (timeExpr, idExpr) tăng/giảm dần; dùng
+     * tham số :afterTime, :afterId
+     */
+    public static String seekClause(String timeExpr, String idExpr, boolean descending) {
+        String op = descending ? " < " : " > ";
+        return "(" + timeExpr + op + ":afterTime OR (" + timeExpr + " = :afterTime AND "
+                + idExpr + op + ":afterId))";
+    }
+
+    public static String orderBy(String timeExpr, String idExpr, boolean descending) {
+        String direction = descending ? " DESC" : " ASC";
+        return " ORDER BY " + timeExpr + direction + ", " + idExpr + direction;
+    }
+
+    /**
+     * @return null nếu cursor rỗng (trang đầu)
+     * @throws IllegalArgumentException nếu cursor không hợp lệ
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new KeysetCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.valueOf(raw.substring(separator + 1)));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.airline.util;
+
+/**
+ * LikePatterns Tạo tham số cho LIKE ... ESCAPE '!' từ dữ liệu người dùng nhập,
+ * để ký tự %, _ và [ được so khớp đúng nghĩa đen.
+ */
+public final class LikePatterns {
+
+    public static final char ESCAPE = '!';
+
+    private LikePatterns() {
+    }
+
+    /**
+     * "VN1" -> "VN1%": tìm theo tiền tố nên vẫn seek được trên index
+     */
+    public static String prefix(String value) {
+        StringBuilder pattern = new StringBuilder(value.length() + 2);
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '%' || c == '_' || c == '[' || c == ESCAPE) {
+                pattern.append(ESCAPE);
+            }
+            pattern.append(c);
+        }
+        return pattern.append('%').toString();
+    }
+}
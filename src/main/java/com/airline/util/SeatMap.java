@@ -0,0 +1,200 @@
+package com.airline.util;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * SeatMap Sơ đồ ghế của một chuyến bay, lưu trạng thái bằng một BitSet (1 bit
+ * / ghế). Bố cục hàng ghế suy ra từ sức chứa máy bay: &lt;= 100 ghế xếp 4 ghế
+ * / hàng, thân hẹp 6 ghế / hàng, thân rộng (&gt;= 250) 9 ghế / hàng.
+ *
+ * Thread-safe: mọi thao tác đồng bộ trên chính đối tượng (một lock / flight).
+ */
+public final class SeatMap {
+
+    private static final String SMALL_COLUMNS = "ABCD";
+    private static final String NARROW_COLUMNS = "ABCDEF";
+    // Bỏ chữ I để tránh nhầm với số 1 (quy ước phổ biến của hãng bay)
+    private static final String WIDE_COLUMNS = "ABCDEFGHJ";
+
+    private final int capacity;
+    private final String columns;
+    private final BitSet occupied;
+
+    private SeatMap(int capacity, String columns) {
+        this.capacity = capacity;
+        this.columns = columns;
+        this.occupied = new BitSet(capacity);
+    }
+
+    public static SeatMap forCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        String columns = capacity <= 100 ? SMALL_COLUMNS
+                : capacity >= 250 ? WIDE_COLUMNS : NARROW_COLUMNS;
+        return new SeatMap(capacity, columns);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public String getColumns() {
+        return columns;
+    }
+
+    public int getSeatsPerRow() {
+        return columns.length();
+    }
+
+    public int getRows() {
+        return (capacity + columns.length() - 1) / columns.length();
+    }
+
+    public synchronized int getAvailableCount() {
+        return capacity - occupied.cardinality();
+    }
+
+    public synchronized boolean isOccupied(String seat) {
+        int index = indexOf(seat);
+        return index >= 0 && occupied.get(index);
+    }
+
+    public synchronized List<String> getOccupiedSeats() {
+        List<String> seats = new ArrayList<>(occupied.cardinality());
+        for (int i = occupied.nextSetBit(0); i >= 0; i = occupied.nextSetBit(i + 1)) {
+            seats.add(labelOf(i));
+        }
+        return seats;
+    }
+
+    /**
+     * Đánh dấu một ghế cụ thể là đã có người ngồi
+     *
+     * @return false nếu ghế không tồn tại hoặc đã bị chiếm
+     */
+    public synchronized boolean claim(String seat) {
+        int index = indexOf(seat);
+        if (index < 0 || occupied.get(index)) {
+            return false;
+        }
+        occupied.set(index);
+        return true;
+    }
+
+    /**
+     * Cấp count ghế, ưu tiên ngồi liền nhau trong cùng một hàng, sau đó liền
+     * nhau qua hàng kế tiếp, cuối cùng là các ghế trống đầu tiên.
+     *
+     * @return danh sách ghế đã cấp, hoặc null nếu không đủ ghế trống
+     */
+    public synchronized List<String> allocate(int count) {
+        if (count <= 0) {
+            return new ArrayList<>();
+        }
+        if (capacity - occupied.cardinality() < count) {
+            return null;
+        }
+
+        int start = count <= columns.length() ? findRunInRow(count) : -1;
+        if (start < 0) {
+            start = findRun(count, 0, capacity);
+        }
+
+        List<String> seats = new ArrayList<>(count);
+        if (start >= 0) {
+            occupied.set(start, start + count);
+            for (int i = start; i < start + count; i++) {
+                seats.add(labelOf(i));
+            }
+            return seats;
+        }
+
+        for (int i = occupied.nextClearBit(0); seats.size() < count; i = occupied.nextClearBit(i + 1)) {
+            occupied.set(i);
+            seats.add(labelOf(i));
+        }
+        return seats;
+    }
+
+    public synchronized void release(Collection<String> seats) {
+        for (String seat : seats) {
+            int index = indexOf(seat);
+            if (index >= 0) {
+                occupied.clear(index);
+            }
+        }
+    }
+
+    /**
+     * Đặt lại trạng thái: đúng các ghế trong seats là đã có người ngồi (ghế
+     * không tồn tại trong sơ đồ bị bỏ qua)
+     */
+    public synchronized void reset(Collection<String> seats) {
+        occupied.clear();
+        for (String seat : seats) {
+            int index = indexOf(seat);
+            if (index >= 0) {
+                occupied.set(index);
+            }
+        }
+    }
+
+    /**
+     * "12C" -> chỉ số bit, -1 nếu không hợp lệ
+     */
+    public int indexOf(String seat) {
+        if (seat == null || seat.length() < 2) {
+            return -1;
+        }
+        String label = seat.trim().toUpperCase();
+        int column = columns.indexOf(label.charAt(label.length() - 1));
+        if (column < 0) {
+            return -1;
+        }
+        int row;
+        try {
+            row = Integer.parseInt(label.substring(0, label.length() - 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        int index = (row - 1) * columns.length() + column;
+        return row >= 1 && index < capacity ? index : -1;
+    }
+
+    public String labelOf(int index) {
+        int perRow = columns.length();
+        return (index / perRow + 1) + String.valueOf(columns.charAt(index % perRow));
+    }
+
+    // Dãy count ghế trống liên tiếp nằm trọn trong một hàng
+    private int findRunInRow(int count) {
+        int perRow = columns.length();
+        for (int rowStart = 0; rowStart < capacity; rowStart += perRow) {
+            int start = findRun(count, rowStart, Math.min(rowStart + perRow, capacity));
+            if (start >= 0) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    // Dãy count bit trống liên tiếp trong khoảng [from, to)
+    private int findRun(int count, int from, int to) {
+        int start = occupied.nextClearBit(from);
+        while (start + count <= to) {
+            int end = occupied.nextSetBit(start);
+            if (end < 0 || end > to) {
+                end = to;
+            }
+            if (end - start >= count) {
+                return start;
+            }
+            start = occupied.nextClearBit(end);
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,89 @@
+package com.airline.util;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SnowflakeIdGenerator Sinh id 63 bit tăng dần theo thời gian, duy nhất giữa
+ * nhiều instance mà không cần DB:
+ *
+ * <pre>
+ * | 41 bit: ms từ EPOCH (~69 năm) | 10 bit: nodeId | 12 bit: số thứ tự trong ms |
+ * </pre>
+ *
+ * - Lock-free: (ms, số thứ tự) được gói trong một AtomicLong và tăng bằng CAS.
+ * Khi một ms đã dùng hết 4096 số, id tiếp theo "mượn" ms kế tiếp thay vì chờ;
+ * đồng hồ lùi cũng chỉ làm id tiếp tục tăng từ giá trị cũ, không bao giờ trùng.
+ * - Duy nhất giữa các instance miễn là mỗi instance có nodeId khác nhau.
+ */
+public final class SnowflakeIdGenerator {
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+    // 2024-01-01T00:00:00Z
+    private static final long EPOCH = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+    // Crockford base32: không có I, L, O, U để mã dễ đọc / nhập tay
+    private static final char[] BASE32 = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+
+    private final long nodeId;
+    // (ms từ EPOCH << SEQUENCE_BITS) | số thứ tự của id vừa cấp
+    private final AtomicLong last = new AtomicLong();
+
+    public SnowflakeIdGenerator(int nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("Node id must be in [0, " + MAX_NODE_ID + "]");
+        }
+        this.nodeId = nodeId;
+    }
+
+    public long nextId() {
+        long now = (System.currentTimeMillis() - EPOCH) << SEQUENCE_BITS;
+        long previous;
+        long next;
+        do {
+            previous = last.get();
+            next = now > previous ? now : previous + 1;
+        } while (!last.compareAndSet(previous, next));
+
+        long timestamp = next >>> SEQUENCE_BITS;
+        long sequence = next & ((1L << SEQUENCE_BITS) - 1);
+        return (timestamp << (NODE_BITS + SEQUENCE_BITS)) | (nodeId << SEQUENCE_BITS) | sequence;
+    }
+
+    /**
+     * Mã giao dịch gửi cổng thanh toán (vnp_TxnRef): id dạng thập phân, tối
+     * đa 19 chữ số
+     */
+    public String nextTxnRef() {
+        return Long.toString(nextId());
+    }
+
+    /**
+     * Mã đặt chỗ cho khách: id dạng base32 Crockford, 13 ký tự, chữ hoa
+     */
+    public String nextBookingCode() {
+        return toBase32(nextId());
+    }
+
+    public int getNodeId() {
+        return (int) nodeId;
+    }
+
+    /**
+     * Thời điểm sinh id (theo đồng hồ của node sinh ra nó)
+     */
+    public static Instant timestampOf(long id) {
+        return Instant.ofEpochMilli((id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH);
+    }
+
+    static String toBase32(long value) {
+        char[] out = new char[13];
+        for (int i = out.length - 1; i >= 0; i--) {
+            out[i] = BASE32[(int) (value & 31)];
+            value >>>= 5;
+        }
+        return new String(out);
+    }
+}
@@ -0,0 +1,241 @@
+package com.airline.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * SpaceSaving Sketch "heavy hitters" (Metwally et al.) theo cấu trúc Stream-Summary:
+ * giữ tối đa capacity khoá, các khoá cùng số đếm nằm chung một bucket, các
+ * bucket nối đôi theo số đếm tăng dần.
+ *
+ * - offer(): O(1) (số đếm chỉ tăng 1 nên khoá chỉ nhảy sang bucket kế bên).
+ * - top(n): O(n), đi từ bucket lớn nhất xuống.
+ * - Sai số: với N lượt offer, mỗi số đếm ước lượng chỉ có thể lớn hơn số thật,
+ * và lớn hơn không quá min(count) &lt;= N / capacity (error của từng khoá là
+ * cận trên chính xác hơn). Mọi khoá có số thật &gt; N / capacity chắc chắn nằm
+ * trong sketch. Chọn capacity = ceil(1 / epsilon) để sai số &lt;= epsilon * N.
+ *
+ * Thread-safe: mọi thao tác đồng bộ trên chính đối tượng.
+ */
+public final class SpaceSaving<K> {
+
+    /**
+     * Một khoá trong top: count là ước lượng (cận trên), count - error là cận
+     * dưới của số thật
+     */
+    public record Entry<K>(K key, long count, long error) {
+
+        public long guaranteedCount() {
+            return count - error;
+        }
+    }
+
+    private static final class Node<K> {
+
+        private K key;
+        private long error;
+        private Bucket<K> bucket;
+        private Node<K> prev;
+        private Node<K> next;
+
+        private Node(K key, long error) {
+            this.key = key;
+            this.error = error;
+        }
+    }
+
+    private static final class Bucket<K> {
+
+        private final long count;
+        private Node<K> head;
+        private Bucket<K> lower;
+        private Bucket<K> higher;
+
+        private Bucket(long count) {
+            this.count = count;
+        }
+    }
+
+    private final int capacity;
+    private final Map<K, Node<K>> nodes;
+    private Bucket<K> min;
+    private Bucket<K> max;
+    private long total;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.nodes = new HashMap<>(capacity * 2);
+    }
+
+    /**
+     * Sketch đảm bảo sai số tuyệt đối &lt;= epsilon * N
+     */
+    public static <K> SpaceSaving<K> withErrorBound(double epsilon) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be in (0, 1)");
+        }
+        return new SpaceSaving<>((int) Math.ceil(1 / epsilon));
+    }
+
+    public synchronized void offer(K key) {
+        total++;
+        Node<K> node = nodes.get(key);
+        if (node != null) {
+            increment(node);
+            return;
+        }
+        if (nodes.size() < capacity) {
+            node = new Node<>(key, 0);
+            nodes.put(key, node);
+            attach(node, min != null && min.count == 1 ? min : insertBucket(1, null, min));
+            return;
+        }
+        // Đầy: dùng lại node có số đếm nhỏ nhất cho khoá mới, kế thừa số đếm
+        // đó làm sai số
+        Node<K> victim = min.head;
+        nodes.remove(victim.key);
+        victim.key = key;
+        victim.error = min.count;
+        nodes.put(key, victim);
+        increment(victim);
+    }
+
+    /**
+     * n khoá có số đếm lớn nhất, giảm dần
+     */
+    public synchronized List<Entry<K>> top(int n) {
+        List<Entry<K>> result = new ArrayList<>(Math.min(n, nodes.size()));
+        for (Bucket<K> bucket = max; bucket != null && result.size() < n; bucket = bucket.lower) {
+            for (Node<K> node = bucket.head; node != null && result.size() < n; node = node.next) {
+                result.add(new Entry<>(node.key, bucket.count, node.error));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Dựng lại sketch từ số đếm chính xác (sai số 0). counts nên là top-capacity
+     * chính xác để giữ đúng bất biến: khoá không nằm trong sketch có số thật
+     * &lt;= min(count).
+     *
+     * @param total tổng số lượt (N) tương ứng với counts
+     */
+    public synchronized void reset(Map<K, Long> counts, long total) {
+        nodes.clear();
+        min = null;
+        max = null;
+        this.total = total;
+
+        List<Map.Entry<K, Long>> sorted = new ArrayList<>(counts.entrySet());
+        sorted.sort(Map.Entry.comparingByValue(Comparator.reverseOrder()));
+        // Giữ capacity khoá lớn nhất rồi thêm theo thứ tự tăng dần: bucket mới
+        // luôn nằm ở đầu lớn, O(capacity)
+        List<Map.Entry<K, Long>> kept = sorted.subList(0, Math.min(capacity, sorted.size()));
+        for (int i = kept.size() - 1; i >= 0; i--) {
+            Map.Entry<K, Long> seed = kept.get(i);
+            if (seed.getValue() <= 0) {
+                continue;
+            }
+            Node<K> node = new Node<>(seed.getKey(), 0);
+            nodes.put(seed.getKey(), node);
+            attach(node, max != null && max.count == seed.getValue()
+                    ? max : insertBucket(seed.getValue(), max, null));
+        }
+    }
+
+    public synchronized long total() {
+        return total;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * Cận trên của sai số tuyệt đối hiện tại (số đếm nhỏ nhất khi đã đầy)
+     */
+    public synchronized long maxError() {
+        return nodes.size() < capacity || min == null ? 0 : min.count;
+    }
+
+    // ===== Stream-Summary =====
+
+    private void increment(Node<K> node) {
+        Bucket<K> current = node.bucket;
+        long target = current.count + 1;
+        Bucket<K> next = current.higher != null && current.higher.count == target
+                ? current.higher : insertBucket(target, current, current.higher);
+        detach(node);
+        attach(node, next);
+    }
+
+    private Bucket<K> insertBucket(long count, Bucket<K> lower, Bucket<K> higher) {
+        Bucket<K> bucket = new Bucket<>(count);
+        bucket.lower = lower;
+        bucket.higher = higher;
+        if (lower != null) {
+            lower.higher = bucket;
+        } else {
+            min = bucket;
+        }
+        if (higher != null) {
+            higher.lower = bucket;
+        } else {
+            max = bucket;
+        }
+        return bucket;
+    }
+
+    private void attach(Node<K> node, Bucket<K> bucket) {
+        node.bucket = bucket;
+        node.prev = null;
+        node.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.prev = node;
+        }
+        bucket.head = node;
+    }
+
+    private void detach(Node<K> node) {
+        Bucket<K> bucket = node.bucket;
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            bucket.head = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+        node.bucket = null;
+        if (bucket.head == null) {
+            removeBucket(bucket);
+        }
+    }
+
+    private void removeBucket(Bucket<K> bucket) {
+        if (bucket.lower != null) {
+            bucket.lower.higher = bucket.higher;
+        } else {
+            min = bucket.higher;
+        }
+        if (bucket.higher != null) {
+            bucket.higher.lower = bucket.lower;
+        } else {
+            max = bucket.lower;
+        }
+        bucket.lower = null;
+        bucket.higher = null;
+    }
+}
@@ -0,0 +1,182 @@
+package com.airline.util;
+
+import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * VNPaySigner Ký / kiểm tra vnp_SecureHash (HMAC-SHA512) cho một secret.
+ *
+ * - Thread-safe: mỗi luồng giữ một Mac đã init sẵn (ThreadLocal), không gọi
+ * Mac.getInstance / init lại cho mỗi request.
+ * - Chuỗi ký: các field khác rỗng sắp theo tên, "name=value" nối bằng '&amp;',
+ * value mã hoá như URLEncoder (US-ASCII); StringBuilder được cấp sẵn dung
+ * lượng, chỉ gọi URLEncoder khi value có ký tự ngoài ASCII.
+ * - Hex dùng bảng tra thay vì String.format từng byte.
+ */
+public final class VNPaySigner {
+
+    private static final String ALGORITHM = "HmacSHA512";
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+    // Số secret khác nhau được giữ signer (thực tế chỉ có 1-2)
+    private static final int MAX_SIGNERS = 16;
+
+    private static final ConcurrentHashMap<String, VNPaySigner> SIGNERS = new ConcurrentHashMap<>();
+
+    private final ThreadLocal<Mac> mac;
+
+    private VNPaySigner(String secret) {
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        newMac(key); // Lỗi cấu hình (thuật toán / khoá) báo ngay khi tạo
+        this.mac = ThreadLocal.withInitial(() -> newMac(key));
+    }
+
+    /**
+     * Signer dùng chung cho secret
+     */
+    public static VNPaySigner forSecret(String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("VNPAY secret is required");
+        }
+        VNPaySigner signer = SIGNERS.get(secret);
+        if (signer == null) {
+            if (SIGNERS.size() >= MAX_SIGNERS) {
+                SIGNERS.clear();
+            }
+            signer = SIGNERS.computeIfAbsent(secret, VNPaySigner::new);
+        }
+        return signer;
+    }
+
+    /**
+     * HMAC-SHA512 (hex chữ thường) của data
+     */
+    public String sign(String data) {
+        return toHex(mac.get().doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * vnp_SecureHash cho các field (không gồm vnp_SecureHash / vnp_SecureHashType)
+     */
+    public String hashAllFields(Map<String, String> fields) {
+        return sign(canonicalQuery(fields, StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Query string để gửi sang cổng thanh toán, đã kèm vnp_SecureHash. Khi mọi
+     * value đều là ASCII (trường hợp thường gặp), chuỗi ký và query trùng nhau
+     * nên chỉ dựng một lần.
+     */
+    public String signedQuery(Map<String, String> fields) {
+        String hashData = canonicalQuery(fields, StandardCharsets.US_ASCII);
+        String query = isAscii(fields) ? hashData : canonicalQuery(fields, StandardCharsets.UTF_8);
+        return query + "&vnp_SecureHash=" + sign(hashData);
+    }
+
+    /**
+     * So sánh vnp_SecureHash nhận được (không phân biệt hoa thường) trong thời
+     * gian hằng
+     */
+    public boolean verify(Map<String, String> fields, String secureHash) {
+        if (secureHash == null) {
+            return false;
+        }
+        byte[] expected = hashAllFields(fields).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = secureHash.toLowerCase(Locale.ROOT).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual);
+    }
+
+    static String canonicalQuery(Map<String, String> fields, Charset charset) {
+        String[] names = new String[fields.size()];
+        int count = 0;
+        int length = 0;
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            String value = field.getValue();
+            if (value != null && !value.isEmpty()) {
+                names[count++] = field.getKey();
+                length += field.getKey().length() + value.length() + 2;
+            }
+        }
+        Arrays.sort(names, 0, count);
+
+        // Dư thêm cho các ký tự phải mã hoá %XX
+        StringBuilder sb = new StringBuilder(length + (length >> 2));
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            appendEncoded(sb, names[i], charset);
+            sb.append('=');
+            appendEncoded(sb, fields.get(names[i]), charset);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Giống URLEncoder.encode(value, charset): giữ a-z A-Z 0-9 . - * _, dấu
+     * cách thành '+', còn lại %XX (chữ hoa)
+     */
+    private static void appendEncoded(StringBuilder sb, String value, Charset charset) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                sb.append(URLEncoder.encode(value.substring(i), charset));
+                return;
+            }
+            if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || c == '.' || c == '-' || c == '*' || c == '_') {
+                sb.append(c);
+            } else if (c == ' ') {
+                sb.append('+');
+            } else {
+                sb.append('%').append(HEX_UPPER[c >> 4]).append(HEX_UPPER[c & 0x0f]);
+            }
+        }
+    }
+
+    private static boolean isAscii(Map<String, String> fields) {
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (!isAscii(field.getKey()) || (field.getValue() != null && !isAscii(field.getValue()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAscii(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static String toHex(byte[] bytes) {
+        char[] out = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            out[2 * i] = HEX[(bytes[i] >> 4) & 0x0f];
+            out[2 * i + 1] = HEX[bytes[i] & 0x0f];
+        }
+        return new String(out);
+    }
+
+    private static Mac newMac(SecretKeySpec key) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot initialise " + ALGORITHM, e);
+        }
+    }
+}
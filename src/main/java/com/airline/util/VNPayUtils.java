@@ -1,46 +1,37 @@
 package com.airline.util;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import java.util.*;
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * VNPayUtils Hàm tiện ích tĩnh, uỷ quyền cho VNPaySigner (Mac được cache theo
+ * luồng và theo secret)
+ */
 public class VNPayUtils {
 
-    public static String hashAllFields(Map<String, String> fields, String secretKey) throws UnsupportedEncodingException {
-        List<String> fieldNames = new ArrayList<>(fields.keySet());
-        Collections.sort(fieldNames);
-        StringBuilder sb = new StringBuilder();
-        for (String fieldName : fieldNames) {
-            String fieldValue = fields.get(fieldName);
-            if (fieldValue != null && fieldValue.length() > 0) {
-                sb.append(fieldName);
-                sb.append('=');
-                sb.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII.toString()));
-                sb.append('&');
-            }
-        }
-        // remove last '&'
-        sb.deleteCharAt(sb.length() - 1);
-        return hmacSHA512(secretKey, sb.toString());
+    public static String hashAllFields(Map<String, String> fields, String secretKey) {
+        return VNPaySigner.forSecret(secretKey).hashAllFields(fields);
     }
 
     public static String hmacSHA512(String key, String data) {
-        try {
-            Mac hmac512 = Mac.getInstance("HmacSHA512");
-            SecretKeySpec secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "HmacSHA512");
-            hmac512.init(secretKey);
-            byte[] bytes = hmac512.doFinal(data.getBytes(StandardCharsets.UTF_8));
-            StringBuilder hash = new StringBuilder();
-            for (byte b : bytes) {
-                hash.append(String.format("%02x", b));
+        return VNPaySigner.forSecret(key).sign(data);
+    }
+
+    /**
+     * Các tham số vnp_* khác rỗng của callback (return URL / IPN) dùng để kiểm
+     * tra chữ ký: bỏ vnp_SecureHash, vnp_SecureHashType và tham số nội bộ
+     * (vd. bookingId)
+     */
+    public static Map<String, String> callbackFields(Map<String, String[]> parameters) {
+        Map<String, String> fields = new HashMap<>();
+        parameters.forEach((name, values) -> {
+            if (name.startsWith("vnp_") && !name.equals("vnp_SecureHash")
+                    && !name.equals("vnp_SecureHashType")
+                    && values.length > 0 && !values[0].isEmpty()) {
+                fields.put(name, values[0]);
             }
-            return hash.toString();
-        } catch (Exception ex) {
-            throw new RuntimeException(ex);
-        }
+        });
+        return fields;
     }
 
 }
@@ -0,0 +1,67 @@
+package com.airline.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.airline.dto.DashboardStats;
+import com.airline.event.BookingLifecycleEvent;
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Đối soát DashboardCounters: sự kiện đến trong lúc query đối soát (đã nằm
+ * trong kết quả DB) không bị đếm hai lần, và nhiều lần đối soát liên tiếp
+ * không tích luỹ sai số.
+ */
+class DashboardCountersTest {
+
+    @Test
+    void eventsDuringReconcileQueryAreNotCountedTwice() {
+        AtomicLong bookings = new AtomicLong(10);
+        AtomicReference<DashboardCounters> counters = new AtomicReference<>();
+        counters.set(new DashboardCounters(() -> {
+            // Booking commit và listener chạy trong lúc query đếm đã thấy nó
+            bookings.incrementAndGet();
+            counters.get().onBookingLifecycle(created());
+            return stats(bookings.get());
+        }));
+
+        for (int i = 0; i < 5; i++) {
+            counters.get().reconcile();
+            assertEquals(bookings.get(), counters.get().snapshot().getTotalBookings());
+            assertEquals(bookings.get(), counters.get().snapshot().getPendingBookings());
+        }
+    }
+
+    @Test
+    void reconcileCorrectsDriftAndCountsCorrections() {
+        DashboardCounters counters = new DashboardCounters(() -> stats(3L));
+        counters.reconcile();
+        counters.onBookingLifecycle(created());
+        assertEquals(4, counters.snapshot().getTotalBookings());
+
+        // Sự kiện không có trong DB (vd. listener của transaction khác) bị sửa lại
+        counters.reconcile();
+        assertEquals(3, counters.snapshot().getTotalBookings());
+        assertEquals(2, counters.getReconciliations());
+    }
+
+    private static DashboardStats stats(long bookings) {
+        return DashboardStats.builder()
+                .totalUsers(5L)
+                .totalFlights(7L)
+                .totalBookings(bookings)
+                .pendingBookings(bookings)
+                .confirmedBookings(0L)
+                .cancelledBookings(0L)
+                .totalRevenue(BigDecimal.ZERO)
+                .successfulPayments(0L)
+                .build();
+    }
+
+    private static BookingLifecycleEvent created() {
+        return new BookingLifecycleEvent(BookingLifecycleEvent.Type.CREATED, null, 1L, 1L, 1L, 1L,
+                new BigDecimal("1500000"), 1);
+    }
+}
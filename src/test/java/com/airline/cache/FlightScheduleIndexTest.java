@@ -0,0 +1,75 @@
+package com.airline.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.airline.dao.FlightDAO;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import org.junit.jupiter.api.Test;
+
+/**
+ * FlightScheduleIndex.refresh: hai lần đọc lại cùng một chuyến bay xong ngược
+ * thứ tự thì dòng cũ (version nhỏ hơn) không ghi đè dòng mới.
+ */
+class FlightScheduleIndexTest {
+
+    private static final long ROUTE = 7L;
+    private static final long FLIGHT = 42L;
+    private static final LocalDateTime DEPARTURE = LocalDateTime.now().plusDays(3).withNano(0);
+
+    private final Deque<Optional<Object[]>> reads = new ArrayDeque<>();
+    private final FlightScheduleIndex index = new FlightScheduleIndex(flightDAO());
+
+    @Test
+    void olderRowFinishingLastDoesNotOverwriteNewerOne() {
+        reads.add(row(10, 3L));
+        index.refresh(FLIGHT);
+        // Lần đọc bắt đầu trước (version 2) nhưng xong sau
+        reads.add(row(11, 2L));
+        index.refresh(FLIGHT);
+
+        assertEquals(10, departures().get(0).availableSeats());
+        assertEquals(3L, departures().get(0).version());
+
+        reads.add(row(9, 4L));
+        index.refresh(FLIGHT);
+        assertEquals(9, departures().get(0).availableSeats());
+    }
+
+    @Test
+    void staleRowDoesNotResurrectDeletedFlight() {
+        reads.add(row(10, 1L));
+        index.refresh(FLIGHT);
+        reads.add(Optional.empty());
+        index.refresh(FLIGHT);
+        reads.add(row(10, 1L));
+        index.refresh(FLIGHT);
+
+        assertTrue(departures().isEmpty());
+    }
+
+    private List<FlightScheduleIndex.FlightSlot> departures() {
+        long from = FlightScheduleIndex.toMinute(DEPARTURE.minusHours(1));
+        return index.departures(ROUTE, from, from + 120);
+    }
+
+    private static Optional<Object[]> row(int availableSeats, long version) {
+        return Optional.of(new Object[]{FLIGHT, ROUTE, "VN123", DEPARTURE, DEPARTURE.plusHours(2),
+            new BigDecimal("1500000.00"), availableSeats, version});
+    }
+
+    private FlightDAO flightDAO() {
+        return (FlightDAO) Proxy.newProxyInstance(FlightDAO.class.getClassLoader(), new Class<?>[]{FlightDAO.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findScheduleRow" -> reads.poll();
+                    case "findScheduleRows" -> List.of();
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
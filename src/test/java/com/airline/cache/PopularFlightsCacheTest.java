@@ -0,0 +1,103 @@
+package com.airline.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.airline.dao.FlightDAO;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+import org.junit.jupiter.api.Test;
+
+/**
+ * PopularFlightsCache.get khi chưa có / chỉ có bản quá cũ: các request đồng
+ * thời dùng chung một query, DB lỗi thì trả bản cũ.
+ */
+class PopularFlightsCacheTest {
+
+    private static final int THREADS = 8;
+    private static final List<Long> IDS = LongStream.rangeClosed(1, PopularFlightsCache.SIZE).boxed().toList();
+
+    private final AtomicInteger queries = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private volatile boolean failing;
+
+    @Test
+    void concurrentColdReadsShareOneQuery() throws Exception {
+        PopularFlightsCache cache = new PopularFlightsCache(flightDAO(), null);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                results.add(pool.submit(() -> cache.get(10)));
+            }
+            // Để các request còn lại kịp tới trong lúc query đầu tiên đang chạy
+            Thread.sleep(200);
+            release.countDown();
+            for (Future<List<Long>> result : results) {
+                assertEquals(IDS.subList(0, 10), result.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, queries.get());
+    }
+
+    @Test
+    void failedReloadFallsBackToExpiredSnapshot() throws Exception {
+        release.countDown();
+        PopularFlightsCache cache = new PopularFlightsCache(flightDAO(), null);
+        assertEquals(IDS.subList(0, 5), cache.get(5));
+
+        expireSnapshot(cache);
+        failing = true;
+        assertEquals(IDS.subList(0, 5), cache.get(5));
+        assertEquals(1L, cache.getStats().get("failures"));
+
+        failing = false;
+        cache.get(5);
+        assertEquals(3, queries.get());
+    }
+
+    @Test
+    void failedColdReadPropagates() {
+        release.countDown();
+        failing = true;
+        PopularFlightsCache cache = new PopularFlightsCache(flightDAO(), null);
+        assertThrows(IllegalStateException.class, () -> cache.get(5));
+    }
+
+    // Lùi loadedAt của bản hiện có quá MAX_STALE_MILLIS
+    private static void expireSnapshot(PopularFlightsCache cache) throws Exception {
+        Field field = PopularFlightsCache.class.getDeclaredField("snapshot");
+        field.setAccessible(true);
+        Object current = field.get(cache);
+        Constructor<?> constructor = current.getClass().getDeclaredConstructor(List.class, long.class);
+        constructor.setAccessible(true);
+        field.set(cache, constructor.newInstance(IDS, System.currentTimeMillis() - TimeUnit.HOURS.toMillis(2)));
+    }
+
+    private FlightDAO flightDAO() {
+        return (FlightDAO) Proxy.newProxyInstance(FlightDAO.class.getClassLoader(), new Class<?>[]{FlightDAO.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findPopularUpcomingIds" -> {
+                        queries.incrementAndGet();
+                        release.await();
+                        if (failing) {
+                            throw new IllegalStateException("database unavailable");
+                        }
+                        yield IDS;
+                    }
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+}
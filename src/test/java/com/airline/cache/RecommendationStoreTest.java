@@ -0,0 +1,48 @@
+package com.airline.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.airline.event.FlightInventoryChangedEvent;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * RecommendationStore.onInventoryChanged: đặt / huỷ vé thông thường không làm
+ * cũ danh sách ứng viên; sửa lịch bay hoặc chuyến hết ghế có ghế trở lại thì có.
+ */
+class RecommendationStoreTest {
+
+    private static final long USER = 1L;
+    private static final long ROUTE = 10L;
+    private static final long OTHER_FLIGHT = 99L;
+
+    @Test
+    void seatChangesOnNonCandidateFlightDoNotInvalidate() {
+        RecommendationStore store = new RecommendationStore();
+        RecommendationStore.UserRecommendations entry = loadWithCandidates(store);
+
+        store.onInventoryChanged(new FlightInventoryChangedEvent(OTHER_FLIGHT, ROUTE, LocalDate.now()));
+        assertEquals(List.of(5L, 6L), entry.getCandidates());
+    }
+
+    @Test
+    void reopenedOrRescheduledFlightInvalidates() {
+        RecommendationStore store = new RecommendationStore();
+        RecommendationStore.UserRecommendations entry = loadWithCandidates(store);
+        store.onInventoryChanged(new FlightInventoryChangedEvent(OTHER_FLIGHT, ROUTE, LocalDate.now(), false, true));
+        assertNull(entry.getCandidates());
+
+        entry.setCandidates(List.of(5L, 6L), entry.getGeneration());
+        store.onInventoryChanged(new FlightInventoryChangedEvent(OTHER_FLIGHT, ROUTE, LocalDate.now(), true, false));
+        assertNull(entry.getCandidates());
+    }
+
+    private static RecommendationStore.UserRecommendations loadWithCandidates(RecommendationStore store) {
+        RecommendationStore.UserRecommendations entry = store.load(USER, () -> Map.of(ROUTE, 2L));
+        entry.setCandidates(List.of(5L, 6L), entry.getGeneration());
+        return entry;
+    }
+}
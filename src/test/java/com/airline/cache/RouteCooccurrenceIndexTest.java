@@ -0,0 +1,124 @@
+package com.airline.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import com.airline.dao.BookingDAO;
+import com.airline.entity.Booking.BookingStatus;
+import com.airline.event.BookingLifecycleEvent;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/**
+ * RouteCooccurrenceIndex.applyPending: booking của cùng user được áp ở hai lô
+ * khác nhau (booking sau commit trong lúc lô trước đang query) chỉ tạo một
+ * liên kết route-route.
+ */
+class RouteCooccurrenceIndexTest {
+
+    private static final long HAN_SGN = 1L;
+    private static final long HAN_DAD = 2L;
+
+    // "DB": bookingId -> [userId, routeId] của các booking CONFIRMED đã commit
+    private final Map<Long, long[]> confirmed = new LinkedHashMap<>();
+    // Booking commit ngay khi lô đang chạy query lịch sử user
+    private final List<long[]> commitDuringQuery = new ArrayList<>();
+
+    private final RouteCooccurrenceIndex index
+            = new RouteCooccurrenceIndex(null, bookingDAO(), new RecommendationStore(), null);
+
+    @Test
+    void bookingCommittedDuringQueryIsNotCountedTwice() {
+        // User 10: booking 100 (HAN-SGN) áp ở lô đầu, booking 101 (HAN-DAD)
+        // commit trong lúc lô đó query -> áp ở lô sau
+        confirm(100L, 10L, HAN_SGN);
+        commitDuringQuery.add(new long[]{101L, 10L, HAN_DAD});
+        index.applyPending();
+        index.applyPending();
+
+        // Một user chung: dưới MIN_SUPPORT
+        assertArrayEquals(new long[0], index.relatedRoutes(HAN_SGN));
+
+        confirm(200L, 20L, HAN_SGN);
+        confirm(201L, 20L, HAN_DAD);
+        index.applyPending();
+
+        assertArrayEquals(new long[]{HAN_DAD}, index.relatedRoutes(HAN_SGN));
+        assertArrayEquals(new long[]{HAN_SGN}, index.relatedRoutes(HAN_DAD));
+    }
+
+    @Test
+    void cancelledBookingStillQueuedCountsAsBefore() {
+        confirm(300L, 30L, HAN_SGN);
+        confirm(301L, 30L, HAN_DAD);
+        confirm(400L, 40L, HAN_SGN);
+        confirm(401L, 40L, HAN_DAD);
+        index.applyPending();
+        assertArrayEquals(new long[]{HAN_DAD}, index.relatedRoutes(HAN_SGN));
+
+        // User 30 huỷ cả hai; huỷ 301 commit trong lúc lô huỷ 300 đang query
+        cancel(300L);
+        confirmed.remove(301L);
+        commitDuringQuery.add(new long[]{301L, 30L, HAN_DAD, -1});
+        index.applyPending();
+        index.applyPending();
+
+        assertArrayEquals(new long[0], index.relatedRoutes(HAN_SGN));
+    }
+
+    private void confirm(long bookingId, long userId, long routeId) {
+        confirmed.put(bookingId, new long[]{userId, routeId});
+        index.onBookingLifecycle(event(BookingLifecycleEvent.Type.CONFIRMED, BookingStatus.PENDING,
+                bookingId, userId, routeId));
+    }
+
+    private void cancel(long bookingId) {
+        long[] booking = confirmed.remove(bookingId);
+        index.onBookingLifecycle(event(BookingLifecycleEvent.Type.CANCELLED, BookingStatus.CONFIRMED,
+                bookingId, booking[0], booking[1]));
+    }
+
+    private static BookingLifecycleEvent event(BookingLifecycleEvent.Type type, BookingStatus previous,
+            long bookingId, long userId, long routeId) {
+        return new BookingLifecycleEvent(type, previous, bookingId, userId, 1L, routeId,
+                new BigDecimal("1500000.00"), 1);
+    }
+
+    private BookingDAO bookingDAO() {
+        return (BookingDAO) Proxy.newProxyInstance(BookingDAO.class.getClassLoader(), new Class<?>[]{BookingDAO.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "countRoutesByUser" -> countRoutesByUser((Long) args[0], (Collection<?>) args[2]);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    private List<Object[]> countRoutesByUser(Long userId, Collection<?> excluded) {
+        // Commit trước khi query đọc: query thấy booking, sự kiện vào hàng đợi ngay sau
+        for (long[] booking : commitDuringQuery) {
+            if (booking.length > 3) {
+                index.onBookingLifecycle(event(BookingLifecycleEvent.Type.CANCELLED, BookingStatus.CONFIRMED,
+                        booking[0], booking[1], booking[2]));
+            } else {
+                confirmed.put(booking[0], new long[]{booking[1], booking[2]});
+                index.onBookingLifecycle(event(BookingLifecycleEvent.Type.CONFIRMED, BookingStatus.PENDING,
+                        booking[0], booking[1], booking[2]));
+            }
+        }
+        commitDuringQuery.clear();
+
+        Map<Long, Long> counts = new LinkedHashMap<>();
+        confirmed.forEach((bookingId, booking) -> {
+            if (booking[0] == userId && !excluded.contains(bookingId)) {
+                counts.merge(booking[1], 1L, Long::sum);
+            }
+        });
+        List<Object[]> rows = new ArrayList<>();
+        counts.forEach((routeId, count) -> rows.add(new Object[]{routeId, count}));
+        return rows;
+    }
+}
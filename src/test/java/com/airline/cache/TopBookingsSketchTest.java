@@ -0,0 +1,177 @@
+package com.airline.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.airline.dao.BookingDAO;
+import com.airline.dao.FlightDAO;
+import com.airline.dao.UserDAO;
+import com.airline.event.BookingLifecycleEvent;
+import com.airline.util.SpaceSaving;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * So sánh TopBookingsSketch với các query chính xác (giả lập bằng bộ đếm trong
+ * bộ nhớ thay cho GROUP BY trên Bookings) trên một tập booking tổng hợp.
+ */
+class TopBookingsSketchTest {
+
+    private static final int USERS = 50_000;
+    private static final int FLIGHTS = 8_000;
+
+    private final Map<Long, Long> userCounts = new ConcurrentHashMap<>();
+    private final Map<Long, Long> flightCounts = new ConcurrentHashMap<>();
+    private final AtomicLong bookings = new AtomicLong();
+
+    // Khác null: count() dừng ở đây (mô phỏng query chính xác chạy lâu)
+    private volatile CountDownLatch queryStarted;
+    private volatile CountDownLatch releaseQuery;
+
+    @Test
+    void topTenMatchesExactQueriesWithinErrorBound() {
+        TopBookingsSketch sketch = newSketch();
+        Random random = new Random(11);
+        book(sketch, random, 100_000);
+        sketch.verifyAndRebuild();
+        // Dựng lại từ số chính xác rồi tiếp tục nhận booking: sketch phải khớp
+        // với query chính xác cả trước lẫn sau lần dựng lại tiếp theo
+        book(sketch, random, 400_000);
+
+        long bound = (long) Math.ceil(TopBookingsSketch.EPSILON * bookings.get());
+        assertTopMatches(sketch.topUsers(10), userCounts, bound);
+        assertTopMatches(sketch.topFlights(10), flightCounts, bound);
+
+        sketch.verifyAndRebuild();
+        Map<String, Object> stats = sketch.getStats();
+        assertEquals(1.0, stats.get("lastUserRecall"));
+        assertEquals(1.0, stats.get("lastFlightRecall"));
+        assertTrue((long) stats.get("lastUserMaxError") <= bound);
+        assertTrue((long) stats.get("lastFlightMaxError") <= bound);
+    }
+
+    @Test
+    void bookingsDuringRebuildAreCountedExactlyOnce() throws Exception {
+        TopBookingsSketch sketch = newSketch();
+        Random random = new Random(5);
+        book(sketch, random, 1_000);
+
+        queryStarted = new CountDownLatch(1);
+        releaseQuery = new CountDownLatch(1);
+        Thread rebuild = new Thread(sketch::verifyAndRebuild);
+        rebuild.start();
+        assertTrue(queryStarted.await(10, TimeUnit.SECONDS));
+
+        // Query "đã chụp" số đếm trước các booking này: chúng chỉ được tính qua
+        // replay, không mất và không bị cộng hai lần
+        Map<Long, Long> snapshotUsers = Map.copyOf(userCounts);
+        Map<Long, Long> snapshotFlights = Map.copyOf(flightCounts);
+        long snapshotTotal = bookings.get();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                sketch.onBookingLifecycle(created(7L, 3L));
+            }
+        });
+        writer.start();
+        writer.join();
+        userCounts.clear();
+        userCounts.putAll(snapshotUsers);
+        flightCounts.clear();
+        flightCounts.putAll(snapshotFlights);
+        bookings.set(snapshotTotal);
+        releaseQuery.countDown();
+        rebuild.join(10_000);
+
+        long expectedUser = snapshotUsers.getOrDefault(7L, 0L) + 200;
+        long expectedFlight = snapshotFlights.getOrDefault(3L, 0L) + 200;
+        assertEquals(expectedUser, count(sketch.topUsers(USERS), 7L));
+        assertEquals(expectedFlight, count(sketch.topFlights(FLIGHTS), 3L));
+    }
+
+    private TopBookingsSketch newSketch() {
+        UserDAO userDAO = stub(UserDAO.class, args -> top(userCounts, (int) args[0]));
+        FlightDAO flightDAO = stub(FlightDAO.class, args -> top(flightCounts, (int) args[0]));
+        BookingDAO bookingDAO = stub(BookingDAO.class, args -> {
+            CountDownLatch started = queryStarted;
+            if (started != null) {
+                queryStarted = null;
+                started.countDown();
+                try {
+                    releaseQuery.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return bookings.get();
+        });
+        return new TopBookingsSketch(userDAO, flightDAO, bookingDAO);
+    }
+
+    private void book(TopBookingsSketch sketch, Random random, int count) {
+        for (int i = 0; i < count; i++) {
+            long userId = zipf(random, USERS);
+            long flightId = zipf(random, FLIGHTS);
+            sketch.onBookingLifecycle(created(userId, flightId));
+        }
+    }
+
+    private BookingLifecycleEvent created(long userId, long flightId) {
+        userCounts.merge(userId, 1L, Long::sum);
+        flightCounts.merge(flightId, 1L, Long::sum);
+        long id = bookings.incrementAndGet();
+        return new BookingLifecycleEvent(BookingLifecycleEvent.Type.CREATED, null,
+                id, userId, flightId, 1L, BigDecimal.TEN, 1);
+    }
+
+    /**
+     * Khoá theo phân phối gần Zipf (s = 1): vài khách / chuyến rất nhiều
+     * booking, đuôi dài chỉ một vài booking
+     */
+    private static long zipf(Random random, int keys) {
+        return (long) Math.floor(Math.pow(keys, random.nextDouble()));
+    }
+
+    private static List<Object[]> top(Map<Long, Long> counts, int limit) {
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(limit)
+                .map(e -> new Object[]{e.getKey(), e.getValue()})
+                .toList();
+    }
+
+    private static void assertTopMatches(List<SpaceSaving.Entry<Long>> estimated, Map<Long, Long> exact, long bound) {
+        Set<Long> exactTop = top(exact, estimated.size()).stream()
+                .map(row -> (Long) row[0])
+                .collect(Collectors.toSet());
+        assertEquals(exactTop, estimated.stream().map(SpaceSaving.Entry::key).collect(Collectors.toSet()));
+        for (SpaceSaving.Entry<Long> entry : estimated) {
+            long actual = exact.get(entry.key());
+            assertTrue(entry.count() >= actual && entry.count() - actual <= bound,
+                    "estimate " + entry.count() + " vs exact " + actual + " for " + entry.key());
+        }
+    }
+
+    private static long count(List<SpaceSaving.Entry<Long>> entries, long key) {
+        return entries.stream().filter(e -> e.key() == key).mapToLong(SpaceSaving.Entry::count).findFirst().orElse(0);
+    }
+
+    /**
+     * DAO giả: mọi phương thức trả về answer (chỉ các query top / count được gọi)
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, Function<Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> answer.apply(args));
+    }
+}
@@ -0,0 +1,187 @@
+package com.airline.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.airline.dao.impl.FlightDAOImpl;
+import com.airline.dto.FlightResponse;
+import com.airline.dto.FlightView;
+import com.airline.dto.RouteInfo;
+import com.airline.entity.Aircraft;
+import com.airline.entity.Flight;
+import com.airline.entity.Route;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import org.hibernate.Session;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Benchmark danh sách 10k chuyến bay: entity + JOIN FETCH rồi copy sang
+ * FlightResponse (cách cũ) so với projection FlightView. Đo bộ nhớ cấp phát
+ * trên thread (ThreadMXBean), độ trễ trung vị và số entity bị giữ trong
+ * persistence context. Chạy trên H2 nên số tuyệt đối chỉ mang tính tương
+ * đối. Không chạy trong mvn test mặc định: mvn test -Pbenchmark.
+ */
+@Tag("benchmark")
+class FlightListingBenchmarkTest {
+
+    private static final int ROWS = 10_000;
+    private static final int WARMUP = 3;
+    private static final int ITERATIONS = 7;
+
+    private static AnnotationConfigApplicationContext context;
+    private static FlightDAO flightDAO;
+    private static TransactionTemplate readOnly;
+    private static Fixtures fixtures;
+
+    @BeforeAll
+    static void startContext() {
+        context = new AnnotationConfigApplicationContext(
+                H2JpaTestConfig.class, FlightDAOImpl.class, Fixtures.class);
+        flightDAO = context.getBean(FlightDAO.class);
+        fixtures = context.getBean(Fixtures.class);
+        TransactionTemplate tx = context.getBean(TransactionTemplate.class);
+        tx.executeWithoutResult(status -> fixtures.insertFlights(ROWS));
+        readOnly = new TransactionTemplate(tx.getTransactionManager());
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterAll
+    static void closeContext() {
+        context.close();
+    }
+
+    @Test
+    void projectionAllocatesLessAndKeepsPersistenceContextEmpty() {
+        Result entities = measure("entity + JOIN FETCH", () -> readOnly.execute(status -> {
+            List<FlightResponse> rows = flightDAO.findAll().stream()
+                    .map(FlightListingBenchmarkTest::toResponse)
+                    .collect(Collectors.toList());
+            return new Listing(rows.size(), fixtures.managedEntities());
+        }));
+        Result views = measure("FlightView projection", () -> readOnly.execute(status -> {
+            List<FlightResponse> rows = flightDAO.findViewsPage(null, null, null, null, false, null, ROWS)
+                    .stream()
+                    .map(FlightView::toResponse)
+                    .collect(Collectors.toList());
+            return new Listing(rows.size(), fixtures.managedEntities());
+        }));
+
+        assertEquals(ROWS, entities.rows);
+        assertEquals(ROWS, views.rows);
+        assertTrue(entities.managedEntities >= ROWS, "entity listing should hydrate every flight");
+        assertEquals(0, views.managedEntities, "projection must not hydrate entities");
+        assertTrue(views.allocatedBytes < entities.allocatedBytes,
+                "projection should allocate less: " + views.allocatedBytes + " vs " + entities.allocatedBytes);
+    }
+
+    private record Listing(int rows, long managedEntities) {
+    }
+
+    private record Result(int rows, long managedEntities, long allocatedBytes, double medianMillis) {
+    }
+
+    private static Result measure(String name, Supplier<Listing> listing) {
+        for (int i = 0; i < WARMUP; i++) {
+            listing.get();
+        }
+        com.sun.management.ThreadMXBean threads
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long[] bytes = new long[ITERATIONS];
+        long[] nanos = new long[ITERATIONS];
+        Listing last = null;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            last = listing.get();
+            nanos[i] = System.nanoTime() - start;
+            bytes[i] = threads.getCurrentThreadAllocatedBytes() - allocatedBefore;
+        }
+        Arrays.sort(bytes);
+        Arrays.sort(nanos);
+        Result result = new Result(last.rows(), last.managedEntities(),
+                bytes[ITERATIONS / 2], nanos[ITERATIONS / 2] / 1_000_000.0);
+        System.out.printf("%-22s rows=%d managed=%d allocated=%.1f MB median=%.1f ms%n", name,
+                result.rows(), result.managedEntities(), result.allocatedBytes() / 1_048_576.0,
+                result.medianMillis());
+        return result;
+    }
+
+    // Cách chuyển cũ của FlightRestController.convertToFlightResponse
+    private static FlightResponse toResponse(Flight flight) {
+        return FlightResponse.builder()
+                .id(flight.getId())
+                .flightNumber(flight.getFlightNumber())
+                .departureTime(flight.getDepartureTime())
+                .arrivalTime(flight.getArrivalTime())
+                .price(flight.getPrice())
+                .availableSeats(flight.getAvailableSeats())
+                .route(RouteInfo.builder()
+                        .id(flight.getRoute().getId())
+                        .origin(flight.getRoute().getOrigin())
+                        .destination(flight.getRoute().getDestination())
+                        .distanceKm(flight.getRoute().getDistanceKm())
+                        .build())
+                .aircraftModel(flight.getAircraft().getModelName())
+                .aircraftId(flight.getAircraft().getId())
+                .version(flight.getVersion())
+                .build();
+    }
+
+    @Component
+    static class Fixtures {
+
+        @PersistenceContext
+        private EntityManager em;
+
+        void insertFlights(int count) {
+            Route route = Route.builder()
+                    .origin("Hanoi")
+                    .destination("Ho Chi Minh City")
+                    .distanceKm(new BigDecimal("1160.00"))
+                    .build();
+            em.persist(route);
+            Aircraft aircraft = Aircraft.builder()
+                    .modelName("A321")
+                    .capacity(180)
+                    .build();
+            em.persist(aircraft);
+            LocalDateTime base = LocalDateTime.now().plusDays(1);
+            for (int i = 0; i < count; i++) {
+                LocalDateTime departure = base.plusMinutes(10L * i);
+                em.persist(Flight.builder()
+                        .flightNumber("BM" + i)
+                        .departureTime(departure)
+                        .arrivalTime(departure.plusHours(2))
+                        .price(new BigDecimal("1500000.00"))
+                        .availableSeats(180)
+                        .route(route)
+                        .aircraft(aircraft)
+                        .build());
+                if (i % 500 == 499) {
+                    em.flush();
+                    em.clear();
+                    route = em.getReference(Route.class, route.getId());
+                    aircraft = em.getReference(Aircraft.class, aircraft.getId());
+                }
+            }
+        }
+
+        long managedEntities() {
+            return em.unwrap(Session.class).getStatistics().getEntityCount();
+        }
+    }
+}
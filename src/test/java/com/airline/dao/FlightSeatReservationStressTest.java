@@ -0,0 +1,173 @@
+package com.airline.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.airline.dao.impl.FlightDAOImpl;
+import com.airline.entity.Aircraft;
+import com.airline.entity.Flight;
+import com.airline.entity.Route;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Stress test cho FlightDAO.reserveSeats / releaseSeats: nhiều thread cùng
+ * giành ghế của một chuyến bay, không bao giờ bán quá số ghế và số ghế còn lại
+ * luôn khớp với số ghế đã giữ thành công.
+ */
+class FlightSeatReservationStressTest {
+
+    private static final int SEATS = 180;
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS_PER_THREAD = 50;
+
+    private static AnnotationConfigApplicationContext context;
+    private static FlightDAO flightDAO;
+    private static TransactionTemplate tx;
+    private static Fixtures fixtures;
+
+    @BeforeAll
+    static void startContext() {
+        context = new AnnotationConfigApplicationContext(
+                H2JpaTestConfig.class, FlightDAOImpl.class, Fixtures.class);
+        flightDAO = context.getBean(FlightDAO.class);
+        tx = context.getBean(TransactionTemplate.class);
+        fixtures = context.getBean(Fixtures.class);
+    }
+
+    @AfterAll
+    static void closeContext() {
+        context.close();
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        Long flightId = tx.execute(status -> fixtures.newFlight(SEATS));
+
+        List<Integer> reserved = runConcurrently(() -> {
+            int seats = 0;
+            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                int count = ThreadLocalRandom.current().nextInt(1, 4);
+                if (Boolean.TRUE.equals(tx.execute(status -> flightDAO.reserveSeats(flightId, count)))) {
+                    seats += count;
+                }
+            }
+            return seats;
+        });
+
+        int sold = reserved.stream().mapToInt(Integer::intValue).sum();
+        int available = availableSeats(flightId);
+        assertTrue(available >= 0, "available seats went negative: " + available);
+        assertEquals(SEATS, sold + available, "sold + available must equal capacity");
+        // Nhu cầu (64 * 50 * ~2 ghế) vượt xa sức chứa: chuyến bay phải bán gần hết
+        assertTrue(available < 3, "flight should be (almost) sold out, " + available + " left");
+    }
+
+    @Test
+    void concurrentReserveAndReleaseKeepInventoryConsistent() throws Exception {
+        Long flightId = tx.execute(status -> fixtures.newFlight(SEATS));
+
+        // Mỗi thread giữ ghế rồi huỷ một phần, như createBooking / cancelBooking
+        List<Integer> held = runConcurrently(() -> {
+            int seats = 0;
+            for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                int count = ThreadLocalRandom.current().nextInt(1, 4);
+                if (Boolean.TRUE.equals(tx.execute(status -> flightDAO.reserveSeats(flightId, count)))) {
+                    if (ThreadLocalRandom.current().nextBoolean()) {
+                        tx.executeWithoutResult(status -> flightDAO.releaseSeats(flightId, count));
+                    } else {
+                        seats += count;
+                    }
+                }
+            }
+            return seats;
+        });
+
+        int sold = held.stream().mapToInt(Integer::intValue).sum();
+        int available = availableSeats(flightId);
+        assertTrue(available >= 0, "available seats went negative: " + available);
+        assertEquals(SEATS, sold + available, "sold + available must equal capacity");
+    }
+
+    private static int availableSeats(Long flightId) {
+        return tx.execute(status -> fixtures.availableSeats(flightId));
+    }
+
+    private static List<Integer> runConcurrently(java.util.concurrent.Callable<Integer> task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return task.call();
+                }));
+            }
+            start.countDown();
+            List<Integer> results = new ArrayList<>();
+            for (Future<Integer> future : futures) {
+                results.add(future.get(2, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Component
+    static class Fixtures {
+
+        @PersistenceContext
+        private EntityManager em;
+
+        Long newFlight(int seats) {
+            long unique = System.nanoTime();
+            Route route = Route.builder()
+                    .origin("HAN-" + unique)
+                    .destination("SGN-" + unique)
+                    .distanceKm(new BigDecimal("1160.00"))
+                    .build();
+            em.persist(route);
+            Aircraft aircraft = Aircraft.builder()
+                    .modelName("A321")
+                    .capacity(seats)
+                    .build();
+            em.persist(aircraft);
+            LocalDateTime departure = LocalDateTime.now().plusDays(7);
+            Flight flight = Flight.builder()
+                    .flightNumber("VN" + (unique % 1_000_000_000L))
+                    .departureTime(departure)
+                    .arrivalTime(departure.plusHours(2))
+                    .price(new BigDecimal("1500000.00"))
+                    .availableSeats(seats)
+                    .route(route)
+                    .aircraft(aircraft)
+                    .build();
+            em.persist(flight);
+            return flight.getId();
+        }
+
+        int availableSeats(Long flightId) {
+            return em.createQuery("SELECT f.availableSeats FROM Flight f WHERE f.id = :id", Integer.class)
+                    .setParameter("id", flightId)
+                    .getSingleResult();
+        }
+    }
+}
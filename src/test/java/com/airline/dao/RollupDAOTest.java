@@ -0,0 +1,228 @@
+package com.airline.dao;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import com.airline.dao.impl.RollupDAOImpl;
+import com.airline.entity.Aircraft;
+import com.airline.entity.Booking;
+import com.airline.entity.BookingPassenger;
+import com.airline.entity.Flight;
+import com.airline.entity.Route;
+import com.airline.entity.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * RollupDAO trên H2: upsert delta tăng dần, dựng lại dải từ bảng giao dịch,
+ * đồng bộ flight / sức chứa máy bay.
+ */
+class RollupDAOTest {
+
+    private static final BigDecimal PRICE = new BigDecimal("1500000.00");
+
+    private static AnnotationConfigApplicationContext context;
+    private static RollupDAO rollupDAO;
+    private static TransactionTemplate tx;
+    private static Fixtures fixtures;
+
+    @BeforeAll
+    static void startContext() {
+        context = new AnnotationConfigApplicationContext(
+                H2JpaTestConfig.class, RollupDAOImpl.class, Fixtures.class);
+        rollupDAO = context.getBean(RollupDAO.class);
+        tx = context.getBean(TransactionTemplate.class);
+        fixtures = context.getBean(Fixtures.class);
+        tx.executeWithoutResult(status -> fixtures.createFlightRollups());
+    }
+
+    @AfterAll
+    static void closeContext() {
+        context.close();
+    }
+
+    @Test
+    void applyDeltaCreatesRowThenAccumulates() {
+        Flight flight = tx.execute(status -> fixtures.newFlight(180));
+
+        tx.executeWithoutResult(status -> rollupDAO.applyDelta(flight.getId(), 1, 2, PRICE));
+        tx.executeWithoutResult(status -> rollupDAO.applyDelta(flight.getId(), 1, 3, PRICE));
+        tx.executeWithoutResult(status -> rollupDAO.applyDelta(flight.getId(), -1, -2, PRICE.negate()));
+
+        Object[] row = rollup(flight.getId());
+        assertEquals(1, toInt(row[0]));
+        assertEquals(3, toInt(row[1]));
+        assertEquals(180, toInt(row[2]));
+        assertEquals(0, PRICE.compareTo(new BigDecimal(row[3].toString())));
+    }
+
+    @Test
+    void rebuildRangeRecomputesFromConfirmedBookings() {
+        Flight sold = tx.execute(status -> fixtures.newFlight(100));
+        Flight empty = tx.execute(status -> fixtures.newFlight(50));
+        tx.executeWithoutResult(status -> {
+            fixtures.newBooking(sold.getId(), Booking.BookingStatus.CONFIRMED, 2);
+            fixtures.newBooking(sold.getId(), Booking.BookingStatus.CONFIRMED, 1);
+            fixtures.newBooking(sold.getId(), Booking.BookingStatus.PENDING, 4);
+            fixtures.newBooking(sold.getId(), Booking.BookingStatus.CANCELLED, 3);
+        });
+        // Dòng lệch (vd. delta bị mất) bị thay bằng số liệu từ Bookings
+        tx.executeWithoutResult(status -> rollupDAO.applyDelta(sold.getId(), 7, 7, PRICE));
+
+        long from = Math.min(sold.getId(), empty.getId());
+        long to = Math.max(sold.getId(), empty.getId());
+        int rebuilt = tx.execute(status -> rollupDAO.rebuildRange(from, to));
+        assertEquals(2, rebuilt);
+
+        Object[] soldRow = rollup(sold.getId());
+        assertEquals(2, toInt(soldRow[0]));
+        assertEquals(3, toInt(soldRow[1]));
+        assertEquals(100, toInt(soldRow[2]));
+        assertEquals(0, PRICE.multiply(BigDecimal.valueOf(2)).compareTo(new BigDecimal(soldRow[3].toString())));
+        Object[] emptyRow = rollup(empty.getId());
+        assertEquals(0, toInt(emptyRow[0]));
+        assertEquals(50, toInt(emptyRow[2]));
+    }
+
+    @Test
+    void syncAircraftUpdatesCapacityOfEveryFlight() {
+        Flight first = tx.execute(status -> fixtures.newFlight(120));
+        Flight second = tx.execute(status -> fixtures.newFlight(first.getAircraft().getId()));
+        tx.executeWithoutResult(status -> {
+            rollupDAO.syncFlight(first.getId());
+            rollupDAO.syncFlight(second.getId());
+        });
+
+        int updated = tx.execute(status -> {
+            fixtures.setCapacity(first.getAircraft().getId(), 150);
+            return rollupDAO.syncAircraft(first.getAircraft().getId());
+        });
+
+        assertEquals(2, updated);
+        assertEquals(150, toInt(rollup(first.getId())[2]));
+        assertEquals(150, toInt(rollup(second.getId())[2]));
+    }
+
+    @Test
+    void syncFlightDropsRowOfDeletedFlight() {
+        Flight flight = tx.execute(status -> fixtures.newFlight(60));
+        tx.executeWithoutResult(status -> rollupDAO.syncFlight(flight.getId()));
+        tx.executeWithoutResult(status -> {
+            fixtures.deleteFlight(flight.getId());
+            rollupDAO.syncFlight(flight.getId());
+        });
+
+        assertNull(rollup(flight.getId()));
+    }
+
+    private static Object[] rollup(Long flightId) {
+        return tx.execute(status -> fixtures.rollup(flightId));
+    }
+
+    private static int toInt(Object value) {
+        return ((Number) value).intValue();
+    }
+
+    @Component
+    static class Fixtures {
+
+        @PersistenceContext
+        private EntityManager em;
+
+        // FlightRollups không có entity: tạo như trong AirLineReservationDB_2.1.sql
+        void createFlightRollups() {
+            em.createNativeQuery("CREATE TABLE IF NOT EXISTS FlightRollups ("
+                    + "flight_id BIGINT PRIMARY KEY, stat_date DATE NOT NULL, route_id BIGINT NOT NULL, "
+                    + "aircraft_id BIGINT NOT NULL, capacity INT NOT NULL, "
+                    + "confirmed_bookings INT NOT NULL DEFAULT 0, booked_seats INT NOT NULL DEFAULT 0, "
+                    + "revenue DECIMAL(18,2) NOT NULL DEFAULT 0, "
+                    + "updated_at DATETIME NOT NULL DEFAULT GETDATE())").executeUpdate();
+        }
+
+        Flight newFlight(int capacity) {
+            Aircraft aircraft = Aircraft.builder()
+                    .modelName("A321")
+                    .capacity(capacity)
+                    .build();
+            em.persist(aircraft);
+            return newFlight(aircraft);
+        }
+
+        Flight newFlight(Long aircraftId) {
+            return newFlight(em.find(Aircraft.class, aircraftId));
+        }
+
+        private Flight newFlight(Aircraft aircraft) {
+            long unique = System.nanoTime();
+            Route route = Route.builder()
+                    .origin("HAN-" + unique)
+                    .destination("SGN-" + unique)
+                    .distanceKm(new BigDecimal("1160.00"))
+                    .build();
+            em.persist(route);
+            LocalDateTime departure = LocalDateTime.now().plusDays(7);
+            Flight flight = Flight.builder()
+                    .flightNumber("VN" + (unique % 1_000_000_000L))
+                    .departureTime(departure)
+                    .arrivalTime(departure.plusHours(2))
+                    .price(PRICE)
+                    .availableSeats(aircraft.getCapacity())
+                    .route(route)
+                    .aircraft(aircraft)
+                    .build();
+            em.persist(flight);
+            return flight;
+        }
+
+        void newBooking(Long flightId, Booking.BookingStatus status, int passengers) {
+            long unique = System.nanoTime();
+            User user = User.builder()
+                    .username("u" + unique)
+                    .password("x")
+                    .email(unique + "@example.com")
+                    .fullName("Nguyen Van A")
+                    .role(User.UserRole.USER)
+                    .build();
+            em.persist(user);
+            Booking booking = Booking.builder()
+                    .user(user)
+                    .flight(em.find(Flight.class, flightId))
+                    .totalPrice(PRICE)
+                    .status(status)
+                    .build();
+            for (int i = 0; i < passengers; i++) {
+                booking.addPassenger(BookingPassenger.builder()
+                        .fullName("Passenger " + i)
+                        .email("p" + i + "@example.com")
+                        .phone("0900000000")
+                        .build());
+            }
+            em.persist(booking);
+        }
+
+        void setCapacity(Long aircraftId, int capacity) {
+            em.find(Aircraft.class, aircraftId).setCapacity(capacity);
+        }
+
+        void deleteFlight(Long flightId) {
+            em.remove(em.find(Flight.class, flightId));
+        }
+
+        Object[] rollup(Long flightId) {
+            List<?> rows = em.createNativeQuery("SELECT confirmed_bookings, booked_seats, capacity, revenue "
+                    + "FROM FlightRollups WHERE flight_id = :id")
+                    .setParameter("id", flightId)
+                    .getResultList();
+            return rows.isEmpty() ? null : (Object[]) rows.get(0);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.airline.service.impl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.airline.dao.FlightDAO;
+import com.airline.dao.H2JpaTestConfig;
+import com.airline.dao.impl.FlightDAOImpl;
+import com.airline.dao.impl.SeatClaimDAOImpl;
+import com.airline.entity.Aircraft;
+import com.airline.entity.BookingPassenger;
+import com.airline.entity.Flight;
+import com.airline.entity.Route;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * SeatMapServiceImpl trên H2: hai "instance" (hai sơ đồ ghế trong bộ nhớ độc
+ * lập) cùng cấp ghế cho một chuyến bay qua chung bảng SeatClaims, không ghế nào
+ * bị cấp hai lần; ghế instance khác trả lại được dùng lại sau khi đồng bộ.
+ */
+class SeatMapServiceImplTest {
+
+    private static final int SEATS = 60;
+    private static final int THREADS = 8;
+
+    private static AnnotationConfigApplicationContext context;
+    private static FlightDAO flightDAO;
+    private static TransactionTemplate tx;
+    private static Fixtures fixtures;
+    private static SeatMapServiceImpl nodeA;
+    private static SeatMapServiceImpl nodeB;
+
+    @BeforeAll
+    static void startContext() {
+        context = new AnnotationConfigApplicationContext(
+                H2JpaTestConfig.class, FlightDAOImpl.class, SeatClaimDAOImpl.class, Fixtures.class);
+        flightDAO = context.getBean(FlightDAO.class);
+        tx = context.getBean(TransactionTemplate.class);
+        fixtures = context.getBean(Fixtures.class);
+        tx.executeWithoutResult(status -> fixtures.createSeatClaims());
+        nodeA = context.getAutowireCapableBeanFactory().createBean(SeatMapServiceImpl.class);
+        nodeB = context.getAutowireCapableBeanFactory().createBean(SeatMapServiceImpl.class);
+    }
+
+    @AfterAll
+    static void closeContext() {
+        context.close();
+    }
+
+    @Test
+    void twoInstancesNeverAssignTheSameSeat() throws Exception {
+        Long flightId = tx.execute(status -> fixtures.newFlight(SEATS));
+
+        List<List<String>> assigned = runConcurrently(thread -> {
+            SeatMapServiceImpl node = thread % 2 == 0 ? nodeA : nodeB;
+            List<String> seats = new ArrayList<>();
+            while (true) {
+                int count = ThreadLocalRandom.current().nextInt(1, 4);
+                try {
+                    seats.addAll(tx.execute(status -> assign(node, flightId, count)));
+                } catch (IllegalStateException e) {
+                    if (count == 1) {
+                        return seats; // Hết ghế
+                    }
+                } catch (RuntimeException e) {
+                    // H2 không khoá theo HOLDLOCK: hai INSERT cùng ghế, PK chặn
+                    // INSERT sau và booking đó rollback
+                }
+            }
+        });
+
+        Set<String> unique = new HashSet<>();
+        for (List<String> seats : assigned) {
+            for (String seat : seats) {
+                assertTrue(unique.add(seat), "seat assigned twice: " + seat);
+            }
+        }
+        assertEquals(SEATS, unique.size());
+        assertEquals(unique, new HashSet<>(tx.execute(status -> fixtures.claimedSeats(flightId))));
+    }
+
+    @Test
+    void seatReleasedOnAnotherInstanceIsReusedAfterRefresh() {
+        Long flightId = tx.execute(status -> fixtures.newFlight(4));
+        List<String> seats = tx.execute(status -> assign(nodeA, flightId, 4));
+        // Sơ đồ của B nạp lúc chuyến bay đã đầy
+        assertEquals(0, tx.execute(status -> nodeB.getSeatMap(flightId)).getAvailableSeats());
+
+        tx.executeWithoutResult(status -> nodeA.releaseSeats(flightId, seats.subList(0, 1)));
+
+        // B vẫn tưởng hết ghế nhưng đồng bộ lại với SeatClaims và cấp được
+        assertEquals(List.of(seats.get(0)), tx.execute(status -> assign(nodeB, flightId, 1)));
+        assertThrows(IllegalStateException.class, () -> tx.execute(status -> assign(nodeA, flightId, 1)));
+    }
+
+    @Test
+    void chosenSeatHeldByAnotherInstanceIsRejected() {
+        Long flightId = tx.execute(status -> fixtures.newFlight(SEATS));
+        tx.execute(status -> nodeB.getSeatMap(flightId));
+        tx.executeWithoutResult(status -> {
+            Flight flight = flightDAO.findById(flightId).orElseThrow();
+            nodeA.assignSeats(flight, List.of(passenger("3B")));
+        });
+
+        assertThrows(IllegalStateException.class, () -> tx.executeWithoutResult(status -> {
+            Flight flight = flightDAO.findById(flightId).orElseThrow();
+            nodeB.assignSeats(flight, List.of(passenger("3b")));
+        }));
+        assertEquals(List.of("3B"), tx.execute(status -> fixtures.claimedSeats(flightId)));
+    }
+
+    private static List<String> assign(SeatMapServiceImpl node, Long flightId, int count) {
+        Flight flight = flightDAO.findById(flightId).orElseThrow();
+        List<BookingPassenger> passengers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            passengers.add(passenger(null));
+        }
+        node.assignSeats(flight, passengers);
+        return passengers.stream().map(BookingPassenger::getSeatNumber).toList();
+    }
+
+    private static BookingPassenger passenger(String seat) {
+        return BookingPassenger.builder()
+                .fullName("Nguyen Van A")
+                .email("a@example.com")
+                .phone("0900000000")
+                .seatNumber(seat)
+                .build();
+    }
+
+    private interface Worker {
+
+        List<String> run(int thread) throws Exception;
+    }
+
+    private static List<List<String>> runConcurrently(Worker worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<List<String>>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return worker.run(thread);
+                }));
+            }
+            start.countDown();
+            List<List<String>> results = new ArrayList<>();
+            for (Future<List<String>> future : futures) {
+                results.add(future.get(2, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Component
+    static class Fixtures {
+
+        @PersistenceContext
+        private EntityManager em;
+
+        // SeatClaims không có entity: tạo như trong AirLineReservationDB_2.1.sql
+        void createSeatClaims() {
+            em.createNativeQuery("CREATE TABLE IF NOT EXISTS SeatClaims ("
+                    + "flight_id BIGINT NOT NULL, seat_number VARCHAR(10) NOT NULL, "
+                    + "claimed_at DATETIME NOT NULL DEFAULT GETDATE(), "
+                    + "CONSTRAINT pk_seat_claims PRIMARY KEY (flight_id, seat_number))").executeUpdate();
+        }
+
+        Long newFlight(int seats) {
+            long unique = System.nanoTime();
+            Route route = Route.builder()
+                    .origin("HAN-" + unique)
+                    .destination("SGN-" + unique)
+                    .distanceKm(new BigDecimal("1160.00"))
+                    .build();
+            em.persist(route);
+            Aircraft aircraft = Aircraft.builder()
+                    .modelName("A321")
+                    .capacity(seats)
+                    .build();
+            em.persist(aircraft);
+            LocalDateTime departure = LocalDateTime.now().plusDays(7);
+            Flight flight = Flight.builder()
+                    .flightNumber("VN" + (unique % 1_000_000_000L))
+                    .departureTime(departure)
+                    .arrivalTime(departure.plusHours(2))
+                    .price(new BigDecimal("1500000.00"))
+                    .availableSeats(seats)
+                    .route(route)
+                    .aircraft(aircraft)
+                    .build();
+            em.persist(flight);
+            return flight.getId();
+        }
+
+        List<String> claimedSeats(Long flightId) {
+            List<?> rows = em.createNativeQuery("SELECT seat_number FROM SeatClaims WHERE flight_id = :id")
+                    .setParameter("id", flightId)
+                    .getResultList();
+            return rows.stream().map(String.class::cast).toList();
+        }
+    }
+}
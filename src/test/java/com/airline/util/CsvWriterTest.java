@@ -0,0 +1,34 @@
+package com.airline.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import org.junit.jupiter.api.Test;
+
+class CsvWriterTest {
+
+    private static String row(Object... fields) {
+        StringWriter out = new StringWriter();
+        new CsvWriter(out).writeRow(fields);
+        return out.toString();
+    }
+
+    @Test
+    void quotesOnlyWhenNeeded() {
+        assertEquals("1,Nguyen Van A,\"a,b\",\"say \"\"hi\"\"\"\r\n",
+                row(1L, "Nguyen Van A", "a,b", "say \"hi\""));
+    }
+
+    @Test
+    void neutralizesFormulaLikeText() {
+        assertEquals("'=1+1,'+1,'-2,'@SUM(A1)\r\n", row("=1+1", "+1", "-2", "@SUM(A1)"));
+        // Tiền tố được thêm trước khi bọc dấu nháy
+        assertEquals("\"'=HYPERLINK(\"\"x\"\")\"\r\n", row("=HYPERLINK(\"x\")"));
+    }
+
+    @Test
+    void leavesNegativeNumbersAlone() {
+        assertEquals("-5,-1.50\r\n", row(-5, new BigDecimal("-1.50")));
+    }
+}
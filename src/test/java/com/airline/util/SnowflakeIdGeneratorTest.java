@@ -0,0 +1,108 @@
+package com.airline.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Stress test cho SnowflakeIdGenerator: nhiều luồng trên nhiều node cùng sinh
+ * id (vượt xa 4096 id / ms nên phải "mượn" ms kế tiếp), không bao giờ trùng và
+ * tăng dần trong từng luồng.
+ */
+class SnowflakeIdGeneratorTest {
+
+    private static final int THREADS = 16;
+    private static final int IDS_PER_THREAD = 100_000;
+
+    @Test
+    void concurrentIdsAreUniqueAcrossThreadsAndNodes() throws Exception {
+        SnowflakeIdGenerator[] nodes = {new SnowflakeIdGenerator(1), new SnowflakeIdGenerator(2)};
+
+        List<long[]> batches = runConcurrently(thread -> {
+            SnowflakeIdGenerator generator = nodes[thread % nodes.length];
+            long[] ids = new long[IDS_PER_THREAD];
+            for (int i = 0; i < IDS_PER_THREAD; i++) {
+                ids[i] = generator.nextId();
+                if (i > 0 && ids[i] <= ids[i - 1]) {
+                    throw new AssertionError("ids must increase within a thread");
+                }
+            }
+            return ids;
+        });
+
+        long[] all = batches.stream().flatMapToLong(Arrays::stream).sorted().toArray();
+        assertEquals(THREADS * IDS_PER_THREAD, all.length);
+        for (int i = 1; i < all.length; i++) {
+            assertTrue(all[i] != all[i - 1], "duplicate id " + all[i]);
+        }
+    }
+
+    @Test
+    void idsEncodeNodeAndCreationTime() {
+        Instant before = Instant.now().minusMillis(1);
+        long id = new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID).nextId();
+
+        assertTrue(id > 0);
+        assertEquals(SnowflakeIdGenerator.MAX_NODE_ID,
+                (int) (id >>> SnowflakeIdGenerator.SEQUENCE_BITS) & SnowflakeIdGenerator.MAX_NODE_ID);
+        Instant created = SnowflakeIdGenerator.timestampOf(id);
+        assertTrue(!created.isBefore(before) && created.isBefore(before.plus(Duration.ofSeconds(5))));
+    }
+
+    @Test
+    void bookingCodesAreFixedLengthCrockfordBase32() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(7);
+        String code = generator.nextBookingCode();
+        assertEquals(13, code.length());
+        assertTrue(code.matches("[0-9A-HJKMNP-TV-Z]{13}"), code);
+        assertEquals("0000000000001", SnowflakeIdGenerator.toBase32(1));
+        assertEquals("000000000000Z", SnowflakeIdGenerator.toBase32(31));
+    }
+
+    @Test
+    void rejectsNodeIdOutOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new SnowflakeIdGenerator(-1));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1));
+    }
+
+    private interface Batch {
+
+        long[] run(int thread) throws Exception;
+    }
+
+    private static List<long[]> runConcurrently(Batch batch) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return batch.run(thread);
+                }));
+            }
+            start.countDown();
+            List<long[]> results = new ArrayList<>();
+            for (Future<long[]> future : futures) {
+                results.add(future.get(2, TimeUnit.MINUTES));
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
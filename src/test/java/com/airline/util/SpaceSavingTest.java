@@ -0,0 +1,127 @@
+package com.airline.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Kiểm tra sai số của SpaceSaving so với số đếm chính xác trên một luồng dữ
+ * liệu tổng hợp phân phối Zipf (vài khoá rất nóng, đuôi dài các khoá hiếm),
+ * giống phân bố booking theo user / chuyến bay.
+ */
+class SpaceSavingTest {
+
+    private static final double EPSILON = 0.005;
+    private static final int KEYS = 20_000;
+    private static final int EVENTS = 200_000;
+
+    @Test
+    void estimatesStayWithinErrorBound() {
+        SpaceSaving<Long> sketch = SpaceSaving.withErrorBound(EPSILON);
+        Map<Long, Long> exact = feed(sketch, zipfStream(42), EVENTS);
+
+        long bound = (long) Math.ceil(EPSILON * EVENTS);
+        assertEquals(EVENTS, sketch.total());
+        assertTrue(sketch.maxError() <= bound, "maxError " + sketch.maxError() + " > " + bound);
+        for (SpaceSaving.Entry<Long> entry : sketch.top(sketch.capacity())) {
+            long actual = exact.getOrDefault(entry.key(), 0L);
+            assertTrue(entry.count() >= actual, "underestimate for " + entry.key());
+            assertTrue(entry.count() - actual <= bound, "error above bound for " + entry.key());
+            assertTrue(entry.guaranteedCount() <= actual, "guaranteed count above actual for " + entry.key());
+        }
+    }
+
+    @Test
+    void keepsEveryHeavyHitter() {
+        SpaceSaving<Long> sketch = SpaceSaving.withErrorBound(EPSILON);
+        Map<Long, Long> exact = feed(sketch, zipfStream(7), EVENTS);
+
+        Set<Long> tracked = sketch.top(sketch.capacity()).stream()
+                .map(SpaceSaving.Entry::key)
+                .collect(Collectors.toSet());
+        long threshold = EVENTS / sketch.capacity();
+        exact.forEach((key, count) -> {
+            if (count > threshold) {
+                assertTrue(tracked.contains(key), "heavy hitter " + key + " (" + count + ") missing");
+            }
+        });
+    }
+
+    @Test
+    void topTenMatchesExactTopTen() {
+        SpaceSaving<Long> sketch = SpaceSaving.withErrorBound(EPSILON);
+        Map<Long, Long> exact = feed(sketch, zipfStream(2024), EVENTS);
+
+        Set<Long> estimated = sketch.top(10).stream()
+                .map(SpaceSaving.Entry::key)
+                .collect(Collectors.toSet());
+        Set<Long> actual = exact.entrySet().stream()
+                .sorted(Map.Entry.<Long, Long>comparingByValue().reversed())
+                .limit(10)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+        assertEquals(actual, estimated);
+    }
+
+    @Test
+    void resetSeedsExactCountsAndKeepsCounting() {
+        SpaceSaving<Long> sketch = new SpaceSaving<>(3);
+        sketch.reset(Map.of(1L, 5L, 2L, 3L, 3L, 1L, 4L, 1L), 10);
+
+        assertEquals(3, sketch.size());
+        assertEquals(10, sketch.total());
+        assertEquals(List.of(1L, 2L), sketch.top(2).stream().map(SpaceSaving.Entry::key).toList());
+        assertEquals(0, sketch.top(1).get(0).error());
+
+        sketch.offer(2L);
+        sketch.offer(2L);
+        sketch.offer(2L);
+        SpaceSaving.Entry<Long> top = sketch.top(1).get(0);
+        assertEquals(2L, top.key());
+        assertEquals(6, top.count());
+        assertEquals(13, sketch.total());
+
+        // Khoá mới thay khoá nhỏ nhất và kế thừa số đếm của nó làm sai số
+        sketch.offer(9L);
+        SpaceSaving.Entry<Long> replaced = sketch.top(3).get(2);
+        assertEquals(9L, replaced.key());
+        assertEquals(2, replaced.count());
+        assertEquals(1, replaced.error());
+    }
+
+    private static Map<Long, Long> feed(SpaceSaving<Long> sketch, long[] stream, int events) {
+        Map<Long, Long> exact = new HashMap<>();
+        for (int i = 0; i < events; i++) {
+            sketch.offer(stream[i]);
+            exact.merge(stream[i], 1L, Long::sum);
+        }
+        return exact;
+    }
+
+    /**
+     * Luồng EVENTS khoá theo Zipf (s = 1.1) trên KEYS khoá, thứ tự ngẫu nhiên
+     */
+    static long[] zipfStream(long seed) {
+        double[] cumulative = new double[KEYS];
+        double sum = 0;
+        for (int k = 0; k < KEYS; k++) {
+            sum += 1 / Math.pow(k + 1, 1.1);
+            cumulative[k] = sum;
+        }
+        Random random = new Random(seed);
+        long[] stream = new long[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            stream[i] = index >= 0 ? index : -index - 1;
+        }
+        return stream;
+    }
+}
@@ -0,0 +1,106 @@
+package com.airline.util;
+
+import static com.airline.util.VNPaySignerTest.SECRET;
+import static com.airline.util.VNPaySignerTest.legacyHash;
+import static com.airline.util.VNPaySignerTest.paymentFields;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Benchmark ký vnp_SecureHash: cách cũ (Mac.getInstance + init mỗi lần,
+ * String.format từng byte, URLEncoder từng value) so với VNPaySigner. Đo bộ
+ * nhớ cấp phát trên thread (ThreadMXBean), độ trễ trung vị mỗi lần ký và
+ * thông lượng khi nhiều luồng cùng ký; số tuyệt đối phụ thuộc máy nên chỉ so
+ * sánh tương đối. Không chạy trong mvn test mặc định: mvn test -Pbenchmark.
+ * Tính đúng của chữ ký nằm ở VNPaySignerTest.
+ */
+@Tag("benchmark")
+class VNPaySignerBenchmarkTest {
+
+    private static final int WARMUP = 10_000;
+    private static final int OPS = 20_000;
+    private static final int ROUNDS = 5;
+    private static final int THREADS = 8;
+
+    @Test
+    void signerAllocatesLessThanLegacyHash() throws Exception {
+        Map<String, String> fields = paymentFields("Thanh toan don hang 12345");
+        VNPaySigner signer = VNPaySigner.forSecret(SECRET);
+
+        Result legacy = measure("legacy (new Mac)", f -> legacyHash(f, SECRET), fields);
+        Result current = measure("VNPaySigner", signer::hashAllFields, fields);
+
+        assertTrue(current.bytesPerOp() < legacy.bytesPerOp(),
+                "signer should allocate less: " + current.bytesPerOp() + " vs " + legacy.bytesPerOp());
+    }
+
+    private record Result(double nanosPerOp, double bytesPerOp, double opsPerSecondConcurrent) {
+    }
+
+    private static Result measure(String name, Function<Map<String, String>, String> hash,
+            Map<String, String> fields) throws Exception {
+        for (int i = 0; i < WARMUP; i++) {
+            hash.apply(fields);
+        }
+        com.sun.management.ThreadMXBean threads
+                = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double[] nanos = new double[ROUNDS];
+        double[] bytes = new double[ROUNDS];
+        for (int round = 0; round < ROUNDS; round++) {
+            long allocatedBefore = threads.getCurrentThreadAllocatedBytes();
+            long start = System.nanoTime();
+            for (int i = 0; i < OPS; i++) {
+                hash.apply(fields);
+            }
+            nanos[round] = (double) (System.nanoTime() - start) / OPS;
+            bytes[round] = (double) (threads.getCurrentThreadAllocatedBytes() - allocatedBefore) / OPS;
+        }
+        Arrays.sort(nanos);
+        Arrays.sort(bytes);
+        Result result = new Result(nanos[ROUNDS / 2], bytes[ROUNDS / 2], concurrentThroughput(hash, fields));
+        System.out.printf("%-18s median=%.0f ns/op allocated=%.0f B/op %d threads=%.0f ops/s%n", name,
+                result.nanosPerOp(), result.bytesPerOp(), THREADS, result.opsPerSecondConcurrent());
+        return result;
+    }
+
+    private static double concurrentThroughput(Function<Map<String, String>, String> hash,
+            Map<String, String> fields) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            Callable<Void> task = () -> {
+                start.await();
+                for (int i = 0; i < OPS; i++) {
+                    hash.apply(fields);
+                }
+                return null;
+            };
+            for (int i = 0; i < THREADS; i++) {
+                futures.add(pool.submit(task));
+            }
+            long begin = System.nanoTime();
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            return (double) THREADS * OPS * 1_000_000_000L / (System.nanoTime() - begin);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
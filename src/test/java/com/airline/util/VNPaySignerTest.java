@@ -0,0 +1,88 @@
+package com.airline.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.jupiter.api.Test;
+
+/**
+ * VNPaySigner phải cho đúng vnp_SecureHash như cách ký cũ (Mac.getInstance +
+ * init mỗi lần, String.format từng byte, URLEncoder từng value).
+ */
+class VNPaySignerTest {
+
+    static final String SECRET = "LIH4VEKXUWE99G9XZBP0BOYIF7X1U1M4";
+
+    @Test
+    void signerMatchesLegacyHash() {
+        VNPaySigner signer = VNPaySigner.forSecret(SECRET);
+        for (Map<String, String> fields : List.of(
+                paymentFields("Thanh toan don hang 12345"),
+                paymentFields("a&b=c +/?%*~'"),
+                paymentFields("Thanh toán vé máy bay Hà Nội - TP.HCM"))) {
+            String legacy = legacyHash(fields, SECRET);
+            assertEquals(legacy, signer.hashAllFields(fields));
+            assertTrue(signer.verify(fields, legacy.toUpperCase(Locale.ROOT)));
+            assertFalse(signer.verify(fields, legacy.substring(1) + "0"));
+        }
+    }
+
+    static Map<String, String> paymentFields(String orderInfo) {
+        Map<String, String> fields = new HashMap<>();
+        fields.put("vnp_Version", "2.1.0");
+        fields.put("vnp_Command", "pay");
+        fields.put("vnp_TmnCode", "800L34J2");
+        fields.put("vnp_Amount", "350000000");
+        fields.put("vnp_CurrCode", "VND");
+        fields.put("vnp_TxnRef", "0AB3KZ9XQ7M2P");
+        fields.put("vnp_OrderInfo", orderInfo);
+        fields.put("vnp_OrderType", "other");
+        fields.put("vnp_Locale", "vn");
+        fields.put("vnp_ReturnUrl", "http://localhost:8080/AirLineReservation/payment/return");
+        fields.put("vnp_IpAddr", "127.0.0.1");
+        fields.put("vnp_CreateDate", "20261017221322");
+        fields.put("vnp_ExpireDate", "20261017223822");
+        return fields;
+    }
+
+    // Cách ký cũ của VNPayUtils.hashAllFields / hmacSHA512
+    static String legacyHash(Map<String, String> fields, String secretKey) {
+        List<String> fieldNames = new ArrayList<>(fields.keySet());
+        Collections.sort(fieldNames);
+        StringBuilder sb = new StringBuilder();
+        for (String fieldName : fieldNames) {
+            String fieldValue = fields.get(fieldName);
+            if (fieldValue != null && fieldValue.length() > 0) {
+                sb.append(fieldName);
+                sb.append('=');
+                sb.append(URLEncoder.encode(fieldValue, StandardCharsets.US_ASCII));
+                sb.append('&');
+            }
+        }
+        sb.deleteCharAt(sb.length() - 1);
+        try {
+            Mac hmac512 = Mac.getInstance("HmacSHA512");
+            hmac512.init(new SecretKeySpec(secretKey.getBytes(StandardCharsets.UTF_8), "HmacSHA512"));
+            byte[] bytes = hmac512.doFinal(sb.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hash = new StringBuilder();
+            for (byte b : bytes) {
+                hash.append(String.format("%02x", b));
+            }
+            return hash.toString();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}